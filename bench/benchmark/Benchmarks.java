@@ -0,0 +1,1451 @@
+package benchmark;
+
+import model.Category;
+import model.Dates;
+import model.Expense;
+import model.Priority;
+import exception.DuplicateExpenseException;
+import exception.ExpenseNotFoundException;
+import repository.ColumnarExpenseRepository;
+import repository.ConcurrentExpenseRepository;
+import repository.ExpenseAggregates;
+import repository.ExpenseRepository;
+import repository.HeavyHitters;
+import repository.InMemoryExpenseRepository;
+import persistence.BinaryExpenseFile;
+import persistence.ExpenseCsvReader;
+import persistence.ExpenseCsvWriter;
+import persistence.ExpenseJournal;
+import persistence.ExpenseSource;
+import persistence.ExpenseSummary;
+import persistence.ParallelExpenseCsvLoader;
+import persistence.SpendingCubeFile;
+import repository.OffHeapExpenseRepository;
+import repository.QuantileSketch;
+import repository.SpendingCube;
+import repository.WalExpenseRepository;
+import service.BudgetManager;
+import service.ExpenseStatistics;
+import service.StatisticsEngine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Performance benchmarks for repositories and file persistence.
+ *
+ * Each benchmark generates its own sample data in a temp file,
+ * runs the operation at growing sizes and prints the timings,
+ * so scaling (linear vs quadratic) is visible at a glance.
+ *
+ * Lives in its own source root (bench/), outside the CLI, and runs on its own:
+ * java -cp bin:bin-bench benchmark.Benchmarks [number]
+ * Without a number it lists the benchmarks.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.2.0
+ */
+public class Benchmarks {
+
+    private static final int[] LOAD_SIZES = {25_000, 50_000, 100_000, 200_000, 400_000};
+    private static final int HEAP_ROWS = 500_000;
+    private static final int GC_ROWS = 1_000_000;
+    private static final int STRESS_ROWS_PER_THREAD = 50_000;
+    private static final int PARSE_ROWS = 1_000_000;
+    private static final int PARALLEL_LOAD_ROWS = 1_000_000;
+    private static final int WRITE_ROWS = 1_000_000;
+    private static final int WAL_WRITES_PER_THREAD = 500;
+    private static final int[] WAL_THREADS = {1, 2, 4, 8, 16, 32};
+    private static final int BINARY_ROWS = 2_000_000;
+    private static final int STARTUP_ROWS = 1_000_000;
+    private static final int STATISTICS_ROWS = 1_000_000;
+    private static final int PARALLEL_STATISTICS_ROWS = 4_000_000;
+    private static final int DATE_RANGE_ROWS = 1_000_000;
+    private static final int DATE_RANGE_QUERIES = 200;
+    private static final int CUBE_ROWS = 1_000_000;
+    private static final int QUANTILE_ROWS = 1_000_000;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private Benchmarks(){
+    }
+
+    /**
+     * Runs the benchmark with the given number, or lists them.
+     *
+     * @param args benchmark number (1-15)
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if(args.length == 0){
+            listBenchmarks();
+            return;
+        }
+
+        int choice;
+        try{
+            choice = Integer.parseInt(args[0]);
+        }catch (NumberFormatException e){
+            System.out.println("❌ Not a benchmark number: " + args[0]);
+            listBenchmarks();
+            System.exit(1);
+            return;
+        }
+
+        switch (choice){
+            case 1:
+                benchmarkCsvLoad();
+                break;
+
+            case 2:
+                benchmarkHeapPerRow();
+                break;
+
+            case 3:
+                benchmarkGcPauses();
+                break;
+
+            case 4:
+                stressConcurrentIngestion();
+                break;
+
+            case 5:
+                benchmarkCsvParse();
+                break;
+
+            case 6:
+                benchmarkParallelLoad();
+                break;
+
+            case 7:
+                benchmarkCsvWrite();
+                break;
+
+            case 8:
+                benchmarkGroupCommit();
+                break;
+
+            case 9:
+                benchmarkBinaryFormat();
+                break;
+
+            case 10:
+                benchmarkLazyStartup();
+                break;
+
+            case 11:
+                benchmarkStatistics();
+                break;
+
+            case 12:
+                benchmarkParallelStatistics();
+                break;
+
+            case 13:
+                benchmarkDateRangeQueries();
+                break;
+
+            case 14:
+                benchmarkSpendingCube();
+                break;
+
+            case 15:
+                benchmarkQuantileSketches();
+                break;
+
+            default:
+                System.out.println("❌ Invalid choice! Please enter 1-15.");
+                listBenchmarks();
+                System.exit(1);
+                break;
+        }
+    }
+
+    private static void listBenchmarks(){
+        System.out.println("=== Performance Benchmarks ===");
+        System.out.println("Usage: java -cp bin:bin-bench benchmark.Benchmarks <number>");
+        System.out.println("1. CSV load scaling (duplicate detection)");
+        System.out.println("2. Heap per expense: in-memory vs columnar");
+        System.out.println("3. GC pauses: on-heap vs off-heap");
+        System.out.println("4. Concurrent ingestion stress test");
+        System.out.println("5. CSV parse throughput (1M rows)");
+        System.out.println("6. Parallel CSV load (fork-join)");
+        System.out.println("7. CSV write throughput and allocation");
+        System.out.println("8. Write-ahead log group commit");
+        System.out.println("9. Binary file format vs CSV");
+        System.out.println("10. Startup: eager vs lazy load");
+        System.out.println("11. Advanced statistics: 7 scans vs one pass");
+        System.out.println("12. Parallel statistics scaling (1..N cores)");
+        System.out.println("13. Date-range totals: scan vs Fenwick index");
+        System.out.println("14. Month x category report: scan vs spending cube");
+        System.out.println("15. Amount percentiles: sort vs quantile sketches");
+    }
+
+    /**
+     * Measures BudgetManager.loadFromFile for growing CSV files.
+     * Time per row should stay flat if loading is linear.
+     */
+    public static void benchmarkCsvLoad() throws IOException {
+        System.out.println("\n=== CSV Load Benchmark ===\n");
+        System.out.printf("%10s | %10s | %12s%n", "Rows", "Time (ms)", "ns per row");
+        System.out.println("───────────────────────────────────────");
+
+        for(int rows : LOAD_SIZES){
+            File file = writeSampleCsv(rows);
+
+            try{
+                long start = System.nanoTime();
+                BudgetManager manager = quietly(() -> {
+                    BudgetManager m = new BudgetManager(new InMemoryExpenseRepository());
+                    m.loadFromFile(file.getPath());
+                    return m;
+                });
+                long elapsed = System.nanoTime() - start;
+
+                if(manager.getExpenseCount() != rows){
+                    System.out.println("⚠️  Expected " + rows + " rows, loaded " + manager.getExpenseCount());
+                }
+
+                System.out.printf("%10d | %10.1f | %12.1f%n",
+                        rows, elapsed / 1_000_000.0, (double) elapsed / rows);
+            }finally {
+                file.delete();
+            }
+        }
+
+        System.out.println("───────────────────────────────────────");
+    }
+
+    /**
+     * Compares retained heap per expense of the object-per-row repository
+     * and the columnar one. Rows use a small set of repeating descriptions,
+     * like real merchant names.
+     */
+    public static void benchmarkHeapPerRow(){
+        System.out.println("\n=== Heap per Expense Benchmark (" + HEAP_ROWS + " rows) ===\n");
+
+        long inMemory = measureRetainedHeap(InMemoryExpenseRepository::new);
+        long columnar = measureRetainedHeap(ColumnarExpenseRepository::new);
+
+        System.out.printf("%-12s | %14s%n", "Repository", "Bytes per row");
+        System.out.println("───────────────────────────────────────");
+        System.out.printf("%-12s | %14.1f%n", "In-memory", (double) inMemory / HEAP_ROWS);
+        System.out.printf("%-12s | %14.1f%n", "Columnar", (double) columnar / HEAP_ROWS);
+        System.out.println("───────────────────────────────────────");
+        System.out.printf("Columnar uses %.1fx less heap%n", (double) inMemory / columnar);
+    }
+
+    /**
+     * Compares garbage collection cost with 1M expenses resident on-heap
+     * (one object graph per row) and off-heap (direct buffers).
+     * Full GC has to trace every live object, so it shows the difference best.
+     */
+    public static void benchmarkGcPauses(){
+        System.out.println("\n=== GC Pause Benchmark (" + GC_ROWS + " resident rows) ===\n");
+        System.out.printf("%-10s | %16s | %18s%n", "Repository", "Full GC avg (ms)", "Young GC total (ms)");
+        System.out.println("───────────────────────────────────────────────────────");
+
+        measureGcPauses("On-heap", new InMemoryExpenseRepository());
+
+        try(OffHeapExpenseRepository offHeap = new OffHeapExpenseRepository(GC_ROWS)){
+            measureGcPauses("Off-heap", offHeap);
+        }
+
+        System.out.println("───────────────────────────────────────────────────────");
+    }
+
+    private static void measureGcPauses(String label, ExpenseRepository repository){
+        fill(repository, GC_ROWS);
+
+        // Full collections: cost grows with the live object graph
+        int fullRuns = 3;
+        long fullStart = System.nanoTime();
+        for(int i = 0; i < fullRuns; i++){
+            System.gc();
+        }
+        double fullAvgMs = (System.nanoTime() - fullStart) / 1_000_000.0 / fullRuns;
+
+        // Allocation churn: young collections must still scan references into the old generation
+        long gcBefore = totalGcMillis();
+        long checksum = 0;
+        for(int i = 0; i < 200; i++){
+            byte[][] garbage = new byte[1_000][];
+            for(int j = 0; j < garbage.length; j++){
+                garbage[j] = new byte[1_024];
+            }
+            checksum += garbage[i % garbage.length].length;
+        }
+        long youngMs = totalGcMillis() - gcBefore;
+
+        if(repository.count() != GC_ROWS || checksum == 0){
+            System.out.println("⚠️  Expected " + GC_ROWS + " rows, found " + repository.count());
+        }
+
+        System.out.printf("%-10s | %16.1f | %18d%n", label, fullAvgMs, youngMs);
+        repository.deleteAll();
+    }
+
+    /**
+     * Multi-threaded ingestion stress test for ConcurrentExpenseRepository.
+     *
+     * Every writer saves the same set of shared expenses (so duplicate
+     * detection is raced) plus its own unique ones, while reader threads
+     * keep querying. Afterwards it checks that no row was lost or duplicated
+     * and prints throughput for growing writer counts.
+     *
+     * A second round races deleter threads against the writers (aiming at
+     * just-saved IDs) and checks that indexes, counts and aggregates match
+     * a recomputation from the expenses that are left.
+     */
+    public static void stressConcurrentIngestion() throws InterruptedException {
+        System.out.println("\n=== Concurrent Ingestion Stress Test ===\n");
+        System.out.printf("%8s | %10s | %12s | %s%n", "Writers", "Time (ms)", "Saves/sec", "Check");
+        System.out.println("───────────────────────────────────────────────────");
+
+        int maxWriters = Math.max(4, Runtime.getRuntime().availableProcessors());
+        boolean allPassed = true;
+
+        for(int writers = 1; writers <= maxWriters; writers *= 2){
+            allPassed &= runIngestion(writers);
+        }
+
+        System.out.println("───────────────────────────────────────────────────");
+        System.out.println(allPassed ? "✅ No rows lost or duplicated" : "❌ Consistency check failed");
+
+        System.out.println("\nSaves racing deletes:");
+        System.out.printf("%8s | %10s | %12s | %s%n", "Writers", "Time (ms)", "Deletes", "Check");
+        System.out.println("───────────────────────────────────────────────────");
+
+        boolean churnPassed = true;
+        for(int writers = 1; writers <= maxWriters; writers *= 2){
+            churnPassed &= runChurn(writers);
+        }
+
+        System.out.println("───────────────────────────────────────────────────");
+        System.out.println(churnPassed ? "✅ Indexes and aggregates match a recomputation" : "❌ Consistency check failed");
+    }
+
+    private static boolean runChurn(int writers) throws InterruptedException {
+        ConcurrentExpenseRepository repository = new ConcurrentExpenseRepository();
+        Category[] categories = Category.values();
+        Priority[] priorities = Priority.values();
+
+        AtomicLong newestId = new AtomicLong();
+        AtomicInteger deleted = new AtomicInteger();
+        AtomicInteger unexpectedErrors = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        int deleters = 2;
+        ExecutorService pool = Executors.newFixedThreadPool(writers + deleters);
+        CountDownLatch writersDone = new CountDownLatch(writers);
+
+        for(int w = 0; w < writers; w++){
+            int writer = w;
+            pool.execute(() -> {
+                try{
+                    start.await();
+                    for(int i = 0; i < STRESS_ROWS_PER_THREAD; i++){
+                        Expense expense = new Expense("2025-01-" + (10 + i % 20), 1 + i % 500,
+                                "Writer " + writer + " item " + i, categories[i % categories.length],
+                                priorities[i % priorities.length]);
+                        repository.save(expense);
+                        newestId.accumulateAndGet(expense.getId(), Math::max);
+                    }
+                }catch (Exception e){
+                    unexpectedErrors.incrementAndGet();
+                }finally {
+                    writersDone.countDown();
+                }
+            });
+        }
+
+        for(int d = 0; d < deleters; d++){
+            int deleter = d;
+            pool.execute(() -> {
+                try{
+                    start.await();
+                    long attempt = 0;
+                    while (writing.get()){
+                        long id = newestId.get() + (attempt++ + deleter) % 8 - 6;
+                        try{
+                            if(id > 0){
+                                repository.delete(id);
+                                deleted.incrementAndGet();
+                            }
+                        }catch (ExpenseNotFoundException e){
+                            // Not saved yet, or already deleted
+                        }
+                    }
+                }catch (Exception e){
+                    unexpectedErrors.incrementAndGet();
+                }
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        writersDone.await();
+        long elapsed = System.nanoTime() - begin;
+        writing.set(false);
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        boolean ok = unexpectedErrors.get() == 0
+                && repository.count() == writers * STRESS_ROWS_PER_THREAD - deleted.get()
+                && matchesRecomputation(repository);
+
+        System.out.printf("%8d | %10.1f | %12d | %s%n",
+                writers, elapsed / 1_000_000.0, deleted.get(), ok ? "OK" : "FAILED");
+        return ok;
+    }
+
+    /**
+     * Checks indexes, counts and aggregates against values recomputed from findAll().
+     */
+    private static boolean matchesRecomputation(ConcurrentExpenseRepository repository){
+        List<Expense> all = repository.findAll();
+        ExpenseAggregates expected = ExpenseAggregates.of(all);
+        ExpenseAggregates actual = repository.aggregates();
+
+        boolean ok = repository.count() == all.size()
+                && actual.count() == all.size()
+                && actual.totalAmountMinor() == expected.totalAmountMinor()
+                && repository.totalAmount() == expected.totalAmount()
+                && repository.findExpensesAbove(0).size() == all.size()
+                && actual.totalsByDate().equals(expected.totalsByDate())
+                && actual.frequentDescriptions().top(HeavyHitters.CAPACITY).size()
+                    == expected.frequentDescriptions().top(HeavyHitters.CAPACITY).size()
+                && actual.costlyDescriptions().total() == expected.costlyDescriptions().total();
+
+        for(Category category : Category.values()){
+            List<Expense> inCategory = new ArrayList<>();
+            for(Expense expense : all){
+                if(expense.getCategory() == category){
+                    inCategory.add(expense);
+                }
+            }
+            ok &= repository.findByCategory(category).equals(inCategory)
+                    && repository.countByCategory(category) == inCategory.size()
+                    && repository.totalByCategory(category) == expected.totalByCategory(category)
+                    && actual.totalByCategoryMinor(category) == expected.totalByCategoryMinor(category);
+        }
+
+        for(Priority priority : Priority.values()){
+            ok &= repository.findByPriority(priority).size() == expected.countByPriority(priority)
+                    && repository.countByPriority(priority) == expected.countByPriority(priority)
+                    && actual.totalByPriorityMinor(priority) == expected.totalByPriorityMinor(priority);
+        }
+        return ok;
+    }
+
+    private static boolean runIngestion(int writers) throws InterruptedException {
+        ConcurrentExpenseRepository repository = new ConcurrentExpenseRepository();
+        Category[] categories = Category.values();
+        int shared = STRESS_ROWS_PER_THREAD / 2;
+        int unique = STRESS_ROWS_PER_THREAD - shared;
+
+        AtomicInteger duplicatesRejected = new AtomicInteger();
+        AtomicInteger unexpectedErrors = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        int readers = 2;
+        ExecutorService pool = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch writersDone = new CountDownLatch(writers);
+
+        for(int w = 0; w < writers; w++){
+            int writer = w;
+            pool.execute(() -> {
+                try{
+                    start.await();
+                    for(int i = 0; i < STRESS_ROWS_PER_THREAD; i++){
+                        String description = i < shared ? "Shared " + i : "Writer " + writer + " item " + i;
+                        try{
+                            repository.save(new Expense("2025-01-" + (10 + i % 20), 1 + i % 500,
+                                    description, categories[i % categories.length]));
+                        }catch (DuplicateExpenseException e){
+                            duplicatesRejected.incrementAndGet();
+                        }
+                    }
+                }catch (Exception e){
+                    unexpectedErrors.incrementAndGet();
+                }finally {
+                    writersDone.countDown();
+                }
+            });
+        }
+
+        for(int r = 0; r < readers; r++){
+            pool.execute(() -> {
+                try{
+                    start.await();
+                    while (writing.get()){
+                        repository.findByCategory(Category.FOOD);
+                        repository.totalAmount();
+                        repository.findExpensesAbove(400);
+                    }
+                }catch (Exception e){
+                    unexpectedErrors.incrementAndGet();
+                }
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        writersDone.await();
+        long elapsed = System.nanoTime() - begin;
+        writing.set(false);
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        // Every shared row saved exactly once, every unique row saved
+        int expected = shared + writers * unique;
+        List<Expense> all = repository.findAll();
+        Set<Long> ids = new HashSet<>();
+        for(Expense expense : all){
+            ids.add(expense.getId());
+        }
+        int categorized = 0;
+        for(Category category : categories){
+            categorized += repository.findByCategory(category).size();
+        }
+
+        boolean ok = repository.count() == expected
+                && all.size() == expected
+                && ids.size() == expected
+                && categorized == expected
+                && duplicatesRejected.get() == (writers - 1) * shared
+                && unexpectedErrors.get() == 0;
+
+        long saves = (long) writers * STRESS_ROWS_PER_THREAD;
+        System.out.printf("%8d | %10.1f | %12.0f | %s%n",
+                writers, elapsed / 1_000_000.0, saves / (elapsed / 1e9), ok ? "OK" : "FAILED");
+        return ok;
+    }
+
+    private static void fill(ExpenseRepository repository, int rows){
+        Category[] categories = Category.values();
+        Priority[] priorities = Priority.values();
+
+        for(int i = 0; i < rows; i++){
+            String date = LocalDate.ofEpochDay(18_000 + i / 50).toString();
+            repository.save(new Expense(date, 1 + i % 9000, "Merchant " + (i % 50),
+                    categories[i % categories.length], priorities[i % priorities.length]));
+        }
+    }
+
+    private static long totalGcMillis(){
+        long total = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long measureRetainedHeap(Supplier<ExpenseRepository> factory){
+        long before = usedHeap();
+        ExpenseRepository repository = factory.get();
+
+        // Date and description strings are rebuilt per row, as a CSV load would do
+        fill(repository, HEAP_ROWS);
+
+        long retained = usedHeap() - before;
+
+        if(repository.count() != HEAP_ROWS){
+            System.out.println("⚠️  Expected " + HEAP_ROWS + " rows, saved " + repository.count());
+        }
+        return retained;
+    }
+
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Compares CSV parse throughput of the old split/regex loop and
+     * ExpenseCsvReader on a 1M-row file. Only parsing and Expense creation
+     * are timed; repository inserts are left out so the parsers are compared.
+     */
+    public static void benchmarkCsvParse() throws IOException {
+        System.out.println("\n=== CSV Parse Benchmark (" + PARSE_ROWS + " rows) ===\n");
+
+        File file = writeSampleCsv(PARSE_ROWS);
+        try{
+            // Warm-up run of each, then the measured run
+            parseLegacy(file);
+            parseStateMachine(file);
+
+            long start = System.nanoTime();
+            int legacyRows = parseLegacy(file);
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int newRows = parseStateMachine(file);
+            long newNanos = System.nanoTime() - start;
+
+            System.out.printf("%-14s | %10s | %14s%n", "Parser", "Time (ms)", "Rows/sec");
+            System.out.println("───────────────────────────────────────────");
+            System.out.printf("%-14s | %10.1f | %14.0f%n", "split + regex", legacyNanos / 1e6, legacyRows / (legacyNanos / 1e9));
+            System.out.printf("%-14s | %10.1f | %14.0f%n", "state machine", newNanos / 1e6, newRows / (newNanos / 1e9));
+            System.out.println("───────────────────────────────────────────");
+            System.out.printf("Speedup: %.1fx%n", (double) legacyNanos / newNanos);
+
+            if(legacyRows != newRows){
+                System.out.println("⚠️  Parsers disagree: " + legacyRows + " vs " + newRows + " rows");
+            }
+        }finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * The loadFromFile parsing loop before ExpenseCsvReader, kept as a baseline.
+     */
+    private static int parseLegacy(File file) throws IOException {
+        int rows = 0;
+        try(BufferedReader reader = new BufferedReader(new FileReader(file))){
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null){
+                String regex = ",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)";
+                String[] parts = line.split(regex);
+                if(parts.length != 5){
+                    continue;
+                }
+                String description = parts[2];
+                if(description.startsWith("\"")){
+                    description = description.substring(1, description.length() - 1);
+                }
+                new Expense(parts[0], Double.parseDouble(parts[1]), description,
+                        Category.valueOf(parts[3]), Priority.valueOf(parts[4]));
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static int parseStateMachine(File file) throws IOException {
+        int rows = 0;
+        try(ExpenseCsvReader reader = new ExpenseCsvReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))){
+            while (reader.next() != null){
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Compares sequential and parallel CSV loading on a 1M-row file,
+     * checks both produce the same rows in the same order, then shows
+     * how chunk parsing scales with the number of fork-join threads.
+     */
+    public static void benchmarkParallelLoad() throws IOException {
+        System.out.println("\n=== Parallel CSV Load Benchmark (" + PARALLEL_LOAD_ROWS + " rows) ===\n");
+
+        File file = writeSampleCsv(PARALLEL_LOAD_ROWS);
+        try{
+            ExpenseRepository sequential = new InMemoryExpenseRepository();
+            ExpenseRepository parallel = new InMemoryExpenseRepository();
+
+            long start = System.nanoTime();
+            quietly(() -> {
+                new BudgetManager(sequential).loadFromFile(file.getPath());
+                return null;
+            });
+            long sequentialNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            quietly(() -> {
+                new BudgetManager(parallel).loadFromFileParallel(file.getPath());
+                return null;
+            });
+            long parallelNanos = System.nanoTime() - start;
+
+            System.out.printf("Sequential load: %8.1f ms%n", sequentialNanos / 1e6);
+            System.out.printf("Parallel load:   %8.1f ms (%d cores)%n", parallelNanos / 1e6,
+                    Runtime.getRuntime().availableProcessors());
+            System.out.println(sameRows(sequential.viewAll(), parallel.viewAll())
+                    ? "✓ Same rows in the same order"
+                    : "⚠️  Parallel load differs from sequential load");
+
+            System.out.println("\nParse only (no inserts):");
+            System.out.printf("%8s | %10s | %8s%n", "Threads", "Time (ms)", "Speedup");
+            System.out.println("───────────────────────────────");
+
+            long baseline = 0;
+            int cores = Runtime.getRuntime().availableProcessors();
+            for(int threads = 1; threads <= cores; threads *= 2){
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try{
+                    ParallelExpenseCsvLoader loader = new ParallelExpenseCsvLoader(pool);
+                    drain(loader.parse(file));
+
+                    start = System.nanoTime();
+                    drain(loader.parse(file));
+                    long elapsed = System.nanoTime() - start;
+
+                    if(threads == 1){
+                        baseline = elapsed;
+                    }
+                    System.out.printf("%8d | %10.1f | %7.2fx%n", threads, elapsed / 1e6, (double) baseline / elapsed);
+                }finally {
+                    pool.shutdown();
+                }
+            }
+            System.out.println("───────────────────────────────");
+        }finally {
+            file.delete();
+        }
+    }
+
+    private static boolean sameRows(List<Expense> first, List<Expense> second){
+        if(first.size() != second.size()){
+            return false;
+        }
+        for(int i = 0; i < first.size(); i++){
+            Expense a = first.get(i);
+            Expense b = second.get(i);
+            if(a.getId() != b.getId() || !a.getDescription().equals(b.getDescription())
+                    || !a.getDate().equals(b.getDate()) || a.getAmount() != b.getAmount()){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int drain(ExpenseSource source) throws IOException {
+        int rows = 0;
+        try(source){
+            while (source.next() != null){
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Compares the old String.format + FileWriter save loop with
+     * ExpenseCsvWriter (plain and gzip): rows per second and bytes
+     * allocated per row on the writing thread.
+     */
+    public static void benchmarkCsvWrite() throws IOException {
+        System.out.println("\n=== CSV Write Benchmark (" + WRITE_ROWS + " rows) ===\n");
+
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        fill(repository, WRITE_ROWS);
+        List<Expense> expenses = repository.viewAll();
+
+        File file = File.createTempFile("expenses-bench", ".csv");
+        try{
+            // Warm-up run of each
+            writeLegacy(expenses, file);
+            writeStreaming(expenses, file, false);
+            writeStreaming(expenses, file, true);
+
+            System.out.printf("%-16s | %10s | %12s | %14s | %10s%n", "Writer", "Time (ms)", "Rows/sec", "Bytes alloc/row", "File (KB)");
+            System.out.println("─────────────────────────────────────────────────────────────────────────");
+
+            for(int variant = 0; variant < 3; variant++){
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+
+                if(variant == 0){
+                    writeLegacy(expenses, file);
+                }else {
+                    writeStreaming(expenses, file, variant == 2);
+                }
+
+                long elapsed = System.nanoTime() - start;
+                long allocated = allocatedBytes() - allocatedBefore;
+                String label = variant == 0 ? "String.format" : variant == 1 ? "streaming" : "streaming + gzip";
+
+                System.out.printf("%-16s | %10.1f | %12.0f | %14.1f | %10d%n", label, elapsed / 1e6,
+                        expenses.size() / (elapsed / 1e9), (double) allocated / expenses.size(), file.length() / 1024);
+            }
+
+            System.out.println("─────────────────────────────────────────────────────────────────────────");
+        }finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * The saveToFile loop before ExpenseCsvWriter, kept as a baseline.
+     */
+    private static void writeLegacy(List<Expense> expenses, File file) throws IOException {
+        try(BufferedWriter writer = new BufferedWriter(new FileWriter(file))){
+            writer.write("id,date,amount,description,category,priority");
+            writer.newLine();
+
+            for(Expense expense : expenses){
+                String desc = expense.getDescription();
+
+                if(desc.contains(",") || desc.contains("\"") || desc.contains("\n") || desc.contains("\r")){
+                    desc = "\"" + desc.replace("\"", "\"\"") + "\"";
+                }
+
+                writer.write(String.format("%d,%s,%s,%s,%s,%s", expense.getId(), expense.getDate(),
+                        expense.getAmount(), desc, expense.getCategory().name(), expense.getPriority().name()));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static void writeStreaming(List<Expense> expenses, File file, boolean gzip) throws IOException {
+        try(ExpenseCsvWriter writer = new ExpenseCsvWriter(file.toPath(), gzip)){
+            for(Expense expense : expenses){
+                writer.write(expense);
+            }
+        }
+    }
+
+    /**
+     * Bytes allocated so far by the current thread (HotSpot-specific MXBean).
+     */
+    private static long allocatedBytes(){
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Durable saves into WalExpenseRepository from a growing number of
+     * threads. Group commit should push writes per fsync up with the
+     * thread count, so throughput grows while every save stays durable.
+     */
+    public static void benchmarkGroupCommit() throws IOException, InterruptedException {
+        System.out.println("\n=== Write-Ahead Log Group Commit (" + WAL_WRITES_PER_THREAD + " saves per thread) ===\n");
+        System.out.printf("%8s | %8s | %8s | %12s | %12s%n", "Threads", "Saves", "fsyncs", "Saves/fsync", "Saves/sec");
+        System.out.println("──────────────────────────────────────────────────────────────");
+
+        for(int threads : WAL_THREADS){
+            Path directory = Files.createTempDirectory("expenses-wal-bench");
+            WalExpenseRepository repository = new WalExpenseRepository(directory);
+
+            try{
+                ExecutorService pool = Executors.newFixedThreadPool(threads);
+                CountDownLatch start = new CountDownLatch(1);
+
+                for(int t = 0; t < threads; t++){
+                    int thread = t;
+                    pool.submit(() -> {
+                        start.await();
+                        for(int i = 0; i < WAL_WRITES_PER_THREAD; i++){
+                            repository.save(new Expense("2025-01-01", 1 + i % 100,
+                                    "Writer " + thread + " #" + i, Category.FOOD, Priority.MEDIUM));
+                        }
+                        return null;
+                    });
+                }
+
+                long begin = System.nanoTime();
+                start.countDown();
+                pool.shutdown();
+                pool.awaitTermination(10, TimeUnit.MINUTES);
+                long elapsed = System.nanoTime() - begin;
+
+                long saves = repository.getLoggedRows();
+                long syncs = repository.getSyncCount();
+                System.out.printf("%8d | %8d | %8d | %12.1f | %12.0f%n", threads, saves, syncs,
+                        (double) saves / Math.max(1, syncs), saves / (elapsed / 1e9));
+            }finally {
+                repository.close();
+                for(File file : directory.toFile().listFiles()){
+                    file.delete();
+                }
+                directory.toFile().delete();
+            }
+        }
+
+        System.out.println("──────────────────────────────────────────────────────────────");
+    }
+
+    /**
+     * CSV vs memory-mapped binary file: time until the row count is known,
+     * a random row can be read, and every row has been decoded.
+     * Opening the binary file only maps it, so it should not grow with the row count.
+     */
+    public static void benchmarkBinaryFormat() throws IOException {
+        System.out.println("\n=== Binary Format Benchmark (" + BINARY_ROWS + " rows) ===\n");
+
+        File csv = writeSampleCsv(BINARY_ROWS);
+        File binary = File.createTempFile("expenses-bench", ".bin");
+        try{
+            long start = System.nanoTime();
+            int imported = BinaryExpenseFile.importCsv(csv, binary.toPath());
+            long importTime = System.nanoTime() - start;
+
+            // Warm-up
+            parseStateMachine(csv);
+            scanBinary(binary.toPath());
+
+            start = System.nanoTime();
+            int csvRows = parseStateMachine(csv);
+            long csvTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long randomTime;
+            long scanTime;
+            int binaryRows;
+            try(BinaryExpenseFile file = BinaryExpenseFile.open(binary.toPath())){
+                binaryRows = file.size();
+                long openTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Expense sample = file.get(binaryRows / 2);
+                randomTime = System.nanoTime() - start;
+
+                System.out.printf("%-28s | %10s | %10s%n", "Operation", "Time (ms)", "Rows");
+                System.out.println("──────────────────────────────────────────────────────");
+                System.out.printf("%-28s | %10.1f | %10d%n", "CSV -> binary import", importTime / 1e6, imported);
+                System.out.printf("%-28s | %10.1f | %10d%n", "CSV full parse", csvTime / 1e6, csvRows);
+                System.out.printf("%-28s | %10.3f | %10d%n", "Binary open + count", openTime / 1e6, binaryRows);
+                System.out.printf("%-28s | %10.3f | %10s%n", "Binary random row", randomTime / 1e6, sample.getDate());
+            }
+
+            start = System.nanoTime();
+            binaryRows = scanBinary(binary.toPath());
+            scanTime = System.nanoTime() - start;
+            System.out.printf("%-28s | %10.1f | %10d%n", "Binary full decode", scanTime / 1e6, binaryRows);
+            System.out.println("──────────────────────────────────────────────────────");
+            System.out.printf("File size: CSV %d KB | binary %d KB%n", csv.length() / 1024, binary.length() / 1024);
+        }finally {
+            csv.delete();
+            binary.delete();
+        }
+    }
+
+    private static int scanBinary(Path path) throws IOException {
+        try(BinaryExpenseFile file = BinaryExpenseFile.open(path)){
+            return drain(file.source());
+        }
+    }
+
+    /**
+     * Startup as Main does it: time until the menu can show count and total,
+     * and until all rows are in the repository. Eager load parses everything
+     * first; lazy load answers from the saved summary while a virtual thread loads.
+     */
+    public static void benchmarkLazyStartup() throws IOException {
+        System.out.println("\n=== Startup Load Benchmark (" + STARTUP_ROWS + " rows) ===\n");
+
+        File file = writeSampleCsv(STARTUP_ROWS);
+        String fileName = file.getPath();
+        Path journal = Path.of(fileName + ExpenseJournal.SUFFIX);
+        try{
+            // Save once through the journal, as Main does, so the summary is written
+            quietly(() -> {
+                BudgetManager manager = new BudgetManager(new InMemoryExpenseRepository());
+                manager.useJournal(fileName);
+                manager.loadFromFile(fileName);
+                manager.saveToFile(fileName);
+                return null;
+            });
+
+            System.out.printf("%-26s | %16s | %16s | %10s%n", "Mode", "First menu (ms)", "All rows (ms)", "Count");
+            System.out.println("─────────────────────────────────────────────────────────────────────────────");
+
+            for(int mode = 0; mode < 3; mode++){
+                if(mode == 2){
+                    ExpenseSummary.delete(Path.of(fileName));
+                }
+
+                boolean lazy = mode > 0;
+                long[] times = new long[2];
+                int count = quietly(() -> {
+                    BudgetManager manager = new BudgetManager(new InMemoryExpenseRepository());
+                    manager.useJournal(fileName);
+
+                    long start = System.nanoTime();
+                    if(lazy){
+                        manager.loadInBackground(fileName);
+                    }else {
+                        manager.loadFromFile(fileName);
+                    }
+
+                    // What displayMenu needs; without a summary it shows "loading" instead
+                    int shown = -1;
+                    if(manager.hasLoadingSummary() || !manager.isLoading()){
+                        shown = manager.getExpenseCount();
+                        manager.calculateTotal();
+                    }
+                    times[0] = System.nanoTime() - start;
+
+                    manager.awaitLoad();
+                    times[1] = System.nanoTime() - start;
+                    return shown;
+                });
+
+                String label = mode == 0 ? "eager (loadFromFile)" : mode == 1 ? "lazy + summary" : "lazy, no summary";
+                System.out.printf("%-26s | %16.1f | %16.1f | %10s%n", label, times[0] / 1e6, times[1] / 1e6,
+                        count < 0 ? "loading" : String.valueOf(count));
+            }
+
+            System.out.println("─────────────────────────────────────────────────────────────────────────────");
+        }finally {
+            file.delete();
+            Files.deleteIfExists(journal);
+            ExpenseSummary.delete(Path.of(fileName));
+            SpendingCubeFile.delete(Path.of(fileName));
+        }
+    }
+
+    /**
+     * StatisticsEngine.computeParallel on pools of 1..N threads, against the
+     * sequential pass. Every pool must produce bit-identical results.
+     */
+    public static void benchmarkParallelStatistics(){
+        System.out.println("\n=== Parallel Statistics Benchmark (" + PARALLEL_STATISTICS_ROWS + " rows) ===\n");
+
+        List<Expense> expenses = sampleExpenses(PARALLEL_STATISTICS_ROWS);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        StatisticsEngine sequential = new StatisticsEngine();
+        sequential.compute(expenses);
+        long start = System.nanoTime();
+        sequential.compute(expenses);
+        long sequentialTime = System.nanoTime() - start;
+
+        System.out.printf("%8s | %10s | %8s | %s%n", "Threads", "Time (ms)", "Speedup", "Result");
+        System.out.println("──────────────────────────────────────────────────");
+        System.out.printf("%8s | %10.1f | %8s | %s%n", "seq", sequentialTime / 1e6, "1.0x", "-");
+
+        String reference = null;
+        boolean identical = true;
+
+        for(int threads = 1; threads <= cores; threads = threads < cores ? Math.min(threads * 2, cores) : cores + 1){
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try{
+                StatisticsEngine engine = new StatisticsEngine(pool, StatisticsEngine.DEFAULT_SEQUENTIAL_THRESHOLD);
+                engine.computeParallel(expenses);
+
+                start = System.nanoTime();
+                ExpenseStatistics statistics = engine.computeParallel(expenses);
+                long elapsed = System.nanoTime() - start;
+
+                String fingerprint = fingerprint(statistics);
+                if(reference == null){
+                    reference = fingerprint;
+                }
+                identical &= reference.equals(fingerprint);
+
+                System.out.printf("%8d | %10.1f | %7.1fx | %s%n", threads, elapsed / 1e6,
+                        (double) sequentialTime / elapsed, reference.equals(fingerprint) ? "same bits" : "DIFFERENT");
+            }finally {
+                pool.shutdown();
+            }
+        }
+
+        System.out.println("──────────────────────────────────────────────────");
+        System.out.println(identical ? "✓ Identical results on every pool size" : "❌ Results differ between pool sizes");
+    }
+
+    /**
+     * Answers random "total between two dates" queries (half of them per
+     * category) by scanning all rows and from the Fenwick date-range index
+     * in ExpenseAggregates, and checks that both agree to the grosz.
+     */
+    public static void benchmarkDateRangeQueries(){
+        System.out.println("\n=== Date-Range Totals Benchmark (" + DATE_RANGE_ROWS + " rows, "
+                + DATE_RANGE_QUERIES + " queries) ===\n");
+
+        List<Expense> expenses = sampleExpenses(DATE_RANGE_ROWS);
+        Category[] categories = Category.values();
+
+        long start = System.nanoTime();
+        ExpenseAggregates aggregates = ExpenseAggregates.of(expenses);
+        long buildTime = System.nanoTime() - start;
+
+        Random random = new Random(42);
+        int[] froms = new int[DATE_RANGE_QUERIES];
+        int[] tos = new int[DATE_RANGE_QUERIES];
+        Category[] queryCategories = new Category[DATE_RANGE_QUERIES];
+        for(int i = 0; i < DATE_RANGE_QUERIES; i++){
+            int a = 17_900 + random.nextInt(2_200);
+            int b = 17_900 + random.nextInt(2_200);
+            froms[i] = Math.min(a, b);
+            tos[i] = Math.max(a, b);
+            queryCategories[i] = i % 2 == 0 ? null : categories[random.nextInt(categories.length)];
+        }
+
+        long[] scanned = new long[DATE_RANGE_QUERIES];
+        start = System.nanoTime();
+        for(int i = 0; i < DATE_RANGE_QUERIES; i++){
+            long total = 0;
+            for(Expense expense : expenses){
+                int day = expense.getEpochDay();
+                if(day >= froms[i] && day <= tos[i]
+                        && (queryCategories[i] == null || expense.getCategory() == queryCategories[i])){
+                    total += expense.getAmountMinor();
+                }
+            }
+            scanned[i] = total;
+        }
+        long scanTime = System.nanoTime() - start;
+
+        long[] indexed = new long[DATE_RANGE_QUERIES];
+        start = System.nanoTime();
+        for(int i = 0; i < DATE_RANGE_QUERIES; i++){
+            indexed[i] = aggregates.totalBetweenMinor(froms[i], tos[i], queryCategories[i]);
+        }
+        long indexTime = System.nanoTime() - start;
+
+        System.out.printf("%-22s | %12s | %14s%n", "Method", "Total (ms)", "per query (µs)");
+        System.out.println("──────────────────────────────────────────────────────");
+        System.out.printf("%-22s | %12.1f | %14.1f%n", "Full scan", scanTime / 1e6, scanTime / 1e3 / DATE_RANGE_QUERIES);
+        System.out.printf("%-22s | %12.3f | %14.3f%n", "Fenwick index", indexTime / 1e6, indexTime / 1e3 / DATE_RANGE_QUERIES);
+        System.out.println("──────────────────────────────────────────────────────");
+        System.out.printf("Index built with the aggregates in %.1f ms%n", buildTime / 1e6);
+        System.out.println(Arrays.equals(scanned, indexed)
+                ? "✓ Index totals match the scan exactly"
+                : "❌ Index totals differ from the scan");
+    }
+
+    /**
+     * Builds the month x category report (total of every category in every
+     * month) by scanning all rows and from the SpendingCube kept in
+     * ExpenseAggregates, checks both agree to the grosz, and times saving
+     * and reading the cube file that lets startup skip rebuilding it.
+     */
+    public static void benchmarkSpendingCube() throws IOException {
+        System.out.println("\n=== Spending Cube Benchmark (" + CUBE_ROWS + " rows) ===\n");
+
+        List<Expense> expenses = sampleExpenses(CUBE_ROWS);
+        Category[] categories = Category.values();
+
+        long start = System.nanoTime();
+        ExpenseAggregates aggregates = ExpenseAggregates.of(expenses);
+        long buildTime = System.nanoTime() - start;
+        SpendingCube cube = aggregates.cube();
+
+        start = System.nanoTime();
+        TreeMap<Integer, long[]> scanned = new TreeMap<>();
+        for(Expense expense : expenses){
+            long[] totals = scanned.computeIfAbsent(Dates.monthIndex(expense.getEpochDay()), month -> new long[categories.length]);
+            totals[expense.getCategory().ordinal()] += expense.getAmountMinor();
+        }
+        long scanTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        TreeMap<Integer, long[]> fromCube = new TreeMap<>();
+        for(int month : cube.buckets(SpendingCube.Level.MONTH)){
+            long[] totals = new long[categories.length];
+            for(Category category : categories){
+                totals[category.ordinal()] = cube.totalMinor(SpendingCube.Level.MONTH, month, category, null);
+            }
+            fromCube.put(month, totals);
+        }
+        long cubeTime = System.nanoTime() - start;
+
+        File file = File.createTempFile("cube-benchmark", ".csv");
+        Path dataFile = file.toPath();
+        long writeTime;
+        long readTime;
+        SpendingCube read;
+        try{
+            start = System.nanoTime();
+            SpendingCubeFile.write(dataFile, cube);
+            writeTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            read = SpendingCubeFile.read(dataFile);
+            readTime = System.nanoTime() - start;
+        }finally {
+            file.delete();
+            SpendingCubeFile.delete(dataFile);
+        }
+
+        boolean same = scanned.keySet().equals(fromCube.keySet());
+        for(Map.Entry<Integer, long[]> entry : scanned.entrySet()){
+            same &= Arrays.equals(entry.getValue(), fromCube.get(entry.getKey()));
+        }
+        boolean readBack = read != null;
+        for(int month : scanned.keySet()){
+            readBack &= read != null
+                    && read.totalMinor(SpendingCube.Level.MONTH, month, null, null) == cube.totalMinor(SpendingCube.Level.MONTH, month, null, null);
+        }
+
+        System.out.printf("%-26s | %12s%n", "Month x category report", "Time (ms)");
+        System.out.println("─────────────────────────────────────────");
+        System.out.printf("%-26s | %12.1f%n", "Full scan", scanTime / 1e6);
+        System.out.printf("%-26s | %12.3f%n", "Spending cube", cubeTime / 1e6);
+        System.out.printf("%-26s | %12.1f%n", "Cube file write", writeTime / 1e6);
+        System.out.printf("%-26s | %12.1f%n", "Cube file read", readTime / 1e6);
+        System.out.println("─────────────────────────────────────────");
+        System.out.printf("Cube built with the aggregates in %.1f ms (%d months)%n", buildTime / 1e6, fromCube.size());
+        System.out.println(same
+                ? "✓ Cube totals match the scan exactly"
+                : "❌ Cube totals differ from the scan");
+        System.out.println(readBack
+                ? "✓ Saved cube reads back identical"
+                : "❌ Saved cube differs after reading");
+    }
+
+    /**
+     * Median, p90 and p99 per category and per month: exact (sort of every
+     * group) against the quantile sketches in ExpenseAggregates, with the
+     * largest relative error seen.
+     */
+    public static void benchmarkQuantileSketches(){
+        System.out.println("\n=== Quantile Sketch Benchmark (" + QUANTILE_ROWS + " rows) ===\n");
+
+        List<Expense> expenses = sampleExpenses(QUANTILE_ROWS);
+        Category[] categories = Category.values();
+
+        long start = System.nanoTime();
+        ExpenseAggregates aggregates = ExpenseAggregates.of(expenses);
+        long buildTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Map<Integer, List<Long>> groups = new TreeMap<>();
+        for(Expense expense : expenses){
+            groups.computeIfAbsent(expense.getCategory().ordinal(), group -> new ArrayList<>()).add(expense.getAmountMinor());
+            groups.computeIfAbsent(categories.length + expense.getMonthIndex(), group -> new ArrayList<>()).add(expense.getAmountMinor());
+        }
+        Map<Integer, double[]> exact = new TreeMap<>();
+        for(Map.Entry<Integer, List<Long>> group : groups.entrySet()){
+            long[] sorted = group.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+            double[] values = new double[QUANTILES.length];
+            for(int i = 0; i < QUANTILES.length; i++){
+                values[i] = sorted[(int) (QUANTILES[i] * (sorted.length - 1))] / 100.0;
+            }
+            exact.put(group.getKey(), values);
+        }
+        long sortTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Map<Integer, double[]> sketched = new TreeMap<>();
+        int buckets = 0;
+        for(int group : exact.keySet()){
+            QuantileSketch sketch = group < categories.length
+                    ? aggregates.amountSketch(categories[group])
+                    : aggregates.monthAmountSketch(group - categories.length, group - categories.length);
+            double[] values = new double[QUANTILES.length];
+            for(int i = 0; i < QUANTILES.length; i++){
+                values[i] = sketch.quantile(QUANTILES[i]);
+            }
+            sketched.put(group, values);
+            buckets += sketch.bucketCount();
+        }
+        long sketchTime = System.nanoTime() - start;
+
+        double maxError = 0;
+        for(int group : exact.keySet()){
+            for(int i = 0; i < QUANTILES.length; i++){
+                double exactValue = exact.get(group)[i];
+                maxError = Math.max(maxError, Math.abs(sketched.get(group)[i] - exactValue) / exactValue);
+            }
+        }
+
+        System.out.printf("%-26s | %12s%n", "p50/p90/p99 of " + exact.size() + " groups", "Time (ms)");
+        System.out.println("─────────────────────────────────────────");
+        System.out.printf("%-26s | %12.1f%n", "Group + sort", sortTime / 1e6);
+        System.out.printf("%-26s | %12.3f%n", "Quantile sketches", sketchTime / 1e6);
+        System.out.println("─────────────────────────────────────────");
+        System.out.printf("Sketches built with the aggregates in %.1f ms, %d KB of buckets%n",
+                buildTime / 1e6, buckets * 4 / 1024);
+        System.out.printf("Largest relative error: %.3f%% (bound %.0f%%)%n", maxError * 100, QuantileSketch.RELATIVE_ERROR * 100);
+        System.out.println(maxError <= QuantileSketch.RELATIVE_ERROR
+                ? "✓ All quantiles within the error bound"
+                : "❌ Quantiles outside the error bound");
+    }
+
+    /**
+     * Expenses with uneven cent amounts, so summation order shows in the low bits.
+     */
+    private static List<Expense> sampleExpenses(int rows){
+        Category[] categories = Category.values();
+        Priority[] priorities = Priority.values();
+        List<Expense> expenses = new ArrayList<>(rows);
+
+        for(int i = 0; i < rows; i++){
+            String date = LocalDate.ofEpochDay(18_000 + i % 2_000).toString();
+            double amount = 1 + (i * 7_919L % 999_900) / 100.0;
+            expenses.add(new Expense(date, amount, "Merchant " + (i % 50),
+                    categories[i % categories.length], priorities[i % priorities.length]));
+        }
+        return expenses;
+    }
+
+    /**
+     * Exact bit patterns of the floating-point results.
+     */
+    private static String fingerprint(ExpenseStatistics statistics){
+        StringBuilder bits = new StringBuilder();
+        bits.append(Double.doubleToLongBits(statistics.getTotal()))
+                .append(Double.doubleToLongBits(statistics.getStandardDeviation()));
+
+        for(Category category : Category.values()){
+            bits.append(Double.doubleToLongBits(statistics.getTotal(category)))
+                    .append(Double.doubleToLongBits(statistics.getStandardDeviation(category)));
+        }
+        for(Map.Entry<String, Double> entry : new TreeMap<>(statistics.getTotalsByDate()).entrySet()){
+            bits.append(Double.doubleToLongBits(entry.getValue()));
+        }
+        return Integer.toHexString(bits.toString().hashCode());
+    }
+
+    /**
+     * The advanced statistics screen computed the old way (one copy plus a
+     * scan per figure) vs one fused StatisticsEngine pass.
+     */
+    public static void benchmarkStatistics(){
+        System.out.println("\n=== Advanced Statistics Benchmark (" + STATISTICS_ROWS + " rows) ===\n");
+
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        fill(repository, STATISTICS_ROWS);
+        StatisticsEngine engine = new StatisticsEngine();
+
+        // Warm-up
+        double check = legacyStatistics(repository);
+        ExpenseStatistics statistics = engine.compute(repository.viewAll());
+
+        long start = System.nanoTime();
+        for(int i = 0; i < 5; i++){
+            check += legacyStatistics(repository);
+        }
+        long legacyTime = (System.nanoTime() - start) / 5;
+
+        start = System.nanoTime();
+        for(int i = 0; i < 5; i++){
+            statistics = engine.compute(repository.viewAll());
+        }
+        long fusedTime = (System.nanoTime() - start) / 5;
+
+        System.out.printf("%-28s | %10s%n", "Method", "Time (ms)");
+        System.out.println("───────────────────────────────────────────");
+        System.out.printf("%-28s | %10.1f%n", "7 scans (before)", legacyTime / 1e6);
+        System.out.printf("%-28s | %10.1f%n", "StatisticsEngine (1 pass)", fusedTime / 1e6);
+        System.out.println("───────────────────────────────────────────");
+        System.out.printf("Speedup: %.1fx (total %.2f PLN, checksum %.0f)%n",
+                (double) legacyTime / fusedTime, statistics.getTotal(), check);
+    }
+
+    /**
+     * What displayAdvancedStatistics computed before StatisticsEngine:
+     * findAll, total, per-category totals and counts, per-priority counts,
+     * unique dates and per-date totals, each with its own scan.
+     */
+    private static double legacyStatistics(ExpenseRepository repository){
+        List<Expense> all = repository.findAll();
+        double result = all.size();
+
+        double total = 0;
+        for(Expense expense : repository.findAll()){
+            total += expense.getAmount();
+        }
+        result += total;
+
+        for(Category category : Category.values()){
+            double categoryTotal = 0;
+            int count = 0;
+            for(Expense expense : repository.findAll()){
+                if(expense.getCategory() == category){
+                    categoryTotal += expense.getAmount();
+                    count++;
+                }
+            }
+            result += categoryTotal + count;
+        }
+
+        for(Priority priority : Priority.values()){
+            int count = 0;
+            for(Expense expense : repository.findAll()){
+                if(expense.getPriority() == priority){
+                    count++;
+                }
+            }
+            result += count;
+        }
+
+        Set<String> dates = new HashSet<>();
+        for(Expense expense : repository.findAll()){
+            dates.add(expense.getDate());
+        }
+        result += dates.size();
+
+        Map<String, Double> dateTotals = new HashMap<>();
+        for(Expense expense : repository.findAll()){
+            dateTotals.merge(expense.getDate(), expense.getAmount(), Double::sum);
+        }
+        return result + dateTotals.size();
+    }
+
+    /**
+     * Writes a CSV file in the saveToFile layout with unique rows.
+     *
+     * @param rows number of expense rows
+     * @return the temporary file (caller deletes it)
+     */
+    static File writeSampleCsv(int rows) throws IOException {
+        File file = File.createTempFile("expenses-bench", ".csv");
+        Category[] categories = Category.values();
+        Priority[] priorities = Priority.values();
+
+        try(BufferedWriter writer = new BufferedWriter(new FileWriter(file))){
+            writer.write("date,amount,description,category,priority");
+            writer.newLine();
+
+            for(int i = 0; i < rows; i++){
+                String date = String.format("20%02d-%02d-%02d", 20 + (i / 336) % 6, 1 + (i / 28) % 12, 1 + i % 28);
+                writer.write(date + "," + (1 + i % 9000) + "." + (i % 100) + ",Expense " + i + ","
+                        + categories[i % categories.length].name() + ","
+                        + priorities[i % priorities.length].name());
+                writer.newLine();
+            }
+        }
+
+        return file;
+    }
+
+    /**
+     * Runs an action with System.out silenced, so progress messages
+     * printed by the service layer don't distort the timings.
+     */
+    static <T> T quietly(IOAction<T> action) throws IOException {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try{
+            return action.run();
+        }finally {
+            System.setOut(original);
+        }
+    }
+
+    @FunctionalInterface
+    interface IOAction<T> {
+        T run() throws IOException;
+    }
+}
@@ -2,13 +2,20 @@ import exception.AmountTooLargeException;
 import exception.ExpenseNotFoundException;
 import exception.InvalidExpenseDataException;
 import model.*;
+import repository.ColumnarExpenseRepository;
+import repository.ConcurrentExpenseRepository;
 import repository.ExpenseRepository;
+import repository.HeavyHitters;
 import repository.InMemoryExpenseRepository;
 import repository.MockExpenseRepository;
+import repository.MonthPartitionedExpenseRepository;
+import repository.OffHeapExpenseRepository;
+import repository.WalExpenseRepository;
 import service.BudgetManager;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -28,25 +35,38 @@ public class Main {
     // OLD: private static BudgetManager manager = new BudgetManager();
 
     //NEW: Create repository, then inject into manager
-    private  static ExpenseRepository repository = new InMemoryExpenseRepository();
-    private  static BudgetManager manager = new BudgetManager(repository);
+    private  static volatile ExpenseRepository repository = new InMemoryExpenseRepository();
+    private  static volatile BudgetManager manager = new BudgetManager(repository);
 
-    public static void main(String[] args){
+    /**
+     * Default data file; saves to it only append changes to its journal.
+     */
+    private static final String DATA_FILE = "expenses.csv";
+    private static final String WAL_DIRECTORY = "expenses-wal";
 
+    public static void main(String[] args){
+        // Opt-in: show the menu at once and load the rows in the background
+        boolean lazyLoad = Arrays.asList(args).contains("--lazy-load");
+        manager.useJournal(DATA_FILE);
 
         System.out.println("Java Budget Tracker CLI Interactive");
 
         // Auto-load check
-        File savedFile = new File("expenses.csv");
+        File savedFile = new File(DATA_FILE);
         if (savedFile.exists()) {
             System.out.print("Found saved expenses. Load them? (yes/no): ");
             String answer = scanner.nextLine();
 
             if (answer.equalsIgnoreCase("yes")) {
-                try {
-                    manager.loadFromFile("expenses.csv");
-                } catch (IOException e) {
-                    System.out.println("❌ Error loading: " + e.getMessage());
+                if (lazyLoad) {
+                    //Menu shows at once; rows are loaded on a virtual thread
+                    manager.loadInBackground(DATA_FILE);
+                } else {
+                    try {
+                        manager.loadFromFile(DATA_FILE);
+                    } catch (IOException e) {
+                        System.out.println("❌ Error loading: " + e.getMessage());
+                    }
                 }
             }
         }
@@ -159,12 +179,19 @@ public class Main {
                    break;
 
                case 22:
+                   showTopDescriptions();
+                   break;
+
+               case 23:
                    exitWithSave();
+                   if(repository instanceof WalExpenseRepository wal){
+                       wal.close();
+                   }
                    isRunning = false;
                    break;
 
                default:
-                   System.out.println("Invalid choice! Please enter 1-22.");
+                   System.out.println("Invalid choice! Please enter 1-23.");
                    break;
            }
 
@@ -176,14 +203,23 @@ public class Main {
      * Show user menu
      */
     private static void displayMenu(){
+        //Results of the background load, shown between menus instead of over the prompt
+        for(String message : manager.takeLoadMessages()){
+            System.out.println(message);
+        }
+
         System.out.println("MAIN MENU");
 
         //Show current budget status
-        int count = manager.getExpenseCount();
-        double total = manager.calculateTotal();
-        System.out.println("📊 Current: " + count + " expenses | " + String.format("%.2f PLN", total));
+        if(manager.isLoading() && !manager.hasLoadingSummary()){
+            System.out.println("📊 Current: loading expenses...");
+        }else {
+            int count = manager.getExpenseCount();
+            double total = manager.calculateTotal();
+            System.out.println("📊 Current: " + count + " expenses | " + String.format("%.2f PLN", total));
+        }
 
-        System.out.println("Enter choice (1-22): ");
+        System.out.println("Enter choice (1-23): ");
         System.out.println("1. 📝 Add Expense");
         System.out.println("2. 📋 Display All Expenses");
         System.out.println("3. 📊 Show Statistics");
@@ -205,7 +241,8 @@ public class Main {
         System.out.println("19. 📋 Test exception handling");
         System.out.println("20. \uD83D\uDCBE Save to File");
         System.out.println("21. \uD83D\uDCC1 Load expenses from file");
-        System.out.println("22. 🚪 Exit");
+        System.out.println("22. 🏆 Top descriptions (by spend and frequency)");
+        System.out.println("23. 🚪 Exit");
 
     }
 
@@ -226,6 +263,8 @@ public class Main {
                     System.out.println("Date cannot be empty! Try again.");
                 }else if(!date.matches("\\d{4}-\\d{2}-\\d{2}")) {
                     System.out.println("❌ Invalid format! Use YYYY-MM-DD");
+                }else if(!Dates.isValid(date)) {
+                    System.out.println("❌ No such date! Try again.");
                 }else {
                     break;
                 }
@@ -351,7 +390,7 @@ public class Main {
     }
 
     /**
-     * Removes an expenses by index.
+     * Removes an expense by its ID.
      */
     private static void removeExpense(){
         if(manager.getExpenseCount() == 0){
@@ -363,9 +402,9 @@ public class Main {
         manager.displayAllExpenses();
 
         try{
-        int number = readInt("\nEnter expense number to remove (1-" + manager.getExpenseCount() + "): ");
+        int id = readInt("\nEnter expense ID to remove (number after #): ");
 
-            manager.removeExpense(number - 1);
+            manager.removeExpense(id);
         } catch (Exception e){
             System.out.println("❌ Error removing expense: " + e.getMessage());
         }
@@ -564,22 +603,55 @@ public class Main {
       System.out.println("\n=== Switch Repository ===");
       System.out.println("1. In-Memory Repository");
       System.out.println("2. Mock Repository (fake data)");
-      System.out.print("Choose (1-2): ");
+      System.out.println("3. Columnar Repository (compact, primitive columns)");
+      System.out.println("4. Off-Heap Repository (direct memory)");
+      System.out.println("5. Concurrent Repository (thread-safe)");
+      System.out.println("6. Month-Partitioned Repository (fast month/date-range queries)");
+      System.out.println("7. Durable Repository (write-ahead log in " + WAL_DIRECTORY + "/)");
+      System.out.print("Choose (1-7): ");
 
       int choice = scanner.nextInt();
       scanner.nextLine();
 
+      ExpenseRepository previous = repository;
+
+      //The old repository must not be closed while a background load still fills it
+      manager.awaitLoad();
+
       if(choice == 1){
           repository = new InMemoryExpenseRepository();
       }else if(choice == 2){
           repository = new MockExpenseRepository();
+      }else if(choice == 3){
+          repository = new ColumnarExpenseRepository();
+      }else if(choice == 4){
+          repository = new OffHeapExpenseRepository();
+      }else if(choice == 5){
+          repository = new ConcurrentExpenseRepository();
+      }else if(choice == 6){
+          repository = new MonthPartitionedExpenseRepository();
+      }else if(choice == 7){
+          if(previous instanceof WalExpenseRepository wal){
+              wal.close();
+          }
+          WalExpenseRepository wal = new WalExpenseRepository(Path.of(WAL_DIRECTORY));
+          System.out.println("✓ Recovered " + wal.getRecoveredRows() + " rows from " + WAL_DIRECTORY);
+          repository = wal;
       }else {
           System.out.println("Invalid choice!");
           return;
       }
 
+      //Free off-heap memory held by the old repository
+      if(previous instanceof OffHeapExpenseRepository offHeap){
+          offHeap.close();
+      }else if(previous instanceof WalExpenseRepository wal){
+          wal.close();
+      }
+
       //Create NEW manager with new repository
       manager = new BudgetManager(repository);
+      manager.useJournal(DATA_FILE);
       System.out.println("✅ Repository switched!");
   }
 
@@ -606,20 +678,20 @@ public class Main {
       System.out.println("─────────────────────────────────────");
 
       //Calculate totals
-      double totalExpenses = 0;
-      double totalIncome = 0;
+      long totalExpenses = 0;
+      long totalIncome = 0;
 
       for(Transaction t : transactions){
           if(t.getType().equals("EXPENSE")){
-              totalExpenses += t.getAmount();
+              totalExpenses += t.getAmountMinor();
           }else if(t.getType().equals("INCOME")){
-              totalIncome += t.getAmount();
+              totalIncome += t.getAmountMinor();
           }
       }
 
-      System.out.printf("Total Expenses: %.2f PLN%n", totalExpenses);
-      System.out.printf("Total Income: %.2f PLN%n", totalIncome);
-      System.out.printf("Net Balance: %.2f PLN%n", totalIncome - totalExpenses);
+      System.out.println("Total Expenses: " + Money.format(totalExpenses) + " PLN");
+      System.out.println("Total Income: " + Money.format(totalIncome) + " PLN");
+      System.out.println("Net Balance: " + Money.format(totalIncome - totalExpenses) + " PLN");
 
       System.out.println("\n✅ Polymorphism test complete!");
   }
@@ -707,6 +779,18 @@ public class Main {
 
   }
 
+  /**
+   * Asks how many entries to show, then lists the most costly and most frequent descriptions.
+   */
+  private static void showTopDescriptions(){
+      int k = readInt("How many descriptions (1-" + HeavyHitters.CAPACITY + ", e.g. 20): ");
+      if(k < 1 || k > HeavyHitters.CAPACITY){
+          System.out.println("❌ Please enter a number between 1 and " + HeavyHitters.CAPACITY + ".");
+          return;
+      }
+      manager.displayTopDescriptions(k);
+  }
+
     /**
      * Safely reads integer from user with exception handling.
      */
@@ -759,10 +843,10 @@ public class Main {
           System.out.println("✅ Caught: " + e.getMessage());
       }
 
-      // Test 2: Invalid index
-      System.out.println("Test 2: Finding expense at invalid index");
+      // Test 2: Unknown ID
+      System.out.println("Test 2: Finding expense with unknown ID");
       try {
-          manager.getExpenseByIndex(999);
+          manager.getExpenseById(999_999);
           System.out.println("❌ Should have thrown exception!");
       } catch (ExpenseNotFoundException e) {
           System.out.println("✅ Caught: " + e.getMessage());
@@ -770,10 +854,10 @@ public class Main {
 
       System.out.println();
 
-      // Test 3: Negative index
-      System.out.println("Test 3: Negative index");
+      // Test 3: Negative ID
+      System.out.println("Test 3: Negative ID");
       try {
-          manager.getExpenseByIndex(-5);
+          manager.getExpenseById(-5);
           System.out.println("❌ Should have thrown exception!");
       } catch (InvalidExpenseDataException e) {
           System.out.println("✅ Caught: " + e.getMessage());
@@ -806,7 +890,7 @@ public class Main {
      * Saves expenses to CSV file.
      */
     private static void saveExpensesToFile(){
-        System.out.println("Enter filename to save (e.g., expenses.csv): ");
+        System.out.println("Enter filename to save (e.g., expenses.csv, expenses.csv.gz to compress, expenses.bin for binary): ");
         String fileName = scanner.nextLine();
 
         try{
@@ -823,8 +907,15 @@ public class Main {
         System.out.print("Enter filename to load (e.g., expenses.csv): ");
         String filename = scanner.nextLine();
 
+        System.out.print("Parse in parallel? (yes/no): ");
+        boolean parallel = scanner.nextLine().equalsIgnoreCase("yes");
+
         try{
-            manager.loadFromFile(filename);
+            if(parallel){
+                manager.loadFromFileParallel(filename);
+            }else {
+                manager.loadFromFile(filename);
+            }
         } catch (IOException e) {
             System.out.println("❌ Error loading file: " + e.getMessage());
         }
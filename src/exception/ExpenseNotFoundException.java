@@ -11,7 +11,7 @@ package exception;
 
 public class ExpenseNotFoundException extends RuntimeException {
 
-    private int requestedIndex;
+    private long requestedId;
 
     /**
      * Creates exception with message.
@@ -22,11 +22,11 @@ public class ExpenseNotFoundException extends RuntimeException {
     }
 
     /**
-     * Creates exception with message and requested index.
+     * Creates exception with message and requested ID.
      */
-    public ExpenseNotFoundException(String message, int requestedIndex){
+    public ExpenseNotFoundException(String message, long requestedId){
         super(message);
-        this.requestedIndex = requestedIndex;
+        this.requestedId = requestedId;
     }
 
     /**
@@ -36,8 +36,8 @@ public class ExpenseNotFoundException extends RuntimeException {
         super(message, cause);
     }
 
-    public int getRequestedIndex(){
-        return requestedIndex;
+    public long getRequestedId(){
+        return requestedId;
     }
 
 }
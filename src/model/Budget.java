@@ -15,17 +15,37 @@ public class Budget extends Transaction{
      */
     public Budget(String date, double amount, String description, String period, Category category) {
         super(date, amount, description);
+        this.period = validPeriod(period);
+        this.category = validCategory(category);
+    }
+
+    private Budget(String date, long amountMinor, String description, String period, Category category) {
+        super(date, amountMinor, description);
+        this.period = validPeriod(period);
+        this.category = validCategory(category);
+    }
+
+    /**
+     * Creates a budget with the amount given in grosze.
+     *
+     * @param amountMinor budget amount in grosze (1250 = 12.50 PLN)
+     */
+    public static Budget ofMinorUnits(String date, long amountMinor, String description, String period, Category category){
+        return new Budget(date, amountMinor, description, period, category);
+    }
 
+    private static String validPeriod(String period){
         if(period == null || period.trim().isEmpty()){
             throw new IllegalArgumentException("Period cannot be empty");
         }
+        return period;
+    }
 
+    private static Category validCategory(Category category){
         if(category == null){
             throw new IllegalArgumentException("Category cannot be null");
         }
-
-        this.period = period;
-        this.category = category;
+        return category;
     }
 
     public String getPeriod() {
@@ -43,10 +63,10 @@ public class Budget extends Transaction{
 
     @Override
     public void displayInfo() {
-        System.out.printf("[%s] %s | %.2f PLN | Period: %s | %s%n",
+        System.out.printf("[%s] %s | %s PLN | Period: %s | %s%n",
                 getType(),
                 getDate(),
-                getAmount(),
+                Money.format(getAmountMinor()),
                 period,
                 category.getLabel());
 
@@ -0,0 +1,329 @@
+package model;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Date helpers for the epoch-day representation used by Transaction.
+ *
+ * A date is an int number of days since 1970-01-01, so grouping, sorting
+ * and range checks are integer compares. "YYYY-MM-DD" text is parsed and
+ * formatted with plain arithmetic (no LocalDate, no DateTimeFormatter);
+ * other ISO forms, like years above 9999, go through LocalDate.
+ *
+ * Months are bucketed as a month index: year * 12 + (month - 1), so
+ * consecutive months are consecutive ints.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public final class Dates {
+
+    /**
+     * Days from 0000-03-01 to 1970-01-01 in the proleptic Gregorian calendar.
+     */
+    private static final long DAYS_0000_TO_1970 = 719468;
+    private static final int DAYS_PER_ERA = 146097;
+
+    private Dates(){
+    }
+
+    // ---- parsing ----
+
+    /**
+     * Parses a YYYY-MM-DD date to an epoch-day.
+     *
+     * @throws IllegalArgumentException if the text is not a valid date
+     */
+    public static int parse(String date){
+        if(date == null){
+            throw new IllegalArgumentException("Date cannot be empty");
+        }
+
+        int key = packed(date);
+        if(key >= 0){
+            return fromPacked(key, date);
+        }
+        return parseSlow(date);
+    }
+
+    /**
+     * Parses a YYYY-MM-DD date in chars[start, end) to an epoch-day.
+     *
+     * @throws IllegalArgumentException if the text is not a valid date
+     */
+    public static int parse(char[] chars, int start, int end){
+        int key = packed(chars, start, end);
+        if(key >= 0){
+            return fromPacked(key, chars, start, end);
+        }
+        return parseSlow(new String(chars, start, end - start));
+    }
+
+    public static boolean isValid(String date){
+        try{
+            parse(date);
+            return true;
+        }catch (IllegalArgumentException e){
+            return false;
+        }
+    }
+
+    /**
+     * Parses a YYYY-MM month to its month index.
+     *
+     * @throws IllegalArgumentException if the text is not a valid month
+     */
+    public static int parseMonth(String month){
+        if(month != null && month.length() == 7 && month.charAt(4) == '-'){
+            int year = digits(month, 0, 4);
+            int monthOfYear = digits(month, 5, 7);
+            if(year >= 0 && monthOfYear >= 1 && monthOfYear <= 12){
+                return year * 12 + monthOfYear - 1;
+            }
+        }
+        throw new IllegalArgumentException("Invalid month: " + month + " (expected YYYY-MM)");
+    }
+
+    // ---- conversion ----
+
+    /**
+     * Epoch-day of a calendar date; the date must be valid.
+     */
+    public static int toEpochDay(int year, int month, int day){
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return Math.toIntExact(era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970);
+    }
+
+    /**
+     * Calendar date of an epoch-day packed as year * 10000 + month * 100 + day
+     * (2025-01-31 -> 20250131).
+     */
+    public static int yearMonthDay(int epochDay){
+        long z = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(z, DAYS_PER_ERA);
+        long dayOfEra = z - era * DAYS_PER_ERA;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return year * 10000 + month * 100 + day;
+    }
+
+    public static int year(int epochDay){
+        return Math.floorDiv(yearMonthDay(epochDay), 10000);
+    }
+
+    /**
+     * Month index (year * 12 + month - 1) of an epoch-day.
+     */
+    public static int monthIndex(int epochDay){
+        int packed = yearMonthDay(epochDay);
+        int year = Math.floorDiv(packed, 10000);
+        return year * 12 + (packed - year * 10000) / 100 - 1;
+    }
+
+    /**
+     * Epoch-day of the first day of a month index.
+     */
+    public static int firstDayOfMonth(int monthIndex){
+        return toEpochDay(Math.floorDiv(monthIndex, 12), Math.floorMod(monthIndex, 12) + 1, 1);
+    }
+
+    // ---- formatting ----
+
+    /**
+     * Formats an epoch-day as YYYY-MM-DD (same text as LocalDate.toString).
+     */
+    public static String format(int epochDay){
+        int packed = yearMonthDay(epochDay);
+        if(packed < 0 || packed > 99991231){
+            return LocalDate.ofEpochDay(epochDay).toString();
+        }
+
+        char[] text = new char[10];
+        writeDigits(text, 0, packed / 10000, 4);
+        text[4] = '-';
+        writeDigits(text, 5, packed / 100 % 100, 2);
+        text[7] = '-';
+        writeDigits(text, 8, packed % 100, 2);
+        return new String(text);
+    }
+
+    /**
+     * Formats a month index as YYYY-MM.
+     */
+    public static String formatMonth(int monthIndex){
+        return format(firstDayOfMonth(monthIndex)).substring(0, 7);
+    }
+
+    private static void writeDigits(char[] text, int start, int value, int width){
+        for(int i = start + width - 1; i >= start; i--){
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    // ---- internals ----
+
+    /**
+     * YYYY-MM-DD packed as yyyymmdd, or -1 if the shape is wrong.
+     * Month and day ranges are not checked yet.
+     */
+    private static int packed(String text){
+        if(text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-'){
+            return -1;
+        }
+
+        int packed = 0;
+        for(int i = 0; i < 10; i++){
+            if(i == 4 || i == 7){
+                continue;
+            }
+            char c = text.charAt(i);
+            if(c < '0' || c > '9'){
+                return -1;
+            }
+            packed = packed * 10 + (c - '0');
+        }
+        return packed;
+    }
+
+    private static int packed(char[] chars, int start, int end){
+        if(end - start != 10 || chars[start + 4] != '-' || chars[start + 7] != '-'){
+            return -1;
+        }
+
+        int packed = 0;
+        for(int i = start; i < end; i++){
+            if(i == start + 4 || i == start + 7){
+                continue;
+            }
+            char c = chars[i];
+            if(c < '0' || c > '9'){
+                return -1;
+            }
+            packed = packed * 10 + (c - '0');
+        }
+        return packed;
+    }
+
+    private static int fromPacked(int packed, String text){
+        int epochDay = fromPackedOrInvalid(packed);
+        if(epochDay == Integer.MIN_VALUE){
+            throw invalid(text);
+        }
+        return epochDay;
+    }
+
+    private static int fromPacked(int packed, char[] chars, int start, int end){
+        int epochDay = fromPackedOrInvalid(packed);
+        if(epochDay == Integer.MIN_VALUE){
+            throw invalid(new String(chars, start, end - start));
+        }
+        return epochDay;
+    }
+
+    /**
+     * Epoch-day of a packed yyyymmdd, or Integer.MIN_VALUE if month or day is out of range.
+     */
+    private static int fromPackedOrInvalid(int packed){
+        int year = packed / 10000;
+        int month = packed / 100 % 100;
+        int day = packed % 100;
+
+        if(month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)){
+            return Integer.MIN_VALUE;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    private static int lengthOfMonth(int year, int month){
+        switch (month){
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year){
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int parseSlow(String date){
+        try{
+            return Math.toIntExact(LocalDate.parse(date).toEpochDay());
+        }catch (DateTimeException | ArithmeticException e){
+            throw invalid(date);
+        }
+    }
+
+    private static IllegalArgumentException invalid(String date){
+        return new IllegalArgumentException("Invalid date: " + date + " (expected YYYY-MM-DD)");
+    }
+
+    private static int digits(String text, int start, int end){
+        int value = 0;
+        for(int i = start; i < end; i++){
+            char c = text.charAt(i);
+            if(c < '0' || c > '9'){
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Remembers epoch-days of recently parsed YYYY-MM-DD texts.
+     *
+     * Files usually hold many rows per date, so a loader sees the same few
+     * thousand dates over and over; a hit skips month/day validation and the
+     * calendar arithmetic. Direct-mapped: a colliding date simply replaces
+     * the older entry. Not thread-safe - use one cache per reader.
+     */
+    public static final class ParseCache {
+
+        private static final int SIZE_BITS = 12;
+
+        private final int[] keys = new int[1 << SIZE_BITS];
+        private final int[] epochDays = new int[1 << SIZE_BITS];
+
+        public ParseCache(){
+            Arrays.fill(keys, -1);
+        }
+
+        /**
+         * Same as Dates.parse(chars, start, end).
+         */
+        public int parse(char[] chars, int start, int end){
+            int key = packed(chars, start, end);
+            if(key < 0){
+                return parseSlow(new String(chars, start, end - start));
+            }
+
+            int slot = (key * 0x9E3779B1) >>> (32 - SIZE_BITS);
+            if(keys[slot] == key){
+                return epochDays[slot];
+            }
+
+            int epochDay = fromPacked(key, chars, start, end);
+            keys[slot] = key;
+            epochDays[slot] = epochDay;
+            return epochDay;
+        }
+    }
+}
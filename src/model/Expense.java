@@ -9,13 +9,25 @@ import exception.AmountTooLargeException;
  * Demonstates INHERITANCE - Expense IS-A Transaction.
  *
  * @author Konrad Wojdyna
- * @version 0.2.0
+ * @version 0.4.0
  */
 
 public class Expense extends Transaction {
 
+    /**
+     * ID value of an expense that was not saved to a repository yet.
+     */
+    public static final long NO_ID = 0;
+
+    /**
+     * Largest allowed amount: 10000 PLN, and the same in grosze.
+     */
+    private static final double MAX_AMOUNT = 10000;
+    private static final long MAX_AMOUNT_MINOR = 10000 * Money.MINOR_PER_UNIT;
+
     private final Category category;
     private final Priority priority;
+    private long id = NO_ID;
 
     /**
      * Creates a new expense with full details including priority.
@@ -28,7 +40,25 @@ public class Expense extends Transaction {
      * @throws IllegalArgumentException if validation fails
      */
     public Expense(String date, double amount, String description, Category category, Priority priority){
-        super(date, amount, description);
+        this(parseDate(date), toMinor(amount), description, category, priority);
+    }
+
+    /**
+     * Checks the amount as given before rounding it to grosze, so -0.004
+     * and 10000.004 are rejected rather than rounded into range.
+     */
+    private static long toMinor(double amount){
+        if(amount < 0){
+            throw new IllegalArgumentException("Amount cannot be negative");
+        }
+        if(amount > MAX_AMOUNT){
+            throw new AmountTooLargeException("Amount exceed", amount, MAX_AMOUNT);
+        }
+        return Money.toMinor(amount);
+    }
+
+    private Expense(int epochDay, long amountMinor, String description, Category category, Priority priority){
+        super(epochDay, amountMinor, description);
 
         if(category == null){
             throw new IllegalArgumentException("Category cannot be null");
@@ -38,8 +68,8 @@ public class Expense extends Transaction {
             throw new IllegalArgumentException("Priority cannot be null");
         }
 
-        if(amount > 10000){
-            throw new AmountTooLargeException("Amount exceed", amount, 10000);
+        if(amountMinor > MAX_AMOUNT_MINOR){
+            throw new AmountTooLargeException("Amount exceed", Money.toDouble(amountMinor), MAX_AMOUNT);
         }
 
         this.category = category;
@@ -71,6 +101,31 @@ public class Expense extends Transaction {
         this(date, amount, "", category,  Priority.MEDIUM);
     }
 
+    /**
+     * Creates an expense with the amount given in grosze, e.g. when loading
+     * from a file - no conversion through double.
+     *
+     * @param amountMinor expense amount in grosze (1250 = 12.50 PLN)
+     * @throws IllegalArgumentException if validation fails
+     */
+    public static Expense ofMinorUnits(String date, long amountMinor, String description,
+                                       Category category, Priority priority){
+        return new Expense(parseDate(date), amountMinor, description, category, priority);
+    }
+
+    /**
+     * Creates an expense from an already parsed date and amount in grosze,
+     * e.g. when loading from a binary file or a column store.
+     *
+     * @param epochDay expense date as days since 1970-01-01
+     * @param amountMinor expense amount in grosze (1250 = 12.50 PLN)
+     * @throws IllegalArgumentException if validation fails
+     */
+    public static Expense ofEpochDay(int epochDay, long amountMinor, String description,
+                                     Category category, Priority priority){
+        return new Expense(epochDay, amountMinor, description, category, priority);
+    }
+
     public Category getCategory() {
         return category;
     }
@@ -84,6 +139,39 @@ public class Expense extends Transaction {
         return priority;
     }
 
+    /**
+     * Returns stable ID assigned when the expense was saved.
+     *
+     * @return the ID, or NO_ID if not saved yet
+     */
+    public long getId() {
+        return id;
+    }
+
+    public boolean hasId() {
+        return id != NO_ID;
+    }
+
+    /**
+     * Assigns stable ID. Called by repositories at save time
+     * (or by loaders restoring IDs from a file). IDs never change once set.
+     *
+     * @param id positive ID
+     * @throws IllegalArgumentException if id is not positive
+     * @throws IllegalStateException if a different ID is already assigned
+     */
+    public void assignId(long id) {
+        if(id <= 0){
+            throw new IllegalArgumentException("ID must be positive: " + id);
+        }
+
+        if(this.id != NO_ID && this.id != id){
+            throw new IllegalStateException("Expense already has ID " + this.id);
+        }
+
+        this.id = id;
+    }
+
 //    /**
 //     * Update expense amount with validation
 //     *
@@ -105,10 +193,10 @@ public class Expense extends Transaction {
 
     @Override
     public void displayInfo(){
-        System.out.printf("[%s] %s | %.2f PLN | %s | [%s]%n",
+        System.out.printf("[%s] %s | %s PLN | %s | [%s]%n",
                 getType(),
                 getDate(),  // inherited from Transaction!
-                getAmount(),  // inherited!
+                Money.format(getAmountMinor()),  // inherited!
                 category.getLabel(),
                 priority);
 
@@ -123,6 +211,6 @@ public class Expense extends Transaction {
      * @return true or false
      */
     public boolean isExpensive() {
-        return getAmount() > 500;
+        return getAmountMinor() > 500 * Money.MINOR_PER_UNIT;
     }
 }
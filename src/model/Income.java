@@ -22,12 +22,28 @@ public class Income extends Transaction{
      */
     public Income(String date, double amount, String description, String source) {
         super(date, amount, description);
+        this.source = validSource(source);
+    }
+
+    private Income(String date, long amountMinor, String description, String source) {
+        super(date, amountMinor, description);
+        this.source = validSource(source);
+    }
+
+    /**
+     * Creates an income with the amount given in grosze.
+     *
+     * @param amountMinor income amount in grosze (1250 = 12.50 PLN)
+     */
+    public static Income ofMinorUnits(String date, long amountMinor, String description, String source){
+        return new Income(date, amountMinor, description, source);
+    }
 
+    private static String validSource(String source){
         if(source == null || source.trim().isEmpty()){
             throw new IllegalArgumentException("Source cannot be empty");
         }
-
-        this.source = source;
+        return source;
     }
 
     /**
@@ -50,10 +66,10 @@ public class Income extends Transaction{
     }
     @Override
     public void displayInfo() {
-        System.out.printf("[%s] %s | +%.2f PLN | Source: %s%n",
+        System.out.printf("[%s] %s | +%s PLN | Source: %s%n",
                 getType(),
                 getDate(),
-                getAmount(),
+                Money.format(getAmountMinor()),
                 source);
 
         if (!getDescription().isEmpty()) {
@@ -0,0 +1,157 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money helpers. Amounts are kept as a long number of
+ * grosze (1/100 PLN), so sums are exact integer additions.
+ *
+ * Parsing and formatting work digit by digit on the integer value, without
+ * going through double: "12.5", "12.50" and "12" all parse to 1250, and
+ * 1250 always formats as "12.50". Texts with more than two decimals or an
+ * exponent (written by older, double-based versions) are rounded half-up
+ * to the nearest grosz.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.1
+ */
+public final class Money {
+
+    public static final long MINOR_PER_UNIT = 100;
+
+    /**
+     * Longest digit run that cannot overflow a long.
+     */
+    private static final int MAX_FAST_DIGITS = 17;
+
+    private Money(){
+    }
+
+    /**
+     * Converts a PLN amount to grosze, rounding its decimal text half-up
+     * like parse does, so 0.285 typed in and "0.285" read from a file are
+     * both 29 grosze (amount * 100 would be 28.499... and round down).
+     *
+     * @throws IllegalArgumentException if the amount is NaN, infinite or too large
+     */
+    public static long toMinor(double amount){
+        if(!Double.isFinite(amount) || Math.abs(amount) >= Long.MAX_VALUE / MINOR_PER_UNIT){
+            throw new IllegalArgumentException("Amount must be a finite number: " + amount);
+        }
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Converts grosze to PLN; the result is the double nearest to the decimal value.
+     */
+    public static double toDouble(long minor){
+        return minor / (double) MINOR_PER_UNIT;
+    }
+
+    // ---- formatting ----
+
+    /**
+     * Formats grosze as PLN with exactly two decimals, e.g. 1250 -> "12.50".
+     */
+    public static String format(long minor){
+        char[] text = new char[21];
+        int position = text.length;
+
+        boolean negative = minor < 0;
+        // Work on the negative value, so Long.MIN_VALUE needs no special case
+        long value = negative ? minor : -minor;
+
+        text[--position] = (char) ('0' - (int) (value % 10));
+        value /= 10;
+        text[--position] = (char) ('0' - (int) (value % 10));
+        value /= 10;
+        text[--position] = '.';
+
+        do{
+            text[--position] = (char) ('0' - (int) (value % 10));
+            value /= 10;
+        }while (value != 0);
+
+        if(negative){
+            text[--position] = '-';
+        }
+
+        return new String(text, position, text.length - position);
+    }
+
+    // ---- parsing ----
+
+    /**
+     * Parses a PLN amount to grosze.
+     *
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static long parse(CharSequence text){
+        char[] chars = text.toString().toCharArray();
+        return parse(chars, 0, chars.length);
+    }
+
+    /**
+     * Parses a PLN amount in chars[start, end) to grosze.
+     * Plain decimals with up to two fraction digits are read as one integer;
+     * anything else goes through BigDecimal.
+     *
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static long parse(char[] chars, int start, int end){
+        int i = start;
+        boolean negative = false;
+
+        if(i < end && (chars[i] == '-' || chars[i] == '+')){
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+
+        for(; i < end; i++){
+            char c = chars[i];
+            if(c >= '0' && c <= '9'){
+                if(fractionDigits >= 0){
+                    if(fractionDigits == 2){
+                        return parseSlow(chars, start, end);
+                    }
+                    fractionDigits++;
+                }
+                value = value * 10 + (c - '0');
+                if(++digits > MAX_FAST_DIGITS){
+                    return parseSlow(chars, start, end);
+                }
+            }else if(c == '.' && fractionDigits < 0){
+                fractionDigits = 0;
+            }else {
+                return parseSlow(chars, start, end);
+            }
+        }
+
+        if(digits == 0){
+            throw new NumberFormatException("Not an amount: " + new String(chars, start, end - start));
+        }
+
+        // Scale to grosze: "12" -> 1200, "12.5" -> 1250, "12.50" -> 1250
+        for(int scale = Math.max(fractionDigits, 0); scale < 2; scale++){
+            value *= 10;
+        }
+
+        return negative ? -value : value;
+    }
+
+    private static long parseSlow(char[] chars, int start, int end){
+        try{
+            return new BigDecimal(chars, start, end - start)
+                    .setScale(2, RoundingMode.HALF_UP)
+                    .unscaledValue()
+                    .longValueExact();
+        }catch (ArithmeticException e){
+            throw new NumberFormatException("Amount out of range: " + new String(chars, start, end - start));
+        }
+    }
+}
@@ -9,13 +9,18 @@ package model;
  *
  * This demonstrates INHERITANCE AND POLYMORPHISM concepts.
  *
+ * Amounts are stored as a long number of grosze (see Money), so sums of
+ * transactions are exact. getAmount() still returns PLN as a double.
+ * Dates are stored as an int epoch-day (see Dates), validated on construction;
+ * getDate() formats it back to YYYY-MM-DD.
+ *
  * @author Konrad Wojdyna
- * @version 0.1.0
+ * @version 0.3.0
  */
 public abstract class Transaction {
 
-    private final String date;
-    private final double amount;
+    private final int epochDay;
+    private final long amountMinor;
     private final String description;
 
 
@@ -25,28 +30,96 @@ public abstract class Transaction {
      * @param date transaction date (YYYY-MM-DD)
      * @param amount transaction amount (must be positive)
      * @param description transaction description
-     * @throws IllegalArgumentException if amount is negative or date is empty
+     * @throws IllegalArgumentException if amount is negative or date is empty or invalid
      */
     public Transaction(String date, double amount, String description){
+        this(date, toMinor(amount), description);
+    }
+
+    /**
+     * Constructor taking the amount in grosze.
+     * Subclasses expose it through static factories (e.g. Expense.ofMinorUnits),
+     * since an int literal would silently pick this overload over the double one.
+     *
+     * @param date transaction date (YYYY-MM-DD)
+     * @param amountMinor transaction amount in grosze (must be positive)
+     * @param description transaction description
+     * @throws IllegalArgumentException if amount is negative or date is empty or invalid
+     */
+    protected Transaction(String date, long amountMinor, String description){
+        this(parseDate(date), amountMinor, description);
+    }
+
+    /**
+     * Constructor taking an already parsed date, e.g. from a binary file.
+     *
+     * @param epochDay transaction date as days since 1970-01-01
+     * @param amountMinor transaction amount in grosze (must be positive)
+     * @param description transaction description
+     * @throws IllegalArgumentException if amount is negative
+     */
+    protected Transaction(int epochDay, long amountMinor, String description){
+        if(amountMinor < 0){
+            throw new IllegalArgumentException("Amount cannot be negative");
+        }
+
+        this.epochDay = epochDay;
+        this.amountMinor = amountMinor;
+        this.description = description != null ? description : "";
+    }
+
+    /**
+     * Parses a YYYY-MM-DD date to an epoch-day.
+     *
+     * @throws IllegalArgumentException if the date is empty or invalid
+     */
+    protected static int parseDate(String date){
         if(date == null || date.trim().isEmpty()){
             throw new IllegalArgumentException("Date cannot be empty");
         }
+        return Dates.parse(date);
+    }
 
+    private static long toMinor(double amount){
         if(amount < 0){
             throw new IllegalArgumentException("Amount cannot be negative");
         }
-
-        this.date =date;
-        this.amount = amount;
-        this.description = description != null ? description : "";
+        return Money.toMinor(amount);
     }
 
+    /**
+     * @return date as YYYY-MM-DD (formatted on each call; prefer getEpochDay() in loops)
+     */
     public String getDate() {
-        return date;
+        return Dates.format(epochDay);
+    }
+
+    /**
+     * @return date as days since 1970-01-01
+     */
+    public int getEpochDay() {
+        return epochDay;
     }
 
+    /**
+     * @return month of the date as a month index (see Dates.monthIndex)
+     */
+    public int getMonthIndex() {
+        return Dates.monthIndex(epochDay);
+    }
+
+    /**
+     * @return amount in PLN
+     */
     public double getAmount() {
-        return amount;
+        return Money.toDouble(amountMinor);
+    }
+
+    /**
+     * @return amount in grosze (1/100 PLN), exact
+     */
+    public long getAmountMinor() {
+        return amountMinor;
     }
 
     public String getDescription() {
@@ -65,8 +138,8 @@ public abstract class Transaction {
      * Can be overridden by subclasses for custom formatting.
      */
     public void displayInfo() {
-        System.out.printf("[%s] %s | %.2f PLN | %s%n",
-                getType(), date, amount, description);
+        System.out.printf("[%s] %s | %s PLN | %s%n",
+                getType(), getDate(), Money.format(amountMinor), description);
     }
 
     /**
@@ -76,11 +149,28 @@ public abstract class Transaction {
      * @return true if transaction is from that month
      */
     public boolean isFromMonth(String month){
-        return date.startsWith(month);
+        int monthIndex;
+        try{
+            monthIndex = Dates.parseMonth(month);
+        }catch (IllegalArgumentException e){
+            // Not YYYY-MM (e.g. just a year) - keep the old prefix match
+            return month != null && getDate().startsWith(month);
+        }
+        return isFromMonth(monthIndex);
+    }
+
+    /**
+     * Checks if this transaction is from specified month.
+     *
+     * @param monthIndex month index (see Dates.parseMonth)
+     * @return true if transaction is from that month
+     */
+    public boolean isFromMonth(int monthIndex){
+        return getMonthIndex() == monthIndex;
     }
 
     @Override
     public String toString() {
-        return String.format("%s: %.2f PLN on %s", getType(), amount, date);
+        return getType() + ": " + Money.format(amountMinor) + " PLN on " + getDate();
     }
 }
@@ -0,0 +1,426 @@
+package persistence;
+
+import model.Category;
+import model.Expense;
+import model.Money;
+import model.Priority;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Versioned binary expense file, read through memory mapping.
+ *
+ * Layout (little-endian):
+ *   header   64 bytes   magic "EXPB", version, record size, record count,
+ *                       record section offset, heap offset, heap length
+ *   records  32 bytes   id (8, 0 = none), epoch-day (4), amount (8), category (1),
+ *            each       priority (1), padding (2), description offset (4),
+ *                       description length (4)
+ *   heap                UTF-8 descriptions; repeated descriptions are stored once
+ *
+ * Version 2 stores the amount as a long number of grosze; version 1 files
+ * (amount as a double in PLN) are still read and rounded to the nearest grosz.
+ *
+ * Opening maps the file and reads only the header, so even multi-million-row
+ * files open instantly; the OS pages records in as they are touched.
+ * Records are mapped in 1GB segments; the string heap is limited to 2GB.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.2.0
+ */
+public class BinaryExpenseFile implements Closeable {
+
+    public static final int MAGIC = 0x42505845; // "EXPB" read as little-endian int
+    public static final short VERSION = 2;
+    private static final int DOUBLE_AMOUNT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 32;
+    private static final int ROWS_PER_SEGMENT = (1 << 30) / RECORD_SIZE;
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_SHARED_DESCRIPTIONS = 1 << 20;
+
+    // Field offsets inside a record
+    private static final int ID = 0;
+    private static final int EPOCH_DAY = 8;
+    private static final int AMOUNT = 12;
+    private static final int CATEGORY = 20;
+    private static final int PRIORITY = 21;
+    private static final int DESCRIPTION_OFFSET = 24;
+    private static final int DESCRIPTION_LENGTH = 28;
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] recordSegments;
+    private final MappedByteBuffer heap;
+    private final int size;
+    private final int version;
+
+    private BinaryExpenseFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+
+        if(channel.size() < HEADER_SIZE){
+            throw new IOException("Not an expense binary file (too short)");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        header.flip();
+
+        if(header.getInt(0) != MAGIC){
+            throw new IOException("Not an expense binary file (bad magic)");
+        }
+
+        this.version = header.getShort(4);
+        if(version < 1 || version > VERSION){
+            throw new IOException("Unsupported expense file version: " + version);
+        }
+
+        int recordSize = header.getShort(6);
+        long count = header.getLong(8);
+        long recordsOffset = header.getLong(16);
+        long heapOffset = header.getLong(24);
+        long heapLength = header.getLong(32);
+
+        if(recordSize != RECORD_SIZE || count < 0 || count > Integer.MAX_VALUE
+                || recordsOffset + count * RECORD_SIZE > channel.size()
+                || heapLength > Integer.MAX_VALUE || heapOffset + heapLength > channel.size()){
+            throw new IOException("Corrupt expense file header");
+        }
+
+        this.size = (int) count;
+
+        int segments = (size + ROWS_PER_SEGMENT - 1) / ROWS_PER_SEGMENT;
+        this.recordSegments = new MappedByteBuffer[segments];
+        for(int i = 0; i < segments; i++){
+            long first = (long) i * ROWS_PER_SEGMENT;
+            long rows = Math.min(ROWS_PER_SEGMENT, size - first);
+            recordSegments[i] = map(recordsOffset + first * RECORD_SIZE, rows * RECORD_SIZE);
+        }
+
+        this.heap = map(heapOffset, heapLength);
+    }
+
+    private MappedByteBuffer map(long position, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Maps a binary expense file for reading.
+     *
+     * @param path file written by write()
+     * @return the opened file
+     * @throws IOException if the file is missing, not in this format or of a newer version
+     */
+    public static BinaryExpenseFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try{
+            return new BinaryExpenseFile(channel);
+        }catch (IOException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Whether the file starts with the binary format's magic number.
+     */
+    public static boolean isBinary(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(magic, 0);
+            return magic.position() == 4 && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    // ---- reading ----
+
+    public int size(){
+        return size;
+    }
+
+    public int getVersion(){
+        return version;
+    }
+
+    public long getId(int row){
+        return segment(row).getLong(offset(row) + ID);
+    }
+
+    public int getEpochDay(int row){
+        return segment(row).getInt(offset(row) + EPOCH_DAY);
+    }
+
+    public double getAmount(int row){
+        return Money.toDouble(getAmountMinor(row));
+    }
+
+    /**
+     * Amount in grosze.
+     */
+    public long getAmountMinor(int row){
+        if(version == DOUBLE_AMOUNT_VERSION){
+            return Money.toMinor(segment(row).getDouble(offset(row) + AMOUNT));
+        }
+        return segment(row).getLong(offset(row) + AMOUNT);
+    }
+
+    public Category getCategory(int row){
+        return CATEGORIES[segment(row).get(offset(row) + CATEGORY)];
+    }
+
+    public Priority getPriority(int row){
+        return PRIORITIES[segment(row).get(offset(row) + PRIORITY)];
+    }
+
+    public String getDescription(int row){
+        ByteBuffer records = segment(row);
+        int offset = offset(row);
+        byte[] bytes = new byte[records.getInt(offset + DESCRIPTION_LENGTH)];
+        heap.get(records.getInt(offset + DESCRIPTION_OFFSET), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds the Expense stored in a row.
+     */
+    public Expense get(int row){
+        Objects.checkIndex(row, size);
+
+        Expense expense = Expense.ofEpochDay(getEpochDay(row), getAmountMinor(row),
+                getDescription(row), getCategory(row), getPriority(row));
+        long id = getId(row);
+        if(id != 0){
+            expense.assignId(id);
+        }
+        return expense;
+    }
+
+    /**
+     * Read-only list view; each get() materializes one row.
+     */
+    public List<Expense> asList(){
+        return new RowsView();
+    }
+
+    /**
+     * Rows in file order as an ExpenseSource (line number = row number, from 1).
+     */
+    public ExpenseSource source(){
+        return new ExpenseSource() {
+            private int next;
+
+            @Override
+            public Expense next() {
+                return next < size ? get(next++) : null;
+            }
+
+            @Override
+            public int getLineNumber() {
+                return next;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Closes the channel. Mapped pages are released once the buffers are collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer segment(int row){
+        return recordSegments[row / ROWS_PER_SEGMENT];
+    }
+
+    private static int offset(int row){
+        return (row % ROWS_PER_SEGMENT) * RECORD_SIZE;
+    }
+
+    private class RowsView extends AbstractList<Expense> implements RandomAccess {
+
+        @Override
+        public Expense get(int index) {
+            return BinaryExpenseFile.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // ---- writing ----
+
+    /**
+     * Writes expenses in the binary format (replacing the file).
+     *
+     * @param path target file
+     * @param expenses expenses to write
+     * @throws IOException if writing fails or the string heap would pass 2GB
+     */
+    public static void write(Path path, List<Expense> expenses) throws IOException {
+        long heapOffset = HEADER_SIZE + (long) expenses.size() * RECORD_SIZE;
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+
+            ByteBuffer records = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer heapBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            long recordsPosition = HEADER_SIZE;
+            long heapPosition = heapOffset;
+            long heapLength = 0;
+
+            Map<String, Integer> shared = new HashMap<>();
+
+            for(Expense expense : expenses){
+                Integer descriptionOffset = shared.get(expense.getDescription());
+                byte[] description = expense.getDescription().getBytes(StandardCharsets.UTF_8);
+
+                if(descriptionOffset == null){
+                    if(heapLength + description.length > Integer.MAX_VALUE){
+                        throw new IOException("Description heap exceeds 2GB");
+                    }
+
+                    descriptionOffset = (int) heapLength;
+                    if(shared.size() < MAX_SHARED_DESCRIPTIONS){
+                        shared.put(expense.getDescription(), descriptionOffset);
+                    }
+
+                    heapPosition = put(channel, heapBuffer, heapPosition, description);
+                    heapLength += description.length;
+                }
+
+                if(records.remaining() < RECORD_SIZE){
+                    recordsPosition = drain(channel, records, recordsPosition);
+                }
+
+                records.putLong(expense.getId());
+                records.putInt(expense.getEpochDay());
+                records.putLong(expense.getAmountMinor());
+                records.put((byte) expense.getCategory().ordinal());
+                records.put((byte) expense.getPriority().ordinal());
+                records.putShort((short) 0);
+                records.putInt(descriptionOffset);
+                records.putInt(description.length);
+            }
+
+            drain(channel, records, recordsPosition);
+            drain(channel, heapBuffer, heapPosition);
+
+            // Header last: a file cut short by a crash fails the size checks on open
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putShort(VERSION);
+            header.putShort((short) RECORD_SIZE);
+            header.putLong(expenses.size());
+            header.putLong(HEADER_SIZE);
+            header.putLong(heapOffset);
+            header.putLong(heapLength);
+            header.position(HEADER_SIZE);
+            drain(channel, header, 0);
+        }
+    }
+
+    /**
+     * Appends bytes to a buffer that is written at 'position' when full.
+     *
+     * @return file position for the next flush
+     */
+    private static long put(FileChannel channel, ByteBuffer buffer, long position, byte[] bytes) throws IOException {
+        int written = 0;
+        while (written < bytes.length){
+            if(!buffer.hasRemaining()){
+                position = drain(channel, buffer, position);
+            }
+            int n = Math.min(buffer.remaining(), bytes.length - written);
+            buffer.put(bytes, written, n);
+            written += n;
+        }
+        return position;
+    }
+
+    /**
+     * Writes the buffer's contents at 'position' and clears it.
+     *
+     * @return position after the written bytes
+     */
+    private static long drain(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()){
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+
+    // ---- CSV conversion ----
+
+    /**
+     * Converts a CSV file (saveToFile layout, plain or gzip) to the binary format.
+     * Invalid rows are skipped.
+     *
+     * @return number of expenses written
+     */
+    public static int importCsv(File csvFile, Path binaryFile) throws IOException {
+        List<Expense> expenses = new ArrayList<>();
+
+        try(ExpenseCsvReader reader = ExpenseCsvReader.open(csvFile)){
+            while (true){
+                try{
+                    Expense expense = reader.next();
+                    if(expense == null){
+                        break;
+                    }
+                    expenses.add(expense);
+                }catch (RuntimeException e){
+                    System.out.println("⚠️  Skipping line " + reader.getLineNumber() + ": " + e.getMessage());
+                }
+            }
+        }
+
+        write(binaryFile, expenses);
+        return expenses.size();
+    }
+
+    /**
+     * Converts a binary expense file to CSV in the saveToFile layout.
+     *
+     * @return number of expenses written
+     */
+    public static int exportCsv(Path binaryFile, Path csvFile, boolean gzip) throws IOException {
+        try(BinaryExpenseFile file = open(binaryFile);
+            ExpenseCsvWriter writer = new ExpenseCsvWriter(csvFile, gzip)){
+
+            for(int row = 0; row < file.size(); row++){
+                writer.write(file.get(row));
+            }
+            return file.size();
+        }
+    }
+}
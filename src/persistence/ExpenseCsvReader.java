@@ -0,0 +1,491 @@
+package persistence;
+
+import exception.InvalidExpenseDataException;
+import model.Category;
+import model.Dates;
+import model.Expense;
+import model.Money;
+import model.Priority;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Single-pass CSV reader for the expense file layout written by BudgetManager.saveToFile.
+ *
+ * A small state machine walks a char buffer once per record:
+ * - quoted fields may contain commas, doubled quotes ("") and line breaks,
+ * - dates (to epoch-days), amounts (to grosze) and IDs are parsed straight
+ *   from the buffer, without a String; dates go through a small cache,
+ *   since files repeat the same dates over many rows,
+ * - category/priority names are matched against precomputed tables,
+ *   so bad values don't cost an exception from Enum.valueOf.
+ *
+ * Both layouts are accepted: with a leading id column (current) and without (older files).
+ * Journal files (see ExpenseJournal) put an op column before the id and
+ * are read entry by entry with nextEntry().
+ * A malformed row is reported as InvalidExpenseDataException after the whole
+ * row was consumed, so the caller can skip it and keep reading.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.4.0
+ */
+public class ExpenseCsvReader implements ExpenseSource {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int GZIP_MAGIC = 0x1F8B;
+
+    /**
+     * Journal entry ops (first column of a journal row).
+     */
+    public static final char ADDED = '+';
+    public static final char DELETED = '-';
+    private static final int MAX_FIELDS = 16;
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final char[][] CATEGORY_NAMES = namesOf(CATEGORIES);
+    private static final char[][] PRIORITY_NAMES = namesOf(PRIORITIES);
+
+    private final Reader in;
+    private final char[] input;
+    private int inputPos;
+    private int inputEnd;
+    private boolean endOfInput;
+
+    // Current record: field contents are copied (unescaped) into one buffer
+    private char[] record;
+    private int recordLength;
+    private final int[] fieldStart;
+    private final int[] fieldEnd;
+    private int fieldCount;
+
+    private final Dates.ParseCache dates = new Dates.ParseCache();
+
+    private int lineNumber;
+    private int recordLine;
+    private boolean recordTerminated;
+    private final boolean hasIds;
+    private final boolean hasOps;
+
+    // Last journal entry
+    private char op;
+    private Expense entryExpense;
+    private long entryDeletedId;
+
+    /**
+     * Opens reader and consumes the header row.
+     *
+     * @param in source of CSV text (caller picks charset)
+     * @throws IOException if reading fails
+     */
+    public ExpenseCsvReader(Reader in) throws IOException {
+        this.in = in;
+        this.input = new char[BUFFER_SIZE];
+        this.record = new char[256];
+        this.fieldStart = new int[MAX_FIELDS];
+        this.fieldEnd = new int[MAX_FIELDS];
+        this.lineNumber = 1;
+
+        boolean headerRead = readRecord();
+        this.hasOps = headerRead && fieldCount > 1 && fieldEquals(0, "op");
+        this.hasIds = hasOps || headerRead && fieldCount > 0 && fieldEquals(0, "id");
+    }
+
+    /**
+     * Opens reader over a headerless slice of a file, e.g. one chunk of a parallel load.
+     *
+     * @param in source of CSV text, starting at a record boundary
+     * @param hasIds whether rows carry a leading id column (taken from the file header)
+     * @param firstLine line number of the first line in the slice
+     */
+    public ExpenseCsvReader(Reader in, boolean hasIds, int firstLine) {
+        this.in = in;
+        this.input = new char[BUFFER_SIZE];
+        this.record = new char[256];
+        this.fieldStart = new int[MAX_FIELDS];
+        this.fieldEnd = new int[MAX_FIELDS];
+        this.lineNumber = firstLine;
+        this.hasIds = hasIds;
+        this.hasOps = false;
+    }
+
+    /**
+     * Opens a UTF-8 expense file; gzip-compressed files are detected
+     * by their magic bytes and decompressed on the fly.
+     *
+     * @param file file written by saveToFile (plain or gzip)
+     * @return reader positioned after the header
+     * @throws IOException if the file cannot be read
+     */
+    public static ExpenseCsvReader open(File file) throws IOException {
+        InputStream stream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+
+        try{
+            if(isGzip(stream)){
+                stream = new GZIPInputStream(stream, BUFFER_SIZE);
+            }
+            return new ExpenseCsvReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        }catch (IOException e){
+            stream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Whether the file starts with the gzip magic bytes.
+     */
+    public static boolean isGzip(File file) throws IOException {
+        try(InputStream stream = new BufferedInputStream(new FileInputStream(file))){
+            return isGzip(stream);
+        }
+    }
+
+    private static boolean isGzip(InputStream stream) throws IOException {
+        stream.mark(2);
+        int magic = stream.read() << 8 | stream.read();
+        stream.reset();
+        return magic == GZIP_MAGIC;
+    }
+
+    /**
+     * Whether rows carry a leading id column.
+     */
+    public boolean hasIds() {
+        return hasIds;
+    }
+
+    /**
+     * Line on which the most recently read row started (1 = header).
+     */
+    @Override
+    public int getLineNumber() {
+        return recordLine;
+    }
+
+    /**
+     * Whether the most recently read row was ended by a line break
+     * (rather than by end of input, possibly inside an open quote).
+     */
+    public boolean isRecordTerminated() {
+        return recordTerminated;
+    }
+
+    /**
+     * Reads and converts the next row.
+     *
+     * @return the expense, or null at end of file
+     * @throws InvalidExpenseDataException if the row is malformed (already skipped)
+     * @throws IllegalArgumentException if Expense validation rejects the values
+     * @throws IOException if reading fails
+     */
+    @Override
+    public Expense next() throws IOException {
+        if(hasOps){
+            throw new IllegalStateException("Journal files are read with nextEntry()");
+        }
+
+        if(!readRecord()){
+            return null;
+        }
+
+        return toExpense(hasIds ? 1 : 0);
+    }
+
+    /**
+     * Whether this is a journal file (leading op column).
+     */
+    public boolean isJournal() {
+        return hasOps;
+    }
+
+    /**
+     * Journal files only: reads the next entry. After it returns true,
+     * getOp() tells whether getEntryExpense() (ADDED) or getEntryDeletedId() (DELETED) is set.
+     *
+     * @return false at end of file
+     * @throws InvalidExpenseDataException if the entry is malformed (already skipped)
+     * @throws IllegalArgumentException if Expense validation rejects the values
+     * @throws IOException if reading fails
+     */
+    public boolean nextEntry() throws IOException {
+        if(!hasOps){
+            throw new IllegalStateException("Not a journal file");
+        }
+
+        entryExpense = null;
+        if(!readRecord()){
+            return false;
+        }
+
+        op = fieldCount > 0 && fieldEnd[0] - fieldStart[0] == 1 ? record[fieldStart[0]] : 0;
+
+        if(op == ADDED){
+            entryExpense = toExpense(2);
+        }else if(op == DELETED){
+            if(fieldCount != 2){
+                throw new InvalidExpenseDataException("Expected 2 fields but found " + fieldCount
+                        + " on line " + recordLine + ".", "fields", fieldCount);
+            }
+            entryDeletedId = parseId(1);
+        }else {
+            throw new InvalidExpenseDataException("Unknown journal op on line " + recordLine + ".",
+                    "op", fieldCount > 0 ? fieldString(0) : "");
+        }
+        return true;
+    }
+
+    public char getOp() {
+        return op;
+    }
+
+    public Expense getEntryExpense() {
+        return entryExpense;
+    }
+
+    public long getEntryDeletedId() {
+        return entryDeletedId;
+    }
+
+    /**
+     * Converts the current record; offset is the index of the date field,
+     * the id (if any) is the field just before it.
+     */
+    private Expense toExpense(int offset){
+        if(fieldCount != 5 + offset){
+            throw new InvalidExpenseDataException("Expected " + (5 + offset) + " fields but found " + fieldCount
+                    + " on line " + recordLine + ".", "fields", fieldCount);
+        }
+
+        int epochDay = parseDate(offset);
+        long amountMinor = parseAmount(offset + 1);
+        String description = fieldString(offset + 2);
+        Category category = CATEGORIES[lookup(CATEGORY_NAMES, offset + 3, "category")];
+        Priority priority = PRIORITIES[lookup(PRIORITY_NAMES, offset + 4, "priority")];
+
+        Expense expense = Expense.ofEpochDay(epochDay, amountMinor, description, category, priority);
+        if(hasIds){
+            expense.assignId(parseId(offset - 1));
+        }
+        return expense;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // ---- record scanning ----
+
+    /**
+     * Reads one record into the record buffer.
+     *
+     * @return false at end of input
+     */
+    private boolean readRecord() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+
+        // Skip blank lines between records
+        int c;
+        do{
+            c = read();
+            if(c == '\n'){
+                lineNumber++;
+            }
+        }while (c == '\n' || c == '\r');
+
+        if(c < 0){
+            return false;
+        }
+
+        recordLine = lineNumber;
+        recordTerminated = false;
+        startField();
+        boolean quoted = false;
+
+        while (c >= 0){
+            if(quoted){
+                if(c == '"'){
+                    int next = peek();
+                    if(next == '"'){
+                        read();
+                        append('"');
+                    }else {
+                        quoted = false;
+                    }
+                }else {
+                    if(c == '\n'){
+                        lineNumber++;
+                    }
+                    append((char) c);
+                }
+            }else if(c == ','){
+                endField();
+                startField();
+            }else if(c == '\n' || c == '\r'){
+                if(c == '\r' && peek() == '\n'){
+                    read();
+                }
+                lineNumber++;
+                recordTerminated = true;
+                break;
+            }else if(c == '"' && atFieldStart()){
+                quoted = true;
+            }else {
+                append((char) c);
+            }
+            c = read();
+        }
+
+        endField();
+        return true;
+    }
+
+    private void startField(){
+        if(fieldCount < MAX_FIELDS){
+            fieldStart[fieldCount] = recordLength;
+        }
+    }
+
+    private boolean atFieldStart(){
+        return fieldCount < MAX_FIELDS && recordLength == fieldStart[fieldCount];
+    }
+
+    private void endField(){
+        if(fieldCount < MAX_FIELDS){
+            fieldEnd[fieldCount] = recordLength;
+        }
+        fieldCount++;
+    }
+
+    private void append(char c){
+        if(recordLength == record.length){
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[recordLength++] = c;
+    }
+
+    private int read() throws IOException {
+        if(inputPos == inputEnd && !fill()){
+            return -1;
+        }
+        return input[inputPos++];
+    }
+
+    private int peek() throws IOException {
+        if(inputPos == inputEnd && !fill()){
+            return -1;
+        }
+        return input[inputPos];
+    }
+
+    private boolean fill() throws IOException {
+        if(endOfInput){
+            return false;
+        }
+
+        int n = in.read(input, 0, input.length);
+        if(n <= 0){
+            endOfInput = true;
+            return false;
+        }
+
+        inputPos = 0;
+        inputEnd = n;
+        return true;
+    }
+
+    // ---- field conversion ----
+
+    private String fieldString(int field){
+        return new String(record, fieldStart[field], fieldEnd[field] - fieldStart[field]);
+    }
+
+    private boolean fieldEquals(int field, String text){
+        int length = fieldEnd[field] - fieldStart[field];
+        if(length != text.length()){
+            return false;
+        }
+        for(int i = 0; i < length; i++){
+            if(record[fieldStart[field] + i] != text.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int lookup(char[][] names, int field, String fieldName){
+        int start = fieldStart[field];
+        int length = fieldEnd[field] - start;
+
+        for(int i = 0; i < names.length; i++){
+            if(names[i].length == length && Arrays.equals(names[i], 0, length, record, start, start + length)){
+                return i;
+            }
+        }
+
+        throw new InvalidExpenseDataException("Unknown " + fieldName + " on line " + recordLine + ".",
+                fieldName, fieldString(field));
+    }
+
+    /**
+     * Parses the date in place to an epoch-day, through the per-reader cache.
+     */
+    private int parseDate(int field){
+        try{
+            return dates.parse(record, fieldStart[field], fieldEnd[field]);
+        }catch (IllegalArgumentException e){
+            throw new InvalidExpenseDataException("Invalid date on line " + recordLine + ".",
+                    "date", fieldString(field));
+        }
+    }
+
+    /**
+     * Parses the amount in place to grosze (see Money.parse). Amounts written
+     * by older versions as arbitrary doubles are rounded to the nearest grosz.
+     */
+    private long parseAmount(int field){
+        try{
+            return Money.parse(record, fieldStart[field], fieldEnd[field]);
+        }catch (NumberFormatException e){
+            throw new InvalidExpenseDataException("Invalid amount on line " + recordLine + ".",
+                    "amount", fieldString(field));
+        }
+    }
+
+    private long parseId(int field){
+        int start = fieldStart[field];
+        int end = fieldEnd[field];
+
+        if(start == end || end - start > 18){
+            throw new InvalidExpenseDataException("Invalid id on line " + recordLine + ".", "id", fieldString(field));
+        }
+
+        long id = 0;
+        for(int i = start; i < end; i++){
+            char c = record[i];
+            if(c < '0' || c > '9'){
+                throw new InvalidExpenseDataException("Invalid id on line " + recordLine + ".", "id", fieldString(field));
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    private static char[][] namesOf(Enum<?>[] constants){
+        char[][] names = new char[constants.length][];
+        for(int i = 0; i < constants.length; i++){
+            names[i] = constants[i].name().toCharArray();
+        }
+        return names;
+    }
+}
@@ -0,0 +1,367 @@
+package persistence;
+
+import model.Category;
+import model.Dates;
+import model.Expense;
+import model.Money;
+import model.Priority;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming CSV writer for the expense file layout read by ExpenseCsvReader.
+ *
+ * Rows are encoded straight into one reused byte buffer as UTF-8:
+ * - no per-row String, String.format or char[] copies,
+ * - ids, dates (epoch-days) and amounts (long grosze) are written digit by digit, amounts
+ *   in the same text Double.toString gives for two-decimal values,
+ * - category/priority names are precomputed byte arrays.
+ *
+ * Full buffers go to a FileChannel, optionally through gzip.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.3.0
+ */
+public class ExpenseCsvWriter implements Closeable, Flushable {
+
+    public static final String HEADER = "id,date,amount,description,category,priority";
+    public static final String JOURNAL_HEADER = "op," + HEADER;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Largest UTF-8 encoding of one char (or surrogate pair), plus a closing quote.
+     */
+    private static final int MAX_CHAR_BYTES = 5;
+
+    private static final byte[][] CATEGORY_NAMES = namesOf(Category.values());
+    private static final byte[][] PRIORITY_NAMES = namesOf(Priority.values());
+
+    private final FileChannel channel;
+    private final GZIPOutputStream gzip;
+    private final byte[] buffer;
+    private final ByteBuffer view;
+    private int position;
+
+    /**
+     * Bytes in the file before the buffer (uncompressed, for gzip files).
+     */
+    private long flushedBytes;
+
+    /**
+     * Creates (or truncates) the file and writes the header row.
+     *
+     * @param path target file
+     * @param compress whether to gzip the output
+     * @throws IOException if the file cannot be opened
+     */
+    public ExpenseCsvWriter(Path path, boolean compress) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), compress, HEADER);
+    }
+
+    private ExpenseCsvWriter(FileChannel channel, boolean compress, String header) throws IOException {
+        this.channel = channel;
+        this.gzip = compress ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE) : null;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.view = ByteBuffer.wrap(buffer);
+        this.flushedBytes = channel.size();
+
+        if(header != null){
+            writeAscii(header);
+            writeByte('\n');
+        }
+    }
+
+    /**
+     * Opens a journal file for appending (uncompressed); a new or empty
+     * file gets the journal header first.
+     *
+     * @param path journal file
+     * @return writer for writeAdded / writeDeleted entries
+     * @throws IOException if the file cannot be opened
+     */
+    public static ExpenseCsvWriter appendJournal(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try{
+            return new ExpenseCsvWriter(channel, false, channel.size() == 0 ? JOURNAL_HEADER : null);
+        }catch (IOException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a journal entry for a new expense.
+     */
+    public void writeAdded(Expense expense) throws IOException {
+        ensureRoom(2);
+        writeByte(ExpenseCsvReader.ADDED);
+        writeByte(',');
+        write(expense);
+    }
+
+    /**
+     * Appends a journal entry for a deleted expense.
+     */
+    public void writeDeleted(long id) throws IOException {
+        ensureRoom(32);
+        writeByte(ExpenseCsvReader.DELETED);
+        writeByte(',');
+        writeLong(id);
+        writeByte('\n');
+    }
+
+    /**
+     * Appends one row.
+     *
+     * @param expense expense to write
+     * @throws IOException if flushing a full buffer fails
+     */
+    public void write(Expense expense) throws IOException {
+        // Numbers and enum names are ASCII and bounded in length;
+        // free text reserves room char by char
+        ensureRoom(32);
+        writeLong(expense.getId());
+        writeByte(',');
+        writeDate(expense.getEpochDay());
+
+        ensureRoom(64);
+        writeByte(',');
+        writeAmount(expense.getAmountMinor());
+        writeByte(',');
+        writeText(expense.getDescription());
+
+        ensureRoom(64);
+        writeByte(',');
+        writeBytes(CATEGORY_NAMES[expense.getCategory().ordinal()]);
+        writeByte(',');
+        writeBytes(PRIORITY_NAMES[expense.getPriority().ordinal()]);
+        writeByte('\n');
+    }
+
+    /**
+     * Writes out everything still buffered and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try{
+            flush();
+            if(gzip != null){
+                gzip.finish();
+            }
+        }finally {
+            if(gzip != null){
+                gzip.close();
+            }else {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Size of the file once everything buffered is written (before
+     * compression, for gzip files).
+     */
+    public long size() {
+        return flushedBytes + position;
+    }
+
+    /**
+     * Forces flushed data to the storage device (fsync). Safe to call from
+     * another thread while rows are being appended; it covers at least
+     * everything flushed before the call.
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    // ---- encoding ----
+
+    /**
+     * Writes a text field as UTF-8, quoted if it contains a comma, quote or line break.
+     */
+    private void writeText(String text) throws IOException {
+        boolean quote = needsQuotes(text);
+
+        if(quote){
+            ensureRoom(1);
+            writeByte('"');
+        }
+
+        int length = text.length();
+        for(int i = 0; i < length; i++){
+            ensureRoom(MAX_CHAR_BYTES);
+            char c = text.charAt(i);
+
+            if(c < 0x80){
+                if(c == '"'){
+                    writeByte('"');
+                }
+                writeByte(c);
+            }else if(c < 0x800){
+                writeByte(0xC0 | c >> 6);
+                writeByte(0x80 | c & 0x3F);
+            }else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))){
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                writeByte(0xF0 | codePoint >> 18);
+                writeByte(0x80 | codePoint >> 12 & 0x3F);
+                writeByte(0x80 | codePoint >> 6 & 0x3F);
+                writeByte(0x80 | codePoint & 0x3F);
+            }else if(Character.isSurrogate(c)){
+                // Unpaired surrogate - same replacement String.getBytes would use
+                writeByte('?');
+            }else {
+                writeByte(0xE0 | c >> 12);
+                writeByte(0x80 | c >> 6 & 0x3F);
+                writeByte(0x80 | c & 0x3F);
+            }
+        }
+
+        if(quote){
+            ensureRoom(1);
+            writeByte('"');
+        }
+    }
+
+    private static boolean needsQuotes(String text){
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if(c == ',' || c == '"' || c == '\n' || c == '\r'){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes an amount in grosze digit by digit, in the same form Double.toString
+     * uses for two-decimal values (12.5, 12.05, 1000.0).
+     */
+    private void writeAmount(long minor){
+        if(minor < 0){
+            writeByte('-');
+            minor = -minor;
+        }
+
+        writeLong(minor / Money.MINOR_PER_UNIT);
+        writeByte('.');
+
+        int fraction = (int) (minor % Money.MINOR_PER_UNIT);
+        writeByte('0' + fraction / 10);
+        if(fraction % 10 != 0){
+            writeByte('0' + fraction % 10);
+        }
+    }
+
+    /**
+     * Writes an epoch-day as YYYY-MM-DD straight from its digits.
+     */
+    private void writeDate(int epochDay){
+        int packed = Dates.yearMonthDay(epochDay);
+        if(packed < 0 || packed > 99991231){
+            writeAscii(Dates.format(epochDay));
+            return;
+        }
+
+        writeDigits(packed / 10000, 4);
+        writeByte('-');
+        writeDigits(packed / 100 % 100, 2);
+        writeByte('-');
+        writeDigits(packed % 100, 2);
+    }
+
+    private void writeDigits(int value, int width){
+        for(int i = position + width - 1; i >= position; i--){
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += width;
+    }
+
+    private void writeLong(long value){
+        if(value < 0){
+            writeByte('-');
+            if(value == Long.MIN_VALUE){
+                writeAscii("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+
+        // Digits are produced backwards, then the run is reversed in place
+        int start = position;
+        do{
+            buffer[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        }while (value != 0);
+
+        for(int i = start, j = position - 1; i < j; i++, j--){
+            byte swap = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = swap;
+        }
+    }
+
+    private void writeAscii(String text){
+        for(int i = 0; i < text.length(); i++){
+            buffer[position++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void writeBytes(byte[] bytes){
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeByte(int b){
+        buffer[position++] = (byte) b;
+    }
+
+    // ---- output ----
+
+    private void ensureRoom(int bytes) throws IOException {
+        if(position + bytes > buffer.length){
+            flush();
+        }
+    }
+
+    /**
+     * Writes buffered rows to the file (or the gzip stream).
+     */
+    @Override
+    public void flush() throws IOException {
+        if(position == 0){
+            return;
+        }
+
+        if(gzip != null){
+            gzip.write(buffer, 0, position);
+        }else {
+            view.clear().limit(position);
+            while (view.hasRemaining()){
+                channel.write(view);
+            }
+        }
+        flushedBytes += position;
+        position = 0;
+    }
+
+    private static byte[][] namesOf(Enum<?>[] constants){
+        byte[][] names = new byte[constants.length][];
+        for(int i = 0; i < constants.length; i++){
+            names[i] = constants[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,256 @@
+package persistence;
+
+import model.Expense;
+import repository.ExpenseRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Incremental persistence for one expense file: a base CSV plus an
+ * append-only journal next to it (expenses.csv + expenses.csv.journal).
+ *
+ * Changes since the last save are kept as pending adds and deletes, and
+ * save() only appends those to the journal, so its cost follows the size
+ * of the change, not of the data. Once the journal grows past the
+ * compaction threshold, the full data is written to a fresh base file
+ * and the journal is dropped.
+ *
+ * A full rewrite is also used whenever the file no longer mirrors the
+ * repository: before the first load, after clear-all, or when the base
+ * file has no id column (journal deletes refer to IDs).
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public class ExpenseJournal {
+
+    public static final long DEFAULT_COMPACTION_BYTES = 4L * 1024 * 1024;
+    public static final String SUFFIX = ".journal";
+
+    private final Path baseFile;
+    private final Path journalFile;
+    private final long compactionBytes;
+
+    /**
+     * Pending changes since the last save, in the order they happened.
+     */
+    private final Map<Long, Expense> added;
+    private final Set<Long> deleted;
+    private boolean rewriteNeeded;
+
+    /**
+     * Creates journal for base file with default compaction threshold.
+     *
+     * @param baseFile base CSV file (e.g. expenses.csv)
+     */
+    public ExpenseJournal(String baseFile){
+        this(baseFile, DEFAULT_COMPACTION_BYTES);
+    }
+
+    /**
+     * Creates journal for base file.
+     *
+     * @param baseFile base CSV file (e.g. expenses.csv)
+     * @param compactionBytes journal size that triggers a full rewrite
+     * @throws IllegalArgumentException if file name is empty or threshold not positive
+     */
+    public ExpenseJournal(String baseFile, long compactionBytes){
+        if(baseFile == null || baseFile.trim().isEmpty()){
+            throw new IllegalArgumentException("File name cannot be empty");
+        }
+
+        if(compactionBytes <= 0){
+            throw new IllegalArgumentException("Compaction threshold must be positive");
+        }
+
+        this.baseFile = Path.of(baseFile).toAbsolutePath().normalize();
+        this.journalFile = this.baseFile.resolveSibling(this.baseFile.getFileName() + SUFFIX);
+        this.compactionBytes = compactionBytes;
+        this.added = new LinkedHashMap<>();
+        this.deleted = new LinkedHashSet<>();
+        this.rewriteNeeded = true;
+    }
+
+    /**
+     * Whether the given file name refers to this journal's base file.
+     */
+    public boolean covers(String fileName){
+        return fileName != null && Path.of(fileName).toAbsolutePath().normalize().equals(baseFile);
+    }
+
+    public Path getJournalFile(){
+        return journalFile;
+    }
+
+    // ---- change tracking ----
+
+    public void recordAdded(Expense expense){
+        added.put(expense.getId(), expense);
+    }
+
+    public void recordDeleted(long id){
+        // Added and deleted between two saves - the file never saw it
+        if(added.remove(id) == null){
+            deleted.add(id);
+        }
+    }
+
+    public void recordCleared(){
+        added.clear();
+        deleted.clear();
+        rewriteNeeded = true;
+    }
+
+    /**
+     * Marks the repository as changed in ways not tracked here
+     * (e.g. rows loaded from another file); the next save rewrites the base file.
+     */
+    public void requireRewrite(){
+        rewriteNeeded = true;
+    }
+
+    /**
+     * Number of adds and deletes waiting for the next save.
+     */
+    public int pendingChanges(){
+        return added.size() + deleted.size();
+    }
+
+    // ---- load ----
+
+    /**
+     * Applies journal entries to a repository right after the base file was loaded into it.
+     *
+     * @param repository repository that now holds the base file rows
+     * @param wasEmpty whether the repository was empty before the base file was loaded
+     * @return number of entries applied
+     * @throws IOException if the journal cannot be read
+     */
+    public int replay(ExpenseRepository repository, boolean wasEmpty) throws IOException {
+        return replay(repository, wasEmpty, System.out::println);
+    }
+
+    /**
+     * Same as replay(repository, wasEmpty), reporting skipped entries to warnings.
+     */
+    public int replay(ExpenseRepository repository, boolean wasEmpty, Consumer<String> warnings) throws IOException {
+        int applied = 0;
+        boolean baseHasIds;
+
+        try(ExpenseCsvReader base = ExpenseCsvReader.open(baseFile.toFile())){
+            baseHasIds = base.hasIds();
+        }
+
+        File journal = journalFile.toFile();
+        if(journal.exists()){
+            try(ExpenseCsvReader reader = ExpenseCsvReader.open(journal)){
+                if(!reader.isJournal()){
+                    throw new IOException("Not a journal file: " + journal);
+                }
+
+                while (true){
+                    try{
+                        if(!reader.nextEntry()){
+                            break;
+                        }
+
+                        if(reader.getOp() == ExpenseCsvReader.ADDED){
+                            repository.save(reader.getEntryExpense());
+                        }else {
+                            repository.delete(reader.getEntryDeletedId());
+                        }
+                        applied++;
+
+                    }catch (RuntimeException e){
+                        warnings.accept("⚠️  Skipping journal entry on line " + reader.getLineNumber()
+                                + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        // Repository = file contents (+ pending changes) only if nothing else was in it,
+        // and journal deletes can only be trusted if the base file keeps IDs
+        if(wasEmpty && baseHasIds){
+            rewriteNeeded = false;
+        }
+
+        return applied;
+    }
+
+    // ---- save ----
+
+    /**
+     * Appends pending changes to the journal, or writes everything to a
+     * fresh base file if a rewrite is needed or the journal got too big.
+     *
+     * @param all current repository contents (used only for a full rewrite)
+     * @return true if the base file was rewritten (compacted)
+     * @throws IOException if writing fails; pending changes are kept
+     */
+    public boolean save(List<Expense> all) throws IOException {
+        if(!rewriteNeeded && Files.exists(baseFile) && journalSize() < compactionBytes){
+            appendPending();
+            if(journalSize() < compactionBytes){
+                return false;
+            }
+        }
+
+        compact(all);
+        return true;
+    }
+
+    private void appendPending() throws IOException {
+        if(pendingChanges() == 0){
+            return;
+        }
+
+        // Deletes first: a new expense may reuse the date and description
+        // of a deleted one, and replay would reject it as a duplicate
+        try(ExpenseCsvWriter writer = ExpenseCsvWriter.appendJournal(journalFile)){
+            for(long id : deleted){
+                writer.writeDeleted(id);
+            }
+            for(Expense expense : added.values()){
+                writer.writeAdded(expense);
+            }
+        }
+
+        added.clear();
+        deleted.clear();
+    }
+
+    /**
+     * Writes all expenses to a temp file, swaps it in for the base file and drops the journal.
+     */
+    private void compact(List<Expense> all) throws IOException {
+        Path temp = baseFile.resolveSibling(baseFile.getFileName() + ".tmp");
+
+        try(ExpenseCsvWriter writer = new ExpenseCsvWriter(temp, baseFile.toString().endsWith(".gz"))){
+            for(Expense expense : all){
+                writer.write(expense);
+            }
+        }
+
+        Files.move(temp, baseFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(journalFile);
+
+        added.clear();
+        deleted.clear();
+        rewriteNeeded = false;
+    }
+
+    private long journalSize() throws IOException {
+        return Files.exists(journalFile) ? Files.size(journalFile) : 0;
+    }
+}
@@ -0,0 +1,34 @@
+package persistence;
+
+import model.Expense;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Ordered stream of expenses read from a file, one row at a time.
+ *
+ * A row that cannot be turned into an Expense is reported by next()
+ * throwing; the row is already consumed, so the caller may skip it and keep reading.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public interface ExpenseSource extends Closeable {
+
+    /**
+     * Returns the next expense in file order.
+     *
+     * @return the expense, or null when no rows are left
+     * @throws exception.InvalidExpenseDataException if the row is malformed
+     * @throws IllegalArgumentException if Expense validation rejects the values
+     * @throws IOException if reading fails
+     */
+    Expense next() throws IOException;
+
+    /**
+     * Line on which the most recently returned (or rejected) row started
+     * (record number for binary files).
+     */
+    int getLineNumber();
+}
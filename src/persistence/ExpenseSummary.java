@@ -0,0 +1,128 @@
+package persistence;
+
+import model.Money;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Expense count and total saved next to a data file (expenses.csv + expenses.csv.summary),
+ * so both are known at startup without reading the rows. The total is
+ * kept in grosze, so it is exact.
+ *
+ * The summary also records size and modification time of the data file and its
+ * journal. If either changed since the summary was written (e.g. the file was
+ * edited by hand or copied over), read() treats the summary as stale.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.2.0
+ */
+public final class ExpenseSummary {
+
+    public static final String SUFFIX = ".summary";
+
+    /**
+     * Summaries of older versions (header "count,total,...", total as a
+     * double) don't match this header and are read as stale.
+     */
+    private static final String HEADER = "count,totalMinor,fileSize,fileModified,journalSize,journalModified";
+
+    private final int count;
+    private final long totalMinor;
+
+    private ExpenseSummary(int count, long totalMinor){
+        this.count = count;
+        this.totalMinor = totalMinor;
+    }
+
+    public int getCount(){
+        return count;
+    }
+
+    public double getTotal(){
+        return Money.toDouble(totalMinor);
+    }
+
+    /**
+     * Exact total in grosze.
+     */
+    public long getTotalMinor(){
+        return totalMinor;
+    }
+
+    /**
+     * Reads the summary of a data file.
+     *
+     * @param dataFile data file the summary belongs to
+     * @return the summary, or null if there is none or it no longer matches the file
+     */
+    public static ExpenseSummary read(Path dataFile){
+        try{
+            List<String> lines = Files.readAllLines(summaryFile(dataFile));
+            if(lines.size() != 2 || !lines.get(0).equals(HEADER)){
+                return null;
+            }
+
+            String[] values = lines.get(1).split(",");
+            if(values.length != 6 || !fingerprint(dataFile).equals(String.join(",", values[2], values[3], values[4], values[5]))){
+                return null;
+            }
+
+            return new ExpenseSummary(Integer.parseInt(values[0]), Long.parseLong(values[1]));
+
+        }catch (IOException | NumberFormatException e){
+            return null;
+        }
+    }
+
+    /**
+     * Writes the summary of a data file; call right after the file was saved.
+     *
+     * @param dataFile data file the summary belongs to
+     * @param count number of expenses in the file
+     * @param totalMinor sum of their amounts in grosze
+     * @throws IOException if writing fails
+     */
+    public static void write(Path dataFile, int count, long totalMinor) throws IOException {
+        Path summary = summaryFile(dataFile);
+        Path temp = summary.resolveSibling(summary.getFileName() + ".tmp");
+
+        Files.writeString(temp, HEADER + "\n" + count + "," + totalMinor + "," + fingerprint(dataFile) + "\n");
+        Files.move(temp, summary, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Removes the summary, e.g. when the data file was written without one.
+     */
+    public static void delete(Path dataFile) throws IOException {
+        Files.deleteIfExists(summaryFile(dataFile));
+    }
+
+    private static Path summaryFile(Path dataFile){
+        return dataFile.resolveSibling(dataFile.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Size and modification time of the data file and its journal;
+     * shared with SpendingCubeFile.
+     */
+    static String fingerprint(Path dataFile) throws IOException {
+        Path journal = dataFile.resolveSibling(dataFile.getFileName() + ExpenseJournal.SUFFIX);
+        return stat(dataFile) + "," + stat(journal);
+    }
+
+    /**
+     * Size and modification time of a file, or "0,0" if it does not exist.
+     */
+    private static String stat(Path file) throws IOException {
+        try{
+            return Files.size(file) + "," + Files.getLastModifiedTime(file).toMillis();
+        }catch (NoSuchFileException e){
+            return "0,0";
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package persistence;
+
+import model.Expense;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Serial;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Parses an expense CSV file on a ForkJoinPool, chunk by chunk.
+ *
+ * The file is cut into byte ranges that start on record boundaries:
+ * 1. every raw range counts its quote and newline bytes (in parallel),
+ * 2. prefix sums of those counts tell whether a range begins inside a quoted field,
+ * 3. each range moves its start to just after the first newline outside quotes (in parallel),
+ * 4. every chunk is parsed by its own ExpenseCsvReader (in parallel).
+ *
+ * '"' and '\n' never occur inside multi-byte UTF-8 sequences, so byte-level
+ * cutting is safe. If a chunk does not end cleanly on a record boundary
+ * (e.g. a stray quote fooled the parity count), the whole file is parsed
+ * sequentially instead, so the result is always what ExpenseCsvReader would produce.
+ *
+ * The returned ExpenseSource replays rows and row errors in file order,
+ * so inserting from it behaves exactly like a sequential load.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public class ParallelExpenseCsvLoader {
+
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates loader that runs on the common ForkJoinPool.
+     */
+    public ParallelExpenseCsvLoader(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates loader that runs on the given pool.
+     *
+     * @param pool pool for chunk scanning and parsing
+     */
+    public ParallelExpenseCsvLoader(ForkJoinPool pool){
+        if(pool == null){
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * Parses the whole file and returns its rows in file order.
+     *
+     * @param file CSV file in the saveToFile layout
+     * @return parsed rows; nothing is left open, closing is optional
+     * @throws IOException if reading fails
+     */
+    public ExpenseSource parse(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            long size = channel.size();
+
+            long headerEnd = findRecordEnd(channel, skipLineBreaks(channel, 0, size), size, false, null);
+            ExpenseCsvReader header = new ExpenseCsvReader(reader(channel, 0, headerEnd));
+            int firstLine = 1 + countNewlines(channel, 0, headerEnd);
+
+            long dataBytes = size - headerEnd;
+            int chunks = (int) Math.min((long) pool.getParallelism() * CHUNKS_PER_THREAD, dataBytes / MIN_CHUNK_BYTES);
+
+            if(chunks <= 1 || !header.isRecordTerminated()){
+                return parseSequentially(channel, size);
+            }
+
+            // 1. Raw, evenly sized ranges: count quotes and newlines in each
+            long[] rawStarts = new long[chunks + 1];
+            for(int i = 0; i < chunks; i++){
+                rawStarts[i] = headerEnd + dataBytes * i / chunks;
+            }
+            rawStarts[chunks] = size;
+
+            long[] quotes = new long[chunks];
+            long[] newlines = new long[chunks];
+            forEachChunk(chunks, i -> {
+                long[] counts = countBytes(channel, rawStarts[i], rawStarts[i + 1]);
+                quotes[i] = counts[0];
+                newlines[i] = counts[1];
+            });
+
+            // 2. + 3. Align every range start to the next record boundary
+            long[] starts = new long[chunks + 1];
+            int[] lines = new int[chunks];
+            starts[0] = headerEnd;
+            starts[chunks] = size;
+            lines[0] = firstLine;
+
+            boolean[] inQuotes = new boolean[chunks];
+            long[] newlinesBefore = new long[chunks];
+            for(int i = 1; i < chunks; i++){
+                inQuotes[i] = inQuotes[i - 1] ^ (quotes[i - 1] & 1) == 1;
+                newlinesBefore[i] = newlinesBefore[i - 1] + newlines[i - 1];
+            }
+
+            forEachChunk(chunks - 1, j -> {
+                int i = j + 1;
+                long[] skipped = new long[1];
+                starts[i] = findRecordEnd(channel, rawStarts[i], size, inQuotes[i], skipped);
+                lines[i] = (int) (firstLine + newlinesBefore[i] + skipped[0]);
+            });
+
+            // 4. Parse chunks
+            Chunk[] parsed = new Chunk[chunks];
+            boolean hasIds = header.hasIds();
+            forEachChunk(chunks, i -> parsed[i] = Chunk.read(
+                    new ExpenseCsvReader(reader(channel, starts[i], starts[i + 1]), hasIds, lines[i])));
+
+            for(int i = 0; i < chunks - 1; i++){
+                if(!parsed[i].endsOnBoundary){
+                    return parseSequentially(channel, size);
+                }
+            }
+
+            return new ParsedRows(parsed);
+        }
+    }
+
+    private ExpenseSource parseSequentially(FileChannel channel, long size) throws IOException {
+        return new ParsedRows(new Chunk[]{ Chunk.read(new ExpenseCsvReader(reader(channel, 0, size))) });
+    }
+
+    /**
+     * Runs action for chunk indexes 0..count-1 as a fork-join task tree.
+     */
+    private void forEachChunk(int count, IntConsumer action) throws IOException {
+        if(count <= 0){
+            return;
+        }
+
+        try{
+            pool.invoke(new ChunkAction(0, count, action));
+        }catch (UncheckedIOException e){
+            throw e.getCause();
+        }
+    }
+
+    // ---- byte scanning ----
+
+    /**
+     * Counts quote bytes [0] and newline bytes [1] in [from, to).
+     */
+    private static long[] countBytes(FileChannel channel, long from, long to){
+        long[] counts = new long[2];
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+
+        while (position < to){
+            int n = readAt(channel, buffer, position, to);
+            byte[] bytes = buffer.array();
+            for(int i = 0; i < n; i++){
+                if(bytes[i] == '"'){
+                    counts[0]++;
+                }else if(bytes[i] == '\n'){
+                    counts[1]++;
+                }
+            }
+            position += n;
+        }
+
+        return counts;
+    }
+
+    private static int countNewlines(FileChannel channel, long from, long to){
+        return (int) countBytes(channel, from, to)[1];
+    }
+
+    /**
+     * Returns the position just after the first newline outside quotes,
+     * starting from 'from' in the given quote state (or 'to' if there is none).
+     *
+     * @param newlines if not null, receives the number of newlines skipped
+     */
+    private static long findRecordEnd(FileChannel channel, long from, long to, boolean inQuotes, long[] newlines){
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+        long skipped = 0;
+
+        while (position < to){
+            int n = readAt(channel, buffer, position, to);
+            byte[] bytes = buffer.array();
+            for(int i = 0; i < n; i++){
+                if(bytes[i] == '"'){
+                    inQuotes = !inQuotes;
+                }else if(bytes[i] == '\n'){
+                    skipped++;
+                    if(!inQuotes){
+                        if(newlines != null){
+                            newlines[0] = skipped;
+                        }
+                        return position + i + 1;
+                    }
+                }
+            }
+            position += n;
+        }
+
+        if(newlines != null){
+            newlines[0] = skipped;
+        }
+        return to;
+    }
+
+    /**
+     * Skips blank lines before the header, like ExpenseCsvReader does.
+     */
+    private static long skipLineBreaks(FileChannel channel, long from, long to){
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+
+        while (position < to){
+            int n = readAt(channel, buffer, position, to);
+            byte[] bytes = buffer.array();
+            for(int i = 0; i < n; i++){
+                if(bytes[i] != '\n' && bytes[i] != '\r'){
+                    return position + i;
+                }
+            }
+            position += n;
+        }
+
+        return to;
+    }
+
+    /**
+     * Positional read into buffer's array; safe to call from many threads at once.
+     */
+    private static int readAt(FileChannel channel, ByteBuffer buffer, long position, long limit){
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+
+        try{
+            int n = channel.read(buffer, position);
+            if(n < 0){
+                throw new IOException("Unexpected end of file at byte " + position);
+            }
+            return n;
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStreamReader reader(FileChannel channel, long from, long to){
+        return new InputStreamReader(new RangeInputStream(channel, from, to), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stream over one byte range of a shared channel (positional reads, no shared position).
+     * Closing it leaves the channel open.
+     */
+    private static final class RangeInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        RangeInputStream(FileChannel channel, long from, long to){
+            this.channel = channel;
+            this.position = from;
+            this.end = to;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if(position >= end){
+                return -1;
+            }
+
+            int n = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position)), position);
+            if(n < 0){
+                return -1;
+            }
+            position += n;
+            return n;
+        }
+    }
+
+    // ---- parsed rows ----
+
+    /**
+     * Rows of one chunk. Errors are kept aside with the index of the
+     * expense they precede, so they can be replayed in file order.
+     */
+    private static final class Chunk {
+
+        final List<Expense> expenses = new ArrayList<>();
+        int[] lines = new int[64];
+        final List<RowError> errors = new ArrayList<>();
+        boolean endsOnBoundary = true;
+
+        static Chunk read(ExpenseCsvReader reader){
+            Chunk chunk = new Chunk();
+
+            try(reader){
+                while (true){
+                    try{
+                        Expense expense = reader.next();
+                        if(expense == null){
+                            break;
+                        }
+                        chunk.add(expense, reader.getLineNumber());
+                    }catch (RuntimeException e){
+                        chunk.errors.add(new RowError(chunk.expenses.size(), reader.getLineNumber(), e));
+                    }
+                    chunk.endsOnBoundary = reader.isRecordTerminated();
+                }
+            }catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+
+            return chunk;
+        }
+
+        void add(Expense expense, int line){
+            if(expenses.size() == lines.length){
+                lines = Arrays.copyOf(lines, lines.length * 2);
+            }
+            lines[expenses.size()] = line;
+            expenses.add(expense);
+        }
+    }
+
+    private record RowError(int beforeIndex, int line, RuntimeException error) {
+    }
+
+    /**
+     * Replays all chunks in order; each chunk is released once consumed.
+     */
+    private static final class ParsedRows implements ExpenseSource {
+
+        private final Chunk[] chunks;
+        private int chunkIndex;
+        private int rowIndex;
+        private int errorIndex;
+        private int lineNumber;
+
+        ParsedRows(Chunk[] chunks){
+            this.chunks = chunks;
+        }
+
+        @Override
+        public Expense next() {
+            while (chunkIndex < chunks.length){
+                Chunk chunk = chunks[chunkIndex];
+
+                if(errorIndex < chunk.errors.size() && chunk.errors.get(errorIndex).beforeIndex() == rowIndex){
+                    RowError error = chunk.errors.get(errorIndex++);
+                    lineNumber = error.line();
+                    throw error.error();
+                }
+
+                if(rowIndex < chunk.expenses.size()){
+                    lineNumber = chunk.lines[rowIndex];
+                    return chunk.expenses.get(rowIndex++);
+                }
+
+                chunks[chunkIndex++] = null;
+                rowIndex = 0;
+                errorIndex = 0;
+            }
+            return null;
+        }
+
+        @Override
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        @Override
+        public void close() {
+            Arrays.fill(chunks, null);
+            chunkIndex = chunks.length;
+        }
+    }
+
+    /**
+     * Splits a range of chunk indexes in halves until single chunks remain.
+     */
+    private static final class ChunkAction extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final transient IntConsumer action;
+
+        ChunkAction(int from, int to, IntConsumer action){
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from == 1){
+                action.accept(from);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkAction(from, middle, action), new ChunkAction(middle, to, action));
+        }
+    }
+}
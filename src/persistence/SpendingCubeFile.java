@@ -0,0 +1,86 @@
+package persistence;
+
+import repository.SpendingCube;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * SpendingCube saved next to a data file (expenses.csv + expenses.csv.cube),
+ * so monthly and yearly totals are available at startup without reading the rows.
+ *
+ * The saved cube only answers queries while a background load runs. The
+ * repository still builds its own cube from the rows as they are loaded,
+ * because it has to match the rows exactly (including rows a load skips),
+ * and every later save and delete updates that one. So startup is not
+ * slower to answer, but the cube's cost is still paid once per load.
+ *
+ * Like ExpenseSummary, the file records size and modification time of the data
+ * file and its journal; read() ignores a cube that no longer matches them.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public final class SpendingCubeFile {
+
+    public static final String SUFFIX = ".cube";
+
+    private static final int MAGIC = 0x43554245; // "CUBE"
+
+    private SpendingCubeFile(){
+    }
+
+    /**
+     * Reads the cube of a data file.
+     *
+     * @param dataFile data file the cube belongs to
+     * @return the cube, or null if there is none or it no longer matches the file
+     */
+    public static SpendingCube read(Path dataFile){
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cubeFile(dataFile))))) {
+            if(in.readInt() != MAGIC || !in.readUTF().equals(ExpenseSummary.fingerprint(dataFile))){
+                return null;
+            }
+            return SpendingCube.readFrom(in);
+
+        }catch (IOException e){
+            return null;
+        }
+    }
+
+    /**
+     * Writes the cube of a data file; call right after the file was saved.
+     *
+     * @param dataFile data file the cube belongs to
+     * @param cube totals of the expenses in the file
+     * @throws IOException if writing fails
+     */
+    public static void write(Path dataFile, SpendingCube cube) throws IOException {
+        Path target = cubeFile(dataFile);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(ExpenseSummary.fingerprint(dataFile));
+            cube.writeTo(out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Removes the cube, e.g. when the data file was written without one.
+     */
+    public static void delete(Path dataFile) throws IOException {
+        Files.deleteIfExists(cubeFile(dataFile));
+    }
+
+    private static Path cubeFile(Path dataFile){
+        return dataFile.resolveSibling(dataFile.getFileName() + SUFFIX);
+    }
+}
@@ -0,0 +1,514 @@
+package repository;
+
+import exception.DuplicateExpenseException;
+import exception.ExpenseNotFoundException;
+import exception.InvalidExpenseDataException;
+import exception.RepositoryException;
+import model.Category;
+import model.Expense;
+import model.Money;
+import model.Priority;
+import util.LongIntHashMap;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Column-oriented implementation of ExpenseRepository.
+ *
+ * Instead of one Expense object per row, every field lives in its own
+ * primitive array (amounts in grosze, epoch-days, category/priority ordinals) and
+ * descriptions are dictionary-encoded, so repeated descriptions are stored once.
+ * Expense objects are built only when a caller asks for them.
+ *
+ * Totals and counts come from running aggregates updated on every write.
+ * A delete only marks its row (ID column set to NO_ID) and scans skip
+ * marked rows. Compaction squeezes them out and rebuilds the description
+ * dictionary from the live rows, so descriptions nobody uses any more are
+ * dropped too. It runs on writes, like in OffHeapExpenseRepository: when a
+ * save finds the columns full with more than a quarter deleted, or a delete
+ * leaves more than half of the rows (and at least MIN_COMPACT_DELETED) deleted.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.3.0
+ */
+public class ColumnarExpenseRepository implements ExpenseRepository {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_ROW = -1;
+    private static final long DELETED = Expense.NO_ID;
+
+    /**
+     * Deleted rows a delete tolerates before compacting, so small
+     * stores are not compacted every other delete.
+     */
+    private static final int MIN_COMPACT_DELETED = 1024;
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    // Columns - row i of every array describes the same expense
+    private long[] ids;
+    private int[] epochDays;
+    private long[] amounts;
+    private byte[] categories;
+    private byte[] priorities;
+    private int[] descriptionCodes;
+
+    /**
+     * Rows filled in the columns, deleted ones included; size counts live rows.
+     */
+    private int rowCount;
+    private int size;
+
+    /**
+     * Incremented whenever row numbers change meaning (saves, deletes, compaction).
+     */
+    private int modifications;
+
+    /**
+     * Description dictionary: code -> text and text -> code.
+     */
+    private final List<String> descriptions;
+    private final Map<String, Integer> descriptionLookup;
+
+    /**
+     * ID -> row, and (epoch-day, description code) -> row for duplicate detection.
+     */
+    private final LongIntHashMap rowById;
+    private final LongIntHashMap rowByKey;
+    private long nextId;
+
+    private final List<Expense> expensesView;
+
+    private final ExpenseAggregates aggregates;
+
+    /**
+     * Creates empty columnar repository.
+     */
+    public ColumnarExpenseRepository(){
+        this.ids = new long[INITIAL_CAPACITY];
+        this.epochDays = new int[INITIAL_CAPACITY];
+        this.amounts = new long[INITIAL_CAPACITY];
+        this.categories = new byte[INITIAL_CAPACITY];
+        this.priorities = new byte[INITIAL_CAPACITY];
+        this.descriptionCodes = new int[INITIAL_CAPACITY];
+        this.descriptions = new ArrayList<>();
+        this.descriptionLookup = new HashMap<>();
+        this.rowById = new LongIntHashMap();
+        this.rowByKey = new LongIntHashMap();
+        this.nextId = 1;
+        this.expensesView = new ExpensesView();
+        this.aggregates = new ExpenseAggregates();
+    }
+
+    @Override
+    public void save(Expense expense) {
+        if(expense == null){
+            throw new InvalidExpenseDataException("Expense cannot be null", "expense", null);
+        }
+
+        int epochDay = expense.getEpochDay();
+        Integer existingCode = descriptionLookup.get(expense.getDescription());
+
+        if(existingCode != null && rowByKey.containsKey(key(epochDay, existingCode))){
+            throw new DuplicateExpenseException("Duplicate found:", expense.getDate(), expense.getDescription());
+        }
+
+        if(expense.hasId() && rowById.containsKey(expense.getId())){
+            throw new DuplicateExpenseException("Duplicate ID: " + expense.getId());
+        }
+
+        try{
+            long id = expense.hasId() ? expense.getId() : nextId;
+            expense.assignId(id);
+            nextId = Math.max(nextId, id + 1);
+
+            if(rowCount == ids.length && rowCount - size > rowCount / 4){
+                compact();
+                existingCode = descriptionLookup.get(expense.getDescription());
+            }else {
+                ensureCapacity(rowCount + 1);
+            }
+
+            int code = existingCode != null ? existingCode : encode(expense.getDescription());
+            int row = rowCount;
+
+            ids[row] = id;
+            epochDays[row] = epochDay;
+            amounts[row] = expense.getAmountMinor();
+            categories[row] = (byte) expense.getCategory().ordinal();
+            priorities[row] = (byte) expense.getPriority().ordinal();
+            descriptionCodes[row] = code;
+
+            rowById.put(id, row);
+            rowByKey.put(key(epochDay, code), row);
+            rowCount++;
+            size++;
+            modifications++;
+
+            aggregates.add(expense);
+        }catch (Exception e){
+            throw new RepositoryException("Failed to save expense: " + expense.getDescription(), e);
+        }
+    }
+
+    @Override
+    public void saveAll(Expense... expenses) {
+        if(expenses == null){
+            return;
+        }
+
+        int savedCount = 0;
+        List<String> errors = new ArrayList<>();
+
+        for(Expense expense : expenses){
+            try{
+                if(expense != null){
+                    save(expense);
+                    savedCount++;
+                }
+            }catch (Exception e){
+                errors.add("Failed to save expense: " + e.getMessage());
+            }
+        }
+
+        if(!errors.isEmpty()){
+            System.out.println("⚠️  Warnings during bulk save:");
+            errors.forEach(System.out::println);
+        }
+
+        System.out.println("✓ Saved " + savedCount + " of " +
+                expenses.length + " expenses");
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        return new ArrayList<>(expensesView);
+    }
+
+    @Override
+    public List<Expense> viewAll() {
+        return expensesView;
+    }
+
+    @Override
+    public Expense findById(long id) throws ExpenseNotFoundException {
+        if(id <= 0){
+            throw new InvalidExpenseDataException("ID must be positive", "id", id);
+        }
+
+        int row = rowById.getOrDefault(id, NO_ROW);
+
+        if(row == NO_ROW){
+            throw new ExpenseNotFoundException("No expense found with ID: " + id, id);
+        }
+
+        return materialize(row);
+    }
+
+    @Override
+    public List<Expense> findByCategory(Category category) {
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        byte ordinal = (byte) category.ordinal();
+        List<Expense> result = new ArrayList<>();
+
+        for(int i = 0; i < rowCount; i++){
+            if(categories[i] == ordinal && ids[i] != DELETED){
+                result.add(materialize(i));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<Expense> findByPriority(Priority priority) {
+        if(priority == null){
+            throw new InvalidExpenseDataException("Priority cannot be null", "priority", null);
+        }
+
+        byte ordinal = (byte) priority.ordinal();
+        List<Expense> result = new ArrayList<>();
+
+        for(int i = 0; i < rowCount; i++){
+            if(priorities[i] == ordinal && ids[i] != DELETED){
+                result.add(materialize(i));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<Expense> findExpensesAbove(double amount) {
+        if(amount < 0){
+            throw new InvalidExpenseDataException("Amount must be positive", "amount", amount);
+        }
+
+        List<Expense> result = new ArrayList<>();
+
+        for(int i = 0; i < rowCount; i++){
+            if(Money.toDouble(amounts[i]) >= amount && ids[i] != DELETED){
+                result.add(materialize(i));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public Optional<Expense> findMostExpensive() {
+        int best = NO_ROW;
+        for(int i = 0; i < rowCount; i++){
+            if(ids[i] != DELETED && (best == NO_ROW || amounts[i] > amounts[best])){
+                best = i;
+            }
+        }
+
+        return best == NO_ROW ? Optional.empty() : Optional.of(materialize(best));
+    }
+
+    @Override
+    public Optional<Expense> findCheapest() {
+        int best = NO_ROW;
+        for(int i = 0; i < rowCount; i++){
+            if(ids[i] != DELETED && (best == NO_ROW || amounts[i] < amounts[best])){
+                best = i;
+            }
+        }
+
+        return best == NO_ROW ? Optional.empty() : Optional.of(materialize(best));
+    }
+
+    @Override
+    public double totalAmount() {
+        return aggregates.totalAmount();
+    }
+
+    @Override
+    public double totalByCategory(Category category) {
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        return aggregates.totalByCategory(category);
+    }
+
+    @Override
+    public int countByCategory(Category category) {
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        return aggregates.countByCategory(category);
+    }
+
+    @Override
+    public int countByPriority(Priority priority) {
+        if(priority == null){
+            throw new InvalidExpenseDataException("Priority cannot be null", "priority", null);
+        }
+
+        return aggregates.countByPriority(priority);
+    }
+
+    @Override
+    public ExpenseAggregates aggregates() {
+        return aggregates;
+    }
+
+    @Override
+    public void delete(long id) throws ExpenseNotFoundException {
+        if(id <= 0){
+            throw new InvalidExpenseDataException("ID must be positive", "id", id);
+        }
+
+        int row = rowById.getOrDefault(id, NO_ROW);
+
+        if(row == NO_ROW){
+            throw new ExpenseNotFoundException("Cannot delete - no expense with ID: " + id, id);
+        }
+
+        try{
+            aggregates.remove(materialize(row));
+            rowById.remove(id);
+            rowByKey.remove(key(epochDays[row], descriptionCodes[row]));
+            ids[row] = DELETED;
+            size--;
+            modifications++;
+
+            int deleted = rowCount - size;
+            if(deleted > rowCount / 2 && deleted >= MIN_COMPACT_DELETED){
+                compact();
+            }
+        }catch (Exception e){
+            throw new RepositoryException("Failed to delete expense with ID: " + id, e);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        rowCount = 0;
+        size = 0;
+        modifications++;
+        rowById.clear();
+        rowByKey.clear();
+        descriptions.clear();
+        descriptionLookup.clear();
+        aggregates.clear();
+    }
+
+    @Override
+    public int count() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Builds an Expense object from row i of the columns.
+     */
+    private Expense materialize(int row){
+        Expense expense = Expense.ofEpochDay(
+                epochDays[row],
+                amounts[row],
+                descriptions.get(descriptionCodes[row]),
+                CATEGORIES[categories[row]],
+                PRIORITIES[priorities[row]]);
+        expense.assignId(ids[row]);
+        return expense;
+    }
+
+    private int encode(String description){
+        int code = descriptions.size();
+        descriptions.add(description);
+        descriptionLookup.put(description, code);
+        return code;
+    }
+
+    /**
+     * Squeezes deleted rows out of the columns and re-encodes the live
+     * descriptions into a fresh dictionary, then rebuilds both row indexes.
+     */
+    private void compact(){
+        String[] oldDescriptions = descriptions.toArray(new String[0]);
+        int[] newCodes = new int[oldDescriptions.length];
+        Arrays.fill(newCodes, NO_ROW);
+
+        descriptions.clear();
+        descriptionLookup.clear();
+        rowById.clear();
+        rowByKey.clear();
+
+        int target = 0;
+        for(int row = 0; row < rowCount; row++){
+            if(ids[row] == DELETED){
+                continue;
+            }
+
+            int oldCode = descriptionCodes[row];
+            if(newCodes[oldCode] == NO_ROW){
+                newCodes[oldCode] = encode(oldDescriptions[oldCode]);
+            }
+
+            ids[target] = ids[row];
+            epochDays[target] = epochDays[row];
+            amounts[target] = amounts[row];
+            categories[target] = categories[row];
+            priorities[target] = priorities[row];
+            descriptionCodes[target] = newCodes[oldCode];
+
+            rowById.put(ids[target], target);
+            rowByKey.put(key(epochDays[target], descriptionCodes[target]), target);
+            target++;
+        }
+        rowCount = target;
+        modifications++;
+    }
+
+    private void ensureCapacity(int required){
+        if(required <= ids.length){
+            return;
+        }
+
+        int capacity = Math.max(required, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        descriptionCodes = Arrays.copyOf(descriptionCodes, capacity);
+    }
+
+    /**
+     * Packs (epoch-day, description code) into one long for the duplicate index.
+     */
+    private static long key(int epochDay, int descriptionCode){
+        return ((long) epochDay << 32) | (descriptionCode & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Positional read-only view; materializes each row on access.
+     *
+     * Without deleted rows, position i is row i. Otherwise get walks from
+     * the last position it returned and skips deleted rows, so a pass in
+     * order (as the iterator makes) costs O(1) per element.
+     */
+    private class ExpensesView extends AbstractList<Expense> {
+
+        private int cursorIndex = -1;
+        private int cursorRow = -1;
+        private int cursorModifications = -1;
+
+        @Override
+        public Expense get(int index) {
+            Objects.checkIndex(index, size);
+            return materialize(rowAt(index));
+        }
+
+        private int rowAt(int index){
+            if(rowCount == size){
+                return index;
+            }
+
+            if(cursorModifications != modifications || index < cursorIndex - index){
+                // Stale, or the start is closer than the cursor
+                cursorIndex = -1;
+                cursorRow = -1;
+                cursorModifications = modifications;
+            }
+
+            while (cursorIndex < index){
+                cursorRow++;
+                if(ids[cursorRow] != DELETED){
+                    cursorIndex++;
+                }
+            }
+            while (cursorIndex > index){
+                cursorRow--;
+                if(ids[cursorRow] != DELETED){
+                    cursorIndex--;
+                }
+            }
+            return cursorRow;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
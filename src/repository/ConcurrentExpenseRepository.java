@@ -0,0 +1,433 @@
+package repository;
+
+import exception.DuplicateExpenseException;
+import exception.ExpenseNotFoundException;
+import exception.InvalidExpenseDataException;
+import exception.RepositoryException;
+import model.Category;
+import model.Expense;
+import model.Money;
+import model.Priority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe implementation of ExpenseRepository for multi-threaded ingestion.
+ *
+ * Rows and indexes live in lock-free concurrent collections, so lookups
+ * never block and writers on different rows don't contend on them:
+ * - expenses are kept in a skip list ordered by ID (= save order),
+ * - duplicate detection claims the (date, description) key with a single
+ *   atomic add, so two threads can never both save the same expense,
+ * - category, priority and amount indexes are concurrent skip lists too,
+ * - counts are atomic and the totals are LongAdders (grosze), so
+ *   totalAmount() and totalByCategory() never take a lock.
+ *
+ * The write path updates nothing else, so ingest threads never wait for
+ * each other on a lock. The remaining aggregates (dates, cube, sketches,
+ * top descriptions) are built by aggregates() with one scan over the rows,
+ * only when something changed since the last build, and every caller gets
+ * the same snapshot until the next write. Readers never block writers.
+ *
+ * Reads are weakly consistent: a query running during a save or delete
+ * may or may not see that expense yet, and counts may briefly lag the lists.
+ * Once writers finish, every index agrees. viewAll() returns a snapshot
+ * rather than a live view.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.3.1
+ */
+public class ConcurrentExpenseRepository implements ExpenseRepository {
+
+    private final ConcurrentSkipListMap<Long, Expense> byId;
+    private final Set<ExpenseKey> expenseKeys;
+    private final Map<Category, ConcurrentSkipListMap<Long, Expense>> byCategory;
+    private final Map<Priority, ConcurrentSkipListMap<Long, Expense>> byPriority;
+    private final ConcurrentSkipListMap<AmountKey, Expense> byAmount;
+
+    private final AtomicLong nextId;
+    private final AtomicInteger size;
+    private final AtomicIntegerArray categoryCounts;
+    private final AtomicIntegerArray priorityCounts;
+    private final LongAdder totalMinor;
+    private final LongAdder[] categoryMinor;
+
+    /**
+     * Saves and deletes so far; counted after the rows change, so a
+     * snapshot tagged with an older sum is rebuilt.
+     */
+    private final LongAdder modifications;
+
+    /**
+     * Aggregates last built by aggregates(), or null.
+     */
+    private volatile AggregatesSnapshot snapshot;
+
+    /**
+     * Creates empty concurrent repository.
+     */
+    public ConcurrentExpenseRepository(){
+        this.byId = new ConcurrentSkipListMap<>();
+        this.expenseKeys = ConcurrentHashMap.newKeySet();
+        this.byCategory = new EnumMap<>(Category.class);
+        this.byPriority = new EnumMap<>(Priority.class);
+        this.byAmount = new ConcurrentSkipListMap<>();
+        this.nextId = new AtomicLong(1);
+        this.size = new AtomicInteger();
+        this.categoryCounts = new AtomicIntegerArray(Category.values().length);
+        this.priorityCounts = new AtomicIntegerArray(Priority.values().length);
+        this.totalMinor = new LongAdder();
+        this.categoryMinor = new LongAdder[Category.values().length];
+        this.modifications = new LongAdder();
+
+        // Index maps are created once here and never replaced, so the
+        // EnumMaps themselves are only ever read after construction.
+        for(Category category : Category.values()){
+            byCategory.put(category, new ConcurrentSkipListMap<>());
+            categoryMinor[category.ordinal()] = new LongAdder();
+        }
+        for(Priority priority : Priority.values()){
+            byPriority.put(priority, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    @Override
+    public void save(Expense expense) {
+        if(expense == null){
+            throw new InvalidExpenseDataException("Expense cannot be null", "expense", null);
+        }
+
+        ExpenseKey key = ExpenseKey.of(expense);
+
+        // Atomic claim: exactly one of several racing threads wins the key
+        if(!expenseKeys.add(key)){
+            throw new DuplicateExpenseException("Duplicate found:", expense.getDate(), expense.getDescription());
+        }
+
+        long id;
+        try{
+            id = claimId(expense);
+        }catch (RuntimeException e){
+            expenseKeys.remove(key);
+            throw e;
+        }
+
+        try{
+            byCategory.get(expense.getCategory()).put(id, expense);
+            byPriority.get(expense.getPriority()).put(id, expense);
+            byAmount.put(new AmountKey(expense.getAmountMinor(), id), expense);
+            categoryCounts.incrementAndGet(expense.getCategory().ordinal());
+            priorityCounts.incrementAndGet(expense.getPriority().ordinal());
+            totalMinor.add(expense.getAmountMinor());
+            categoryMinor[expense.getCategory().ordinal()].add(expense.getAmountMinor());
+            size.incrementAndGet();
+            modifications.increment();
+
+            // A delete that raced with this save may have run before the index
+            // entries above existed; drop them so no stale entry survives.
+            if(byId.get(id) != expense){
+                byCategory.get(expense.getCategory()).remove(id, expense);
+                byPriority.get(expense.getPriority()).remove(id, expense);
+                byAmount.remove(new AmountKey(expense.getAmountMinor(), id), expense);
+            }
+        }catch (Exception e){
+            throw new RepositoryException("Failed to save expense: " + expense.getDescription(), e);
+        }
+    }
+
+    /**
+     * Assigns the expense a fresh ID (or keeps the one it carries)
+     * and publishes it in the ID map.
+     */
+    private long claimId(Expense expense){
+        if(!expense.hasId()){
+            long id = nextId.getAndIncrement();
+            expense.assignId(id);
+            byId.put(id, expense);
+            return id;
+        }
+
+        long id = expense.getId();
+        if(byId.putIfAbsent(id, expense) != null){
+            throw new DuplicateExpenseException("Duplicate ID: " + id);
+        }
+        nextId.accumulateAndGet(id + 1, Math::max);
+        return id;
+    }
+
+    @Override
+    public void saveAll(Expense... expenses) {
+        if(expenses == null){
+            return;
+        }
+
+        int savedCount = 0;
+        List<String> errors = new ArrayList<>();
+
+        for(Expense expense : expenses){
+            try{
+                if(expense != null){
+                    save(expense);
+                    savedCount++;
+                }
+            }catch (Exception e){
+                errors.add("Failed to save expense: " + e.getMessage());
+            }
+        }
+
+        if(!errors.isEmpty()){
+            System.out.println("⚠️  Warnings during bulk save:");
+            errors.forEach(System.out::println);
+        }
+
+        System.out.println("✓ Saved " + savedCount + " of " +
+                expenses.length + " expenses");
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * Returns a read-only snapshot; a live positional view cannot be
+     * kept consistent while other threads write.
+     */
+    @Override
+    public List<Expense> viewAll() {
+        return Collections.unmodifiableList(findAll());
+    }
+
+    @Override
+    public Expense findById(long id) throws ExpenseNotFoundException {
+        if(id <= 0){
+            throw new InvalidExpenseDataException("ID must be positive", "id", id);
+        }
+
+        Expense expense = byId.get(id);
+
+        if(expense == null){
+            throw new ExpenseNotFoundException("No expense found with ID: " + id, id);
+        }
+
+        return expense;
+    }
+
+    @Override
+    public List<Expense> findByCategory(Category category) {
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        return new ArrayList<>(byCategory.get(category).values());
+    }
+
+    @Override
+    public List<Expense> findByPriority(Priority priority) {
+        if(priority == null){
+            throw new InvalidExpenseDataException("Priority cannot be null", "priority", null);
+        }
+
+        return new ArrayList<>(byPriority.get(priority).values());
+    }
+
+    @Override
+    public List<Expense> findExpensesAbove(double amount) {
+        if(amount < 0){
+            throw new InvalidExpenseDataException("Amount must be positive", "amount", amount);
+        }
+
+        long low = InMemoryExpenseRepository.minorAtLeast(amount);
+        return new ArrayList<>(byAmount.tailMap(AmountKey.lowest(low)).values());
+    }
+
+    @Override
+    public List<Expense> findExpensesBetween(double min, double max) {
+        if(min < 0){
+            throw new InvalidExpenseDataException("Amount must be positive", "min", min);
+        }
+
+        if(max < min){
+            throw new InvalidExpenseDataException("Maximum cannot be lower than minimum", "max", max);
+        }
+
+        long low = InMemoryExpenseRepository.minorAtLeast(min);
+        long high = InMemoryExpenseRepository.minorAtMost(max);
+        if(low > high){
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(byAmount.subMap(AmountKey.lowest(low), true, AmountKey.highest(high), true).values());
+    }
+
+    @Override
+    public Optional<Expense> findMostExpensive() {
+        // Highest amount, lowest ID among equal amounts (first saved wins)
+        while (true){
+            Map.Entry<AmountKey, Expense> last = byAmount.lastEntry();
+            if(last == null){
+                return Optional.empty();
+            }
+
+            Map.Entry<AmountKey, Expense> first = byAmount.ceilingEntry(AmountKey.lowest(last.getKey().amountMinor()));
+            if(first != null){
+                return Optional.of(first.getValue());
+            }
+            // The top amount was deleted in between - try again
+        }
+    }
+
+    @Override
+    public Optional<Expense> findCheapest() {
+        Map.Entry<AmountKey, Expense> first = byAmount.firstEntry();
+        return first == null ? Optional.empty() : Optional.of(first.getValue());
+    }
+
+    @Override
+    public int countByCategory(Category category) {
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        return categoryCounts.get(category.ordinal());
+    }
+
+    @Override
+    public double totalByCategory(Category category) {
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        return Money.toDouble(categoryMinor[category.ordinal()].sum());
+    }
+
+    @Override
+    public int countByPriority(Priority priority) {
+        if(priority == null){
+            throw new InvalidExpenseDataException("Priority cannot be null", "priority", null);
+        }
+
+        return priorityCounts.get(priority.ordinal());
+    }
+
+    @Override
+    public double totalAmount() {
+        return Money.toDouble(totalMinor.sum());
+    }
+
+    /**
+     * Returns a read-only snapshot, shared by all callers until the next
+     * save or delete. It is built with one O(n) scan after a change, without
+     * locking, so it may include some writes still running at that moment.
+     */
+    @Override
+    public ExpenseAggregates aggregates() {
+        // Read before the scan: a write counted later forces the next rebuild
+        long seen = modifications.sum();
+        AggregatesSnapshot current = snapshot;
+        if(current != null && current.modifications() == seen){
+            return current.aggregates();
+        }
+
+        ExpenseAggregates built = ExpenseAggregates.of(byId.values());
+        snapshot = new AggregatesSnapshot(seen, built);
+        return built;
+    }
+
+    @Override
+    public void delete(long id) throws ExpenseNotFoundException {
+        if(id <= 0){
+            throw new InvalidExpenseDataException("ID must be positive", "id", id);
+        }
+
+        // Atomic remove: of two racing deletes only one gets the expense back
+        Expense removed = byId.remove(id);
+
+        if(removed == null){
+            throw new ExpenseNotFoundException("Cannot delete - no expense with ID: " + id, id);
+        }
+
+        try{
+            byCategory.get(removed.getCategory()).remove(id);
+            byPriority.get(removed.getPriority()).remove(id);
+            byAmount.remove(new AmountKey(removed.getAmountMinor(), id));
+            categoryCounts.decrementAndGet(removed.getCategory().ordinal());
+            priorityCounts.decrementAndGet(removed.getPriority().ordinal());
+            totalMinor.add(-removed.getAmountMinor());
+            categoryMinor[removed.getCategory().ordinal()].add(-removed.getAmountMinor());
+            size.decrementAndGet();
+            expenseKeys.remove(ExpenseKey.of(removed));
+            modifications.increment();
+        }catch (Exception e){
+            throw new RepositoryException("Failed to delete expense with ID: " + id, e);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        for(Long id : byId.keySet()){
+            try{
+                delete(id);
+            }catch (ExpenseNotFoundException e){
+                // Deleted concurrently - nothing left to do
+            }
+        }
+    }
+
+    @Override
+    public int count() {
+        return size.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Aggregates built by aggregates() and the modification count they were built at.
+     */
+    private record AggregatesSnapshot(long modifications, ExpenseAggregates aggregates) {
+    }
+
+    /**
+     * Identity of an expense for duplicate detection (same date and description).
+     */
+    private record ExpenseKey(int epochDay, String description) {
+
+        static ExpenseKey of(Expense expense){
+            return new ExpenseKey(expense.getEpochDay(), expense.getDescription());
+        }
+    }
+
+    /**
+     * Amount index key (grosze); the ID makes equal amounts distinct and keeps them in save order.
+     */
+    private record AmountKey(long amountMinor, long id) implements Comparable<AmountKey> {
+
+        static AmountKey lowest(long amountMinor){
+            return new AmountKey(amountMinor, Long.MIN_VALUE);
+        }
+
+        static AmountKey highest(long amountMinor){
+            return new AmountKey(amountMinor, Long.MAX_VALUE);
+        }
+
+        @Override
+        public int compareTo(AmountKey other) {
+            int byAmount = Long.compare(amountMinor, other.amountMinor);
+            return byAmount != 0 ? byAmount : Long.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package repository;
+
+import model.Category;
+import model.Dates;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Fenwick trees (binary indexed trees) of amounts and counts over epoch-days,
+ * one per category plus one for all expenses.
+ *
+ * A tree stores partial sums so that a prefix sum "everything up to day d"
+ * is the sum of at most log2(days) cells; a range [from, to] is two prefix
+ * sums. Adding or removing an expense updates log2(days) cells per tree.
+ * Amounts are grosze, so sums are exact.
+ *
+ * Trees are kept per calendar year, only for years that have expenses,
+ * next to each year's totals. A range query adds the totals of the whole
+ * years inside it and two prefix-sum differences for the years at its
+ * ends, so it costs O(log 366 + years in range). Memory is about 30KB per
+ * year in use, however far apart the dates are: one expense dated
+ * 9999-12-31 adds one year, not a window reaching it. A year whose last
+ * expense is removed is dropped.
+ *
+ * Not thread-safe; owned by ExpenseAggregates.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.2.0
+ */
+final class DateRangeIndex {
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    /**
+     * One tree per category, then one for all expenses.
+     */
+    private static final int ALL = CATEGORIES.length;
+    private static final int TREES = ALL + 1;
+
+    private static final int DAYS_PER_YEAR = 366;
+
+    /**
+     * Year -> trees of that year.
+     */
+    private final NavigableMap<Integer, YearTrees> years;
+
+    DateRangeIndex(){
+        this.years = new TreeMap<>();
+    }
+
+    void add(int epochDay, Category category, long amount){
+        update(epochDay, category, amount, 1);
+    }
+
+    void remove(int epochDay, Category category, long amount){
+        update(epochDay, category, -amount, -1);
+    }
+
+    void clear(){
+        years.clear();
+    }
+
+    DateRangeIndex copy(){
+        DateRangeIndex copy = new DateRangeIndex();
+        for(Map.Entry<Integer, YearTrees> entry : years.entrySet()){
+            copy.years.put(entry.getKey(), entry.getValue().copy());
+        }
+        return copy;
+    }
+
+    // ---- queries ----
+
+    /**
+     * Sum in grosze of expenses dated fromDay..toDay (both inclusive).
+     *
+     * @param category category to sum, or null for all expenses
+     */
+    long sum(int fromDay, int toDay, Category category){
+        int tree = treeOf(category);
+        long sum = 0;
+
+        for(YearTrees year : yearsBetween(fromDay, toDay).values()){
+            int first = Math.max(fromDay, year.firstDay) - year.firstDay;
+            int last = (int) Math.min(toDay, year.lastDay()) - year.firstDay;
+            sum += year.sum(tree, first, last);
+        }
+        return sum;
+    }
+
+    /**
+     * Number of expenses dated fromDay..toDay (both inclusive).
+     *
+     * @param category category to count, or null for all expenses
+     */
+    int count(int fromDay, int toDay, Category category){
+        int tree = treeOf(category);
+        int count = 0;
+
+        for(YearTrees year : yearsBetween(fromDay, toDay).values()){
+            int first = Math.max(fromDay, year.firstDay) - year.firstDay;
+            int last = (int) Math.min(toDay, year.lastDay()) - year.firstDay;
+            count += year.count(tree, first, last);
+        }
+        return count;
+    }
+
+    /**
+     * Years that have expenses and overlap fromDay..toDay.
+     */
+    private NavigableMap<Integer, YearTrees> yearsBetween(int fromDay, int toDay){
+        if(toDay < fromDay || years.isEmpty()){
+            return new TreeMap<>();
+        }
+
+        // Clamp to the years held first, so only real dates reach Dates.year
+        YearTrees firstYear = years.firstEntry().getValue();
+        YearTrees lastYear = years.lastEntry().getValue();
+        if(toDay < firstYear.firstDay || fromDay > lastYear.lastDay()){
+            return new TreeMap<>();
+        }
+
+        int fromYear = Dates.year(Math.max(fromDay, firstYear.firstDay));
+        int toYear = Dates.year((int) Math.min(toDay, lastYear.lastDay()));
+        return years.subMap(fromYear, true, toYear, true);
+    }
+
+    private static int treeOf(Category category){
+        return category == null ? ALL : category.ordinal();
+    }
+
+    // ---- updates ----
+
+    private void update(int epochDay, Category category, long amount, int countChange){
+        int year = Dates.year(epochDay);
+        YearTrees trees = years.get(year);
+        if(trees == null){
+            trees = new YearTrees(Dates.toEpochDay(year, 1, 1));
+            years.put(year, trees);
+        }
+
+        int day = epochDay - trees.firstDay;
+        trees.update(category.ordinal(), day, amount, countChange);
+        trees.update(ALL, day, amount, countChange);
+
+        if(trees.totalCounts[ALL] == 0){
+            years.remove(year);
+        }
+    }
+
+    /**
+     * Trees and totals of one calendar year; tree position 1 is January 1st.
+     */
+    private static final class YearTrees {
+
+        final int firstDay;
+        final long[][] sums;
+        final int[][] counts;
+        final long[] totalSums;
+        final int[] totalCounts;
+
+        YearTrees(int firstDay){
+            this.firstDay = firstDay;
+            this.sums = new long[TREES][DAYS_PER_YEAR + 1];
+            this.counts = new int[TREES][DAYS_PER_YEAR + 1];
+            this.totalSums = new long[TREES];
+            this.totalCounts = new int[TREES];
+        }
+
+        YearTrees copy(){
+            YearTrees copy = new YearTrees(firstDay);
+            for(int tree = 0; tree < TREES; tree++){
+                System.arraycopy(sums[tree], 0, copy.sums[tree], 0, DAYS_PER_YEAR + 1);
+                System.arraycopy(counts[tree], 0, copy.counts[tree], 0, DAYS_PER_YEAR + 1);
+            }
+            System.arraycopy(totalSums, 0, copy.totalSums, 0, TREES);
+            System.arraycopy(totalCounts, 0, copy.totalCounts, 0, TREES);
+            return copy;
+        }
+
+        /**
+         * Last epoch-day a position exists for (December 31st, or the day after in a common year).
+         */
+        long lastDay(){
+            return (long) firstDay + DAYS_PER_YEAR - 1;
+        }
+
+        void update(int tree, int day, long amount, int countChange){
+            long[] sumTree = sums[tree];
+            int[] countTree = counts[tree];
+            for(int i = day + 1; i <= DAYS_PER_YEAR; i += i & -i){
+                sumTree[i] += amount;
+                countTree[i] += countChange;
+            }
+            totalSums[tree] += amount;
+            totalCounts[tree] += countChange;
+        }
+
+        /**
+         * Sum of days first..last of the year (0-based, both inclusive).
+         */
+        long sum(int tree, int first, int last){
+            if(first == 0 && last == DAYS_PER_YEAR - 1){
+                return totalSums[tree];
+            }
+            return prefixSum(sums[tree], last + 1) - prefixSum(sums[tree], first);
+        }
+
+        int count(int tree, int first, int last){
+            if(first == 0 && last == DAYS_PER_YEAR - 1){
+                return totalCounts[tree];
+            }
+            return prefixCount(counts[tree], last + 1) - prefixCount(counts[tree], first);
+        }
+
+        private static long prefixSum(long[] tree, int position){
+            long sum = 0;
+            for(int i = position; i > 0; i -= i & -i){
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        private static int prefixCount(int[] tree, int position){
+            int count = 0;
+            for(int i = position; i > 0; i -= i & -i){
+                count += tree[i];
+            }
+            return count;
+        }
+    }
+}
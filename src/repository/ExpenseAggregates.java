@@ -0,0 +1,406 @@
+package repository;
+
+import model.Category;
+import model.Dates;
+import model.Expense;
+import model.Money;
+import model.Priority;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Running totals and counts of a repository's expenses: overall,
+ * per category and per priority, plus totals and counts over any date
+ * range (see DateRangeIndex), the day/month/year x category x priority
+ * cube (see SpendingCube, which also answers the per-date totals),
+ * amount quantile sketches per category and per month (see QuantileSketch)
+ * and the top descriptions by count and by spend (see HeavyHitters).
+ *
+ * Repositories update it on save, delete and deleteAll, so queries don't
+ * scan the expenses: overall, category and priority totals are O(1),
+ * per-date totals O(log days), date ranges O(log days + years).
+ * amountSketch(null) and monthAmountSketch merge sketches, and cube
+ * range totals visit each non-empty bucket in the range. Sums are kept in
+ * grosze as longs, so they are exact: millions of saves and deletes
+ * never make the totals drift, and adding then removing an expense
+ * restores exactly the previous total.
+ *
+ * Callers only read it; the update methods are package-private.
+ * Not thread-safe - repositories used from several threads hand out a copy().
+ *
+ * @author Konrad Wojdyna
+ * @version 0.7.0
+ */
+public class ExpenseAggregates {
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    /**
+     * Slot layout shared by sums and counts:
+     * [0] all expenses, then one slot per category, then one per priority.
+     */
+    private static final int TOTAL = 0;
+    private static final int FIRST_CATEGORY = 1;
+    private static final int FIRST_PRIORITY = FIRST_CATEGORY + CATEGORIES.length;
+    private static final int SLOTS = FIRST_PRIORITY + PRIORITIES.length;
+
+    private final long[] sums;
+    private final int[] counts;
+
+    private final Map<String, Double> dateTotalsView;
+
+    private final DateRangeIndex dateRanges;
+    private final SpendingCube cube;
+
+    /**
+     * Amount distribution per category (by ordinal) and per month index.
+     */
+    private final QuantileSketch[] categorySketches;
+    private final Map<Integer, QuantileSketch> monthSketches;
+
+    /**
+     * Most frequent descriptions (weight 1 per expense) and most costly ones (weight = amount).
+     */
+    private final HeavyHitters frequentDescriptions;
+    private final HeavyHitters costlyDescriptions;
+
+    public ExpenseAggregates(){
+        this(new DateRangeIndex(), new SpendingCube());
+    }
+
+    private ExpenseAggregates(DateRangeIndex dateRanges, SpendingCube cube){
+        this.sums = new long[SLOTS];
+        this.counts = new int[SLOTS];
+        this.dateTotalsView = new DateTotalsView();
+        this.dateRanges = dateRanges;
+        this.cube = cube;
+        this.categorySketches = new QuantileSketch[CATEGORIES.length];
+        for(int i = 0; i < categorySketches.length; i++){
+            categorySketches[i] = new QuantileSketch();
+        }
+        this.monthSketches = new HashMap<>();
+        this.frequentDescriptions = new HeavyHitters();
+        this.costlyDescriptions = new HeavyHitters();
+    }
+
+    /**
+     * Builds aggregates by scanning expenses once; used by repositories
+     * that don't keep running aggregates.
+     */
+    public static ExpenseAggregates of(Iterable<Expense> expenses){
+        ExpenseAggregates aggregates = new ExpenseAggregates();
+        for(Expense expense : expenses){
+            aggregates.add(expense);
+        }
+        return aggregates;
+    }
+
+    // ---- updates ----
+
+    void add(Expense expense){
+        long amount = expense.getAmountMinor();
+
+        update(TOTAL, amount, 1);
+        update(FIRST_CATEGORY + expense.getCategory().ordinal(), amount, 1);
+        update(FIRST_PRIORITY + expense.getPriority().ordinal(), amount, 1);
+
+        dateRanges.add(expense.getEpochDay(), expense.getCategory(), amount);
+        cube.add(expense);
+
+        categorySketches[expense.getCategory().ordinal()].add(amount);
+        monthSketches.computeIfAbsent(expense.getMonthIndex(), month -> new QuantileSketch()).add(amount);
+
+        frequentDescriptions.add(expense.getDescription(), 1);
+        costlyDescriptions.add(expense.getDescription(), amount);
+    }
+
+    /**
+     * Takes back an expense added before. Callers must not remove an
+     * expense whose add has not been applied yet: the top-description
+     * trackers only lower estimates they hold, so an early remove would
+     * leave the late add behind for good.
+     */
+    void remove(Expense expense){
+        long amount = expense.getAmountMinor();
+
+        update(TOTAL, -amount, -1);
+        update(FIRST_CATEGORY + expense.getCategory().ordinal(), -amount, -1);
+        update(FIRST_PRIORITY + expense.getPriority().ordinal(), -amount, -1);
+
+        dateRanges.remove(expense.getEpochDay(), expense.getCategory(), amount);
+        cube.remove(expense);
+
+        categorySketches[expense.getCategory().ordinal()].remove(amount);
+        QuantileSketch monthSketch = monthSketches.get(expense.getMonthIndex());
+        monthSketch.remove(amount);
+        if(monthSketch.isEmpty()){
+            monthSketches.remove(expense.getMonthIndex());
+        }
+
+        frequentDescriptions.remove(expense.getDescription(), 1);
+        costlyDescriptions.remove(expense.getDescription(), amount);
+    }
+
+    void clear(){
+        for(int slot = 0; slot < SLOTS; slot++){
+            sums[slot] = 0;
+            counts[slot] = 0;
+        }
+        dateRanges.clear();
+        cube.clear();
+        for(QuantileSketch sketch : categorySketches){
+            sketch.clear();
+        }
+        monthSketches.clear();
+        frequentDescriptions.clear();
+        costlyDescriptions.clear();
+    }
+
+    /**
+     * Independent copy, for handing out a consistent snapshot.
+     */
+    public ExpenseAggregates copy(){
+        ExpenseAggregates copy = new ExpenseAggregates(dateRanges.copy(), cube.copy());
+        System.arraycopy(sums, 0, copy.sums, 0, SLOTS);
+        System.arraycopy(counts, 0, copy.counts, 0, SLOTS);
+
+        for(int i = 0; i < categorySketches.length; i++){
+            copy.categorySketches[i] = categorySketches[i].copy();
+        }
+        for(Map.Entry<Integer, QuantileSketch> entry : monthSketches.entrySet()){
+            copy.monthSketches.put(entry.getKey(), entry.getValue().copy());
+        }
+
+        copy.frequentDescriptions.copyFrom(frequentDescriptions);
+        copy.costlyDescriptions.copyFrom(costlyDescriptions);
+        return copy;
+    }
+
+    private void update(int slot, long amount, int countChange){
+        counts[slot] += countChange;
+        sums[slot] += amount;
+    }
+
+    // ---- queries ----
+
+    public double totalAmount(){
+        return Money.toDouble(sums[TOTAL]);
+    }
+
+    /**
+     * Exact total in grosze.
+     */
+    public long totalAmountMinor(){
+        return sums[TOTAL];
+    }
+
+    public int count(){
+        return counts[TOTAL];
+    }
+
+    public double totalByCategory(Category category){
+        return Money.toDouble(totalByCategoryMinor(category));
+    }
+
+    public long totalByCategoryMinor(Category category){
+        return sums[FIRST_CATEGORY + category.ordinal()];
+    }
+
+    public int countByCategory(Category category){
+        return counts[FIRST_CATEGORY + category.ordinal()];
+    }
+
+    public double totalByPriority(Priority priority){
+        return Money.toDouble(totalByPriorityMinor(priority));
+    }
+
+    public long totalByPriorityMinor(Priority priority){
+        return sums[FIRST_PRIORITY + priority.ordinal()];
+    }
+
+    public int countByPriority(Priority priority){
+        return counts[FIRST_PRIORITY + priority.ordinal()];
+    }
+
+    /**
+     * Sum of expenses on one date (YYYY-MM-DD), 0 if there are none.
+     */
+    public double totalForDate(String date){
+        return totalForDate(Dates.parse(date));
+    }
+
+    /**
+     * Sum of expenses on one date (epoch-day), 0 if there are none.
+     */
+    public double totalForDate(int epochDay){
+        return Money.toDouble(cube.totalMinor(SpendingCube.Level.DAY, epochDay, null, null));
+    }
+
+    /**
+     * Sum of expenses dated fromDay..toDay (epoch-days, both inclusive).
+     */
+    public double totalBetween(int fromDay, int toDay){
+        return Money.toDouble(totalBetweenMinor(fromDay, toDay, null));
+    }
+
+    /**
+     * Sum of expenses in a category dated fromDay..toDay (epoch-days, both inclusive).
+     */
+    public double totalBetween(int fromDay, int toDay, Category category){
+        return Money.toDouble(totalBetweenMinor(fromDay, toDay, category));
+    }
+
+    /**
+     * Exact sum in grosze of expenses dated fromDay..toDay.
+     *
+     * @param category category to sum, or null for all expenses
+     */
+    public long totalBetweenMinor(int fromDay, int toDay, Category category){
+        return dateRanges.sum(fromDay, toDay, category);
+    }
+
+    public int countBetween(int fromDay, int toDay){
+        return dateRanges.count(fromDay, toDay, null);
+    }
+
+    public int countBetween(int fromDay, int toDay, Category category){
+        return dateRanges.count(fromDay, toDay, category);
+    }
+
+    /**
+     * Totals per day, month and year sliced by category and priority.
+     * Updated together with these aggregates; callers can only read it.
+     */
+    public SpendingCube cube(){
+        return cube;
+    }
+
+    /**
+     * Distribution of expense amounts in a category, for median/p90/p99
+     * within QuantileSketch.RELATIVE_ERROR.
+     *
+     * @param category category, or null for all expenses (the category sketches merged)
+     */
+    public QuantileSketch amountSketch(Category category){
+        if(category != null){
+            return categorySketches[category.ordinal()];
+        }
+
+        QuantileSketch all = new QuantileSketch();
+        for(QuantileSketch sketch : categorySketches){
+            all.addAll(sketch);
+        }
+        return all;
+    }
+
+    /**
+     * Descriptions with the most expenses (estimates are counts).
+     */
+    public HeavyHitters frequentDescriptions(){
+        return frequentDescriptions;
+    }
+
+    /**
+     * Descriptions with the highest spend (estimates are grosze).
+     */
+    public HeavyHitters costlyDescriptions(){
+        return costlyDescriptions;
+    }
+
+    /**
+     * Distribution of expense amounts in months fromMonth..toMonth
+     * (month indexes, both inclusive; see Dates.parseMonth).
+     */
+    public QuantileSketch monthAmountSketch(int fromMonth, int toMonth){
+        QuantileSketch merged = new QuantileSketch();
+        for(Map.Entry<Integer, QuantileSketch> entry : monthSketches.entrySet()){
+            if(entry.getKey() >= fromMonth && entry.getKey() <= toMonth){
+                merged.addAll(entry.getValue());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Number of distinct dates that have expenses.
+     */
+    public int dateCount(){
+        return cube.bucketSet(SpendingCube.Level.DAY).size();
+    }
+
+    /**
+     * Dates (YYYY-MM-DD) that have expenses, in date order, mapped to their
+     * totals. Read-only live view of the cube's day level: reflects later
+     * changes without copying; date texts are formatted while iterating.
+     */
+    public Map<String, Double> totalsByDate(){
+        return dateTotalsView;
+    }
+
+    private class DateTotalsView extends AbstractMap<String, Double> {
+
+        @Override
+        public Double get(Object date) {
+            Integer epochDay = epochDayOf(date);
+            return epochDay == null || !days().contains(epochDay) ? null : totalForDate(epochDay);
+        }
+
+        @Override
+        public boolean containsKey(Object date) {
+            Integer epochDay = epochDayOf(date);
+            return epochDay != null && days().contains(epochDay);
+        }
+
+        private Set<Integer> days(){
+            return cube.bucketSet(SpendingCube.Level.DAY);
+        }
+
+        /**
+         * Epoch-day of a YYYY-MM-DD key, or null if it isn't one.
+         */
+        private Integer epochDayOf(Object date){
+            if(!(date instanceof String text) || !Dates.isValid(text)){
+                return null;
+            }
+            return Dates.parse(text);
+        }
+
+        @Override
+        public int size() {
+            return days().size();
+        }
+
+        @Override
+        public Set<Entry<String, Double>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Double>> iterator() {
+                    Iterator<Integer> dates = days().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return dates.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Double> next() {
+                            int epochDay = dates.next();
+                            return new SimpleImmutableEntry<>(Dates.format(epochDay), totalForDate(epochDay));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return days().size();
+                }
+            };
+        }
+    }
+}
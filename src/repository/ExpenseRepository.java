@@ -1,11 +1,18 @@
 package repository;
 
 import exception.ExpenseNotFoundException;
+import exception.InvalidExpenseDataException;
 import model.Category;
+import model.Dates;
 import model.Expense;
+import model.Money;
 import model.Priority;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Repository interface for expense data access.
@@ -21,6 +28,7 @@ public interface ExpenseRepository {
 
     /**
      * Saves an expense to the repository.
+     * Assigns the next free ID unless the expense already carries one.
      *
      * @param expense the expense to save.
      * @throws  IllegalArgumentException if expense is null
@@ -35,6 +43,28 @@ public interface ExpenseRepository {
      */
     void saveAll(Expense ...expenses);
 
+    /**
+     * Saves expenses in order, each as with save(); a row that fails is
+     * reported and the rest are still saved. Durable repositories commit
+     * the whole batch at once instead of once per row.
+     *
+     * @param expenses the expenses to save
+     * @param onError called with the error and list index of every row not saved
+     * @return number of expenses saved
+     */
+    default int saveBatch(List<Expense> expenses, ObjIntConsumer<RuntimeException> onError){
+        int savedCount = 0;
+        for(int i = 0; i < expenses.size(); i++){
+            try{
+                save(expenses.get(i));
+                savedCount++;
+            }catch (RuntimeException e){
+                onError.accept(e, i);
+            }
+        }
+        return savedCount;
+    }
+
     /**
      * Retrieves all expenses from the repository.
      *
@@ -43,12 +73,26 @@ public interface ExpenseRepository {
     List<Expense> findAll();
 
     /**
-     * Finds expese by index position.
+     * Returns a read-only view of all expenses, in saved order.
      *
-     * @param index the index (0-based)
-     * @return the expense at that index
+     * Unlike findAll() the view is not a copy: it reflects later changes,
+     * so callers should iterate it right away and not keep it across writes.
+     * Use findAll() when an independent list is needed.
+     *
+     * @return unmodifiable view of all expenses
      */
-    Expense findById(int index) throws ExpenseNotFoundException;
+    default List<Expense> viewAll(){
+        return Collections.unmodifiableList(findAll());
+    }
+
+    /**
+     * Finds expense by its stable ID (assigned at save time).
+     *
+     * @param id the expense ID
+     * @return the expense with that ID
+     * @throws ExpenseNotFoundException if no expense has that ID
+     */
+    Expense findById(long id) throws ExpenseNotFoundException;
 
     /**
      * Finds all expenses in specified category.
@@ -66,6 +110,65 @@ public interface ExpenseRepository {
      */
     List<Expense> findByPriority(Priority priority);
 
+    /**
+     * Sums amounts of all expenses.
+     *
+     * @return total amount in PLN
+     */
+    default double totalAmount(){
+        long totalMinor = 0;
+        for(Expense expense : viewAll()){
+            totalMinor += expense.getAmountMinor();
+        }
+        return Money.toDouble(totalMinor);
+    }
+
+    /**
+     * Counts expenses in specified category.
+     *
+     * @param category the category to count
+     * @return number of expenses in that category
+     */
+    default int countByCategory(Category category){
+        return findByCategory(category).size();
+    }
+
+    /**
+     * Sums amounts of expenses in specified category.
+     *
+     * @param category the category to sum
+     * @return total amount in PLN for that category
+     */
+    default double totalByCategory(Category category){
+        long totalMinor = 0;
+        for(Expense expense : findByCategory(category)){
+            totalMinor += expense.getAmountMinor();
+        }
+        return Money.toDouble(totalMinor);
+    }
+
+    /**
+     * Counts expenses with specified priority.
+     *
+     * @param priority the priority level
+     * @return number of expenses with that priority
+     */
+    default int countByPriority(Priority priority){
+        return findByPriority(priority).size();
+    }
+
+    /**
+     * Returns totals and counts overall, per category, per priority and per date.
+     *
+     * The default builds them with one scan over all expenses. Repositories
+     * that keep them up to date on every write return them in O(1); the
+     * result is then a read-only live object, so read it right away.
+     *
+     * @return aggregates of the current expenses
+     */
+    default ExpenseAggregates aggregates(){
+        return ExpenseAggregates.of(viewAll());
+    }
 
     /**
      * Finds all expenses above specified amount.
@@ -76,12 +179,128 @@ public interface ExpenseRepository {
     List<Expense> findExpensesAbove(double amount);
 
     /**
-     * Deletes expense at specified index.
+     * Finds all expenses with amount in the given range (both ends inclusive).
+     *
+     * @param min lower bound
+     * @param max upper bound
+     * @return list of matching expenses (empty if none)
+     */
+    default List<Expense> findExpensesBetween(double min, double max){
+        List<Expense> result = new ArrayList<>();
+        for(Expense expense : findExpensesAbove(min)){
+            if(expense.getAmount() <= max){
+                result.add(expense);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds all expenses from specified month.
+     *
+     * @param month the month (YYYY-MM format)
+     * @return list of matching expenses (empty if none)
+     * @throws InvalidExpenseDataException if month is not YYYY-MM
+     */
+    default List<Expense> findByMonth(String month){
+        int monthIndex;
+        try{
+            monthIndex = Dates.parseMonth(month);
+        }catch (IllegalArgumentException e){
+            throw new InvalidExpenseDataException("Month must be in YYYY-MM format", "month", month);
+        }
+
+        List<Expense> result = new ArrayList<>();
+        for(Expense expense : viewAll()){
+            if(expense.isFromMonth(monthIndex)){
+                result.add(expense);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds all expenses dated between two dates (both ends inclusive).
+     *
+     * @param from first date (YYYY-MM-DD)
+     * @param to last date (YYYY-MM-DD)
+     * @return list of matching expenses (empty if none)
+     * @throws InvalidExpenseDataException if a date is not YYYY-MM-DD
+     */
+    default List<Expense> findBetweenDates(String from, String to){
+        int first;
+        int last;
+        try{
+            first = Dates.parse(from);
+            last = Dates.parse(to);
+        }catch (IllegalArgumentException e){
+            throw new InvalidExpenseDataException("Date must be in YYYY-MM-DD format", "date", from + " - " + to);
+        }
+
+        List<Expense> result = new ArrayList<>();
+        for(Expense expense : viewAll()){
+            int epochDay = expense.getEpochDay();
+            if(epochDay >= first && epochDay <= last){
+                result.add(expense);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sums amounts of expenses from specified month.
+     *
+     * @param month the month (YYYY-MM format)
+     * @return total amount in PLN for that month
+     */
+    default double totalForMonth(String month){
+        long totalMinor = 0;
+        for(Expense expense : findByMonth(month)){
+            totalMinor += expense.getAmountMinor();
+        }
+        return Money.toDouble(totalMinor);
+    }
+
+    /**
+     * Finds the expense with the highest amount.
+     * When several share the highest amount, the first saved one wins.
+     *
+     * @return the most expensive expense, or empty if repository is empty
+     */
+    default Optional<Expense> findMostExpensive(){
+        Expense mostExpensive = null;
+        for(Expense expense : viewAll()){
+            if(mostExpensive == null || expense.getAmount() > mostExpensive.getAmount()){
+                mostExpensive = expense;
+            }
+        }
+        return Optional.ofNullable(mostExpensive);
+    }
+
+    /**
+     * Finds the expense with the lowest amount.
+     * When several share the lowest amount, the first saved one wins.
+     *
+     * @return the cheapest expense, or empty if repository is empty
+     */
+    default Optional<Expense> findCheapest(){
+        Expense cheapest = null;
+        for(Expense expense : viewAll()){
+            if(cheapest == null || expense.getAmount() < cheapest.getAmount()){
+                cheapest = expense;
+            }
+        }
+        return Optional.ofNullable(cheapest);
+    }
+
+    /**
+     * Deletes expense with specified ID.
+     * IDs of other expenses are not affected.
      *
-     * @param index the index (0-based)
-     * @throws IndexOutOfBoundsException if index invalid
+     * @param id the expense ID
+     * @throws ExpenseNotFoundException if no expense has that ID
      */
-    void delete(int index) throws ExpenseNotFoundException;
+    void delete(long id) throws ExpenseNotFoundException;
 
     /**
      * Deletes all expenses from repository.
@@ -0,0 +1,247 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Top descriptions by weight (number of expenses, or spend in grosze) in
+ * fixed memory, with the Space-Saving algorithm.
+ *
+ * At most CAPACITY descriptions are tracked. A new description takes the
+ * slot of the one with the smallest estimate; the evicted estimate raises
+ * maxError(), the most any untracked description can weigh, and the new
+ * description starts from it. So for every tracked description
+ *
+ *   estimate - error <= exact weight <= estimate, with error <= maxError()
+ *
+ * and any description heavier than maxError() is tracked. Without deletes
+ * this is plain Space-Saving and maxError() <= total / CAPACITY. Removing
+ * an expense lowers its description's estimate if it is tracked (freeing
+ * the slot at 0) and changes nothing otherwise; maxError() never drops
+ * then, so the bounds still hold, only total / CAPACITY may not.
+ *
+ * Slots are kept in an indexed min-heap over primitive arrays, so updates
+ * cost O(log CAPACITY) and memory does not depend on the number of distinct
+ * descriptions.
+ *
+ * Callers only read it; the update methods are package-private.
+ * Not thread-safe; owned by ExpenseAggregates.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public final class HeavyHitters {
+
+    public static final int CAPACITY = 200;
+
+    /**
+     * One tracked description: estimated weight and how far it may be too high.
+     */
+    public record Entry(String description, long estimate, long error) {
+
+        /**
+         * Weight the description is guaranteed to have at least.
+         */
+        public long guaranteed(){
+            return estimate - error;
+        }
+    }
+
+    private final String[] descriptions;
+    private final long[] estimates;
+    private final long[] errors;
+
+    /**
+     * Min-heap of slots by estimate, and each slot's position in it.
+     */
+    private final int[] heap;
+    private final int[] positions;
+
+    private final Map<String, Integer> slots;
+    private long total;
+
+    /**
+     * Largest estimate ever evicted: upper bound of every untracked description.
+     */
+    private long untracked;
+
+    public HeavyHitters(){
+        this.descriptions = new String[CAPACITY];
+        this.estimates = new long[CAPACITY];
+        this.errors = new long[CAPACITY];
+        this.heap = new int[CAPACITY];
+        this.positions = new int[CAPACITY];
+        this.slots = new HashMap<>();
+        clear();
+    }
+
+    // ---- updates ----
+
+    void add(String description, long weight){
+        total += weight;
+
+        Integer slot = slots.get(description);
+        if(slot == null){
+            // Take over the lightest slot (an empty one has weight 0)
+            slot = heap[0];
+            if(descriptions[slot] != null){
+                untracked = Math.max(untracked, estimates[slot]);
+                slots.remove(descriptions[slot]);
+            }
+            descriptions[slot] = description;
+            estimates[slot] = untracked;
+            errors[slot] = untracked;
+            slots.put(description, slot);
+        }
+
+        estimates[slot] += weight;
+        siftDown(positions[slot]);
+    }
+
+    /**
+     * Takes back weight added before; must come after the matching add.
+     */
+    void remove(String description, long weight){
+        total -= weight;
+        if(total == 0){
+            // Nothing left, so nothing can be over-estimated any more
+            clear();
+            return;
+        }
+
+        Integer slot = slots.get(description);
+        if(slot == null){
+            return;
+        }
+
+        estimates[slot] -= weight;
+        if(estimates[slot] <= 0){
+            slots.remove(description);
+            descriptions[slot] = null;
+            estimates[slot] = 0;
+            errors[slot] = 0;
+        }
+        errors[slot] = Math.min(errors[slot], estimates[slot]);
+        siftUp(positions[slot]);
+    }
+
+    void clear(){
+        Arrays.fill(descriptions, null);
+        Arrays.fill(estimates, 0);
+        Arrays.fill(errors, 0);
+        for(int i = 0; i < CAPACITY; i++){
+            heap[i] = i;
+            positions[i] = i;
+        }
+        slots.clear();
+        total = 0;
+        untracked = 0;
+    }
+
+    /**
+     * Independent copy, for handing out a consistent snapshot.
+     */
+    public HeavyHitters copy(){
+        HeavyHitters copy = new HeavyHitters();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Makes this tracker the same as another one.
+     */
+    void copyFrom(HeavyHitters other){
+        System.arraycopy(other.descriptions, 0, descriptions, 0, CAPACITY);
+        System.arraycopy(other.estimates, 0, estimates, 0, CAPACITY);
+        System.arraycopy(other.errors, 0, errors, 0, CAPACITY);
+        System.arraycopy(other.heap, 0, heap, 0, CAPACITY);
+        System.arraycopy(other.positions, 0, positions, 0, CAPACITY);
+        slots.clear();
+        slots.putAll(other.slots);
+        total = other.total;
+        untracked = other.untracked;
+    }
+
+    // ---- queries ----
+
+    /**
+     * The k heaviest tracked descriptions, heaviest first.
+     * Ties go to the smaller error, then alphabetically.
+     *
+     * @param k number of entries, at most CAPACITY are returned
+     */
+    public List<Entry> top(int k){
+        List<Entry> entries = new ArrayList<>(slots.size());
+        for(Map.Entry<String, Integer> tracked : slots.entrySet()){
+            int slot = tracked.getValue();
+            entries.add(new Entry(tracked.getKey(), estimates[slot], errors[slot]));
+        }
+
+        entries.sort((a, b) -> a.estimate() != b.estimate()
+                ? Long.compare(b.estimate(), a.estimate())
+                : a.error() != b.error()
+                ? Long.compare(a.error(), b.error())
+                : a.description().compareTo(b.description()));
+
+        return entries.subList(0, Math.min(Math.max(k, 0), entries.size()));
+    }
+
+    /**
+     * Sum of all weights added and not removed, tracked or not.
+     */
+    public long total(){
+        return total;
+    }
+
+    /**
+     * Largest possible error of any estimate, and the most any untracked
+     * description can weigh; 0 while every description is tracked.
+     */
+    public long maxError(){
+        return untracked;
+    }
+
+    // ---- heap ----
+
+    private void siftDown(int position){
+        while (true){
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+
+            if(left < CAPACITY && estimates[heap[left]] < estimates[heap[smallest]]){
+                smallest = left;
+            }
+            if(right < CAPACITY && estimates[heap[right]] < estimates[heap[smallest]]){
+                smallest = right;
+            }
+            if(smallest == position){
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void siftUp(int position){
+        while (position > 0){
+            int parent = (position - 1) / 2;
+            if(estimates[heap[parent]] <= estimates[heap[position]]){
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void swap(int a, int b){
+        int slot = heap[a];
+        heap[a] = heap[b];
+        heap[b] = slot;
+        positions[heap[a]] = a;
+        positions[heap[b]] = b;
+    }
+}
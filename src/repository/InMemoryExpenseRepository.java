@@ -6,30 +6,122 @@ import exception.InvalidExpenseDataException;
 import exception.RepositoryException;
 import model.Category;
 import model.Expense;
+import model.Money;
 import model.Priority;
+import util.LongIntHashMap;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
- * In-memory implementation of ExpenseRepository using ArrayList.
+ * In-memory implementation of ExpenseRepository using an array of slots.
  *
  * This implementation stores expenses in memory and will lose
  * data when application stops. Useful for development and testing.
  *
+ * Each saved expense gets a stable long ID. A primitive ID-to-slot map
+ * gives O(1) lookup and delete; deleted slots are squeezed out lazily.
+ * The secondary indexes are PostingLists, so deleting from them is O(1) too.
+ *
  * @author Konrad Wojdyna
- * @version 0.2.0
+ * @version 0.4.0
  */
 
 public class InMemoryExpenseRepository implements ExpenseRepository{
 
-    private final ArrayList<Expense> expenses;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_SLOT = -1;
+
+    /**
+     * Expenses in saved order. Delete only nulls out a slot, so it never
+     * shifts the array; compact() squeezes the gaps out once they outnumber
+     * the expenses.
+     */
+    private Expense[] slots;
+    private int slotCount;
+    private int size;
+
+    /**
+     * Fenwick tree of occupied slots (1-based, one per slots entry), so the
+     * view finds the n-th expense in O(log n) while there are gaps.
+     */
+    private int[] liveSlots;
+
+    /**
+     * ID -> slot position, and the next ID to hand out.
+     */
+    private final LongIntHashMap slotById;
+    private long nextId;
+
+    /**
+     * Read-only window onto expenses, created once and handed out by viewAll().
+     */
+    private final List<Expense> expensesView;
+
+    /**
+     * Index of (date, description) pairs already stored.
+     * Lets save() detect duplicates in O(1) instead of scanning every expense.
+     */
+    private final Set<ExpenseKey> expenseKeys;
+
+    /**
+     * Secondary indexes: expenses of each category/priority in insertion order,
+     * plus running totals and counts. Kept in sync on save and delete.
+     */
+    private final Map<Category, PostingList> byCategory;
+    private final Map<Priority, PostingList> byPriority;
+    private final ExpenseAggregates aggregates;
+
+    /**
+     * Expenses grouped by amount in grosze, sorted ascending.
+     * Serves threshold/range queries and min/max in O(log n + k).
+     */
+    private final NavigableMap<Long, PostingList> byAmount;
+
+    /**
+     * ID -> position inside its category, priority and amount PostingList.
+     */
+    private final LongIntHashMap categoryPositions;
+    private final LongIntHashMap priorityPositions;
+    private final LongIntHashMap amountPositions;
 
     /**
      * Creates empty in-memory repository.
      */
     public InMemoryExpenseRepository(){
-        this.expenses = new ArrayList<>();
+        this.slots = new Expense[INITIAL_CAPACITY];
+        this.liveSlots = new int[INITIAL_CAPACITY + 1];
+        this.slotById = new LongIntHashMap();
+        this.nextId = 1;
+        this.expensesView = new ExpensesView();
+        this.expenseKeys = new HashSet<>();
+        this.byCategory = new EnumMap<>(Category.class);
+        this.byPriority = new EnumMap<>(Priority.class);
+        this.aggregates = new ExpenseAggregates();
+        this.byAmount = new TreeMap<>();
+        this.categoryPositions = new LongIntHashMap();
+        this.priorityPositions = new LongIntHashMap();
+        this.amountPositions = new LongIntHashMap();
+
+        for(Category category : Category.values()){
+            byCategory.put(category, new PostingList(categoryPositions));
+        }
+        for(Priority priority : Priority.values()){
+            byPriority.put(priority, new PostingList(priorityPositions));
+        }
     }
 
     @Override
@@ -38,16 +130,24 @@ public class InMemoryExpenseRepository implements ExpenseRepository{
            throw new InvalidExpenseDataException("Expense cannot be null", "expense", null);
        }
 
-       List<Expense> allExpenses = findAll();
+       ExpenseKey key = ExpenseKey.of(expense);
 
-       for(Expense exp : allExpenses){
-           if(exp.getDate().equals(expense.getDate()) && exp.getDescription().equals(expense.getDescription())){
-               throw new DuplicateExpenseException("Duplicate found:", exp.getDate(), exp.getDescription());
-           }
+       if(expenseKeys.contains(key)){
+           throw new DuplicateExpenseException("Duplicate found:", expense.getDate(), expense.getDescription());
+       }
+
+       if(expense.hasId() && slotById.containsKey(expense.getId())){
+           throw new DuplicateExpenseException("Duplicate ID: " + expense.getId());
        }
 
        try{
-         expenses.add(expense);
+         long id = expense.hasId() ? expense.getId() : nextId;
+         expense.assignId(id);
+         nextId = Math.max(nextId, id + 1);
+
+         append(expense);
+         expenseKeys.add(key);
+         addToIndexes(expense);
        }catch (Exception e){
            throw new RepositoryException("Failed to save expense: " + expense.getDescription(), e);
        }
@@ -85,24 +185,30 @@ public class InMemoryExpenseRepository implements ExpenseRepository{
     @Override
     public List<Expense> findAll() {
         try{
-        return new ArrayList<>(expenses);
+        return new ArrayList<>(expensesView);
         }catch (Exception e){
             throw new RepositoryException("Failed to restrieve expenses", e);
         }
     }
 
     @Override
-    public Expense findById(int index) throws ExpenseNotFoundException {
-        if(index < 0 ){
-            throw new InvalidExpenseDataException("Index cannot be negative", "index", index);
+    public List<Expense> viewAll() {
+        return expensesView;
+    }
+
+    @Override
+    public Expense findById(long id) throws ExpenseNotFoundException {
+        if(id <= 0){
+            throw new InvalidExpenseDataException("ID must be positive", "id", id);
         }
 
-        if(index >= expenses.size()){
-            throw new ExpenseNotFoundException("No expense found at index: " + index +
-                    " (size: " + expenses.size() + ")", index);
+        int slot = slotById.getOrDefault(id, NO_SLOT);
+
+        if(slot == NO_SLOT){
+            throw new ExpenseNotFoundException("No expense found with ID: " + id, id);
         }
 
-        return expenses.get(index);
+        return slots[slot];
     }
 
     @Override
@@ -111,19 +217,11 @@ public class InMemoryExpenseRepository implements ExpenseRepository{
             throw new InvalidExpenseDataException("Category cannot be null", "category", null);
         }
 
-        List<Expense> result = new ArrayList<>();
-
         try{
-        for(Expense expense : expenses){
-            if(expense.getCategory() == category){
-                result.add(expense);
-            }
-        }
+            return toList(byCategory.get(category));
         }catch (Exception e){
           throw new RepositoryException("Failed to find expenses by category: " + category, e);
         }
-
-        return result;
     }
 
     @Override
@@ -132,15 +230,44 @@ public class InMemoryExpenseRepository implements ExpenseRepository{
             throw new InvalidExpenseDataException("Priority cannot be null", "priority", null);
         }
 
-        List<Expense> result = new ArrayList<>();
+        return toList(byPriority.get(priority));
+    }
 
-        for(Expense expense: expenses){
-            if(expense.getPriority() == priority){
-                result.add(expense);
-            }
+    @Override
+    public double totalAmount() {
+        return aggregates.totalAmount();
+    }
+
+    @Override
+    public int countByCategory(Category category) {
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
         }
 
-        return result;
+        return byCategory.get(category).size();
+    }
+
+    @Override
+    public double totalByCategory(Category category) {
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        return aggregates.totalByCategory(category);
+    }
+
+    @Override
+    public ExpenseAggregates aggregates() {
+        return aggregates;
+    }
+
+    @Override
+    public int countByPriority(Priority priority) {
+        if(priority == null){
+            throw new InvalidExpenseDataException("Priority cannot be null", "priority", null);
+        }
+
+        return byPriority.get(priority).size();
     }
 
     @Override
@@ -150,40 +277,85 @@ public class InMemoryExpenseRepository implements ExpenseRepository{
             throw new InvalidExpenseDataException("Amount must be positive", "amount", amount);
         }
 
-        List<Expense> result = new ArrayList<>();
-        for(Expense expense : expenses){
-            if(expense.getAmount() >= amount){
-                result.add(expense);
-            }
+        return collect(byAmount.tailMap(minorAtLeast(amount), true));
+    }
+
+    @Override
+    public List<Expense> findExpensesBetween(double min, double max) {
+
+        if(min < 0){
+            throw new InvalidExpenseDataException("Amount must be positive", "min", min);
         }
 
-        return result;
+        if(max < min){
+            throw new InvalidExpenseDataException("Maximum cannot be lower than minimum", "max", max);
+        }
+
+        long low = minorAtLeast(min);
+        long high = minorAtMost(max);
+        return low > high ? new ArrayList<>() : collect(byAmount.subMap(low, true, high, true));
+    }
+
+    @Override
+    public Optional<Expense> findMostExpensive() {
+        Map.Entry<Long, PostingList> last = byAmount.lastEntry();
+        return last == null ? Optional.empty() : Optional.of(last.getValue().first());
+    }
+
+    @Override
+    public Optional<Expense> findCheapest() {
+        Map.Entry<Long, PostingList> first = byAmount.firstEntry();
+        return first == null ? Optional.empty() : Optional.of(first.getValue().first());
     }
 
     @Override
-    public void delete(int index) throws ExpenseNotFoundException {
+    public void delete(long id) throws ExpenseNotFoundException {
 
-       if(index < 0){
-           throw new InvalidExpenseDataException("Index cannot be negative", "index", index);
+       if(id <= 0){
+           throw new InvalidExpenseDataException("ID must be positive", "id", id);
        }
 
-       if(index >= expenses.size()){
-           throw new ExpenseNotFoundException("Cannot delete - no expense at index: " + index, index);
+       int slot = slotById.getOrDefault(id, NO_SLOT);
+
+       if(slot == NO_SLOT){
+           throw new ExpenseNotFoundException("Cannot delete - no expense with ID: " + id, id);
        }
 
        try{
-           expenses.remove(index);
+           Expense removed = slots[slot];
+           slots[slot] = null;
+           slotById.remove(id);
+           markLive(slot, -1);
+           size--;
+
+           expenseKeys.remove(ExpenseKey.of(removed));
+           removeFromIndexes(removed);
+
+           // Keep gaps bounded so memory and compaction cost stay amortized O(1)
+           if(slotCount - size > size){
+               compact();
+           }
        }catch (Exception e){
-           throw new RepositoryException("Failed to delete expense at index: " + index, e);
+           throw new RepositoryException("Failed to delete expense with ID: " + id, e);
        }
-
-       expenses.remove(index);
     }
 
     @Override
     public void deleteAll() {
         try{
-        expenses.clear();
+        Arrays.fill(slots, 0, slotCount, null);
+        slotCount = 0;
+        size = 0;
+        slotById.clear();
+        expenseKeys.clear();
+        Arrays.fill(liveSlots, 0);
+        byCategory.values().forEach(PostingList::clear);
+        byPriority.values().forEach(PostingList::clear);
+        aggregates.clear();
+        byAmount.clear();
+        categoryPositions.clear();
+        priorityPositions.clear();
+        amountPositions.clear();
         }catch (Exception e){
            throw new RepositoryException("Failed to clear all expenses", e);
         }
@@ -191,11 +363,221 @@ public class InMemoryExpenseRepository implements ExpenseRepository{
 
     @Override
     public int count() {
-        return expenses.size();
+        return size;
     }
 
     @Override
     public boolean isEmpty() {
-        return expenses.isEmpty();
+        return size == 0;
+    }
+
+    private void append(Expense expense){
+        if(slotCount == slots.length){
+            if(slotCount - size > slotCount / 4){
+                compact();
+            }else {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+                rebuildLiveSlots();
+            }
+        }
+
+        slots[slotCount] = expense;
+        slotById.put(expense.getId(), slotCount);
+        markLive(slotCount, 1);
+        slotCount++;
+        size++;
+    }
+
+    /**
+     * Moves live expenses over deleted slots, keeping saved order.
+     */
+    private void compact(){
+        if(slotCount == size){
+            return;
+        }
+
+        int target = 0;
+        for(int i = 0; i < slotCount; i++){
+            Expense expense = slots[i];
+            if(expense != null){
+                if(target != i){
+                    slots[target] = expense;
+                    slotById.put(expense.getId(), target);
+                }
+                target++;
+            }
+        }
+
+        Arrays.fill(slots, target, slotCount, null);
+        slotCount = target;
+        rebuildLiveSlots();
+    }
+
+    private void markLive(int slot, int change){
+        for(int i = slot + 1; i < liveSlots.length; i += i & -i){
+            liveSlots[i] += change;
+        }
+    }
+
+    /**
+     * Rebuilds the occupied-slot tree for the current array in O(slots).
+     */
+    private void rebuildLiveSlots(){
+        liveSlots = new int[slots.length + 1];
+        for(int i = 0; i < slotCount; i++){
+            if(slots[i] != null){
+                liveSlots[i + 1]++;
+            }
+        }
+        for(int i = 1; i < liveSlots.length; i++){
+            int parent = i + (i & -i);
+            if(parent < liveSlots.length){
+                liveSlots[parent] += liveSlots[i];
+            }
+        }
+    }
+
+    /**
+     * Slot of the index-th expense (0-based), found by descending the tree.
+     */
+    private int slotOf(int index){
+        int position = 0;
+        int remaining = index + 1;
+        for(int step = Integer.highestOneBit(liveSlots.length - 1); step > 0; step >>= 1){
+            int next = position + step;
+            if(next < liveSlots.length && liveSlots[next] < remaining){
+                position = next;
+                remaining -= liveSlots[next];
+            }
+        }
+        return position;
+    }
+
+    private void addToIndexes(Expense expense){
+        byCategory.get(expense.getCategory()).add(expense);
+        byPriority.get(expense.getPriority()).add(expense);
+        aggregates.add(expense);
+        byAmount.computeIfAbsent(expense.getAmountMinor(), amount -> new PostingList(amountPositions)).add(expense);
+    }
+
+    private void removeFromIndexes(Expense expense){
+        byCategory.get(expense.getCategory()).remove(expense);
+        byPriority.get(expense.getPriority()).remove(expense);
+        aggregates.remove(expense);
+
+        PostingList sameAmount = byAmount.get(expense.getAmountMinor());
+        sameAmount.remove(expense);
+        if(sameAmount.isEmpty()){
+            byAmount.remove(expense.getAmountMinor());
+        }
+    }
+
+    /**
+     * Smallest amount in grosze whose PLN value is at least amount,
+     * i.e. the same cut as getAmount() >= amount. Shared with the other
+     * repositories that index amounts in grosze.
+     */
+    static long minorAtLeast(double amount){
+        if(amount >= Long.MAX_VALUE / (double) Money.MINOR_PER_UNIT){
+            return Long.MAX_VALUE;
+        }
+
+        long minor = Money.toMinor(amount);
+        while (Money.toDouble(minor) < amount){
+            minor++;
+        }
+        while (Money.toDouble(minor - 1) >= amount){
+            minor--;
+        }
+        return minor;
+    }
+
+    /**
+     * Largest amount in grosze whose PLN value is at most amount.
+     */
+    static long minorAtMost(double amount){
+        if(amount >= Long.MAX_VALUE / (double) Money.MINOR_PER_UNIT){
+            return Long.MAX_VALUE;
+        }
+
+        long minor = Money.toMinor(amount);
+        while (Money.toDouble(minor) > amount){
+            minor--;
+        }
+        while (Money.toDouble(minor + 1) <= amount){
+            minor++;
+        }
+        return minor;
+    }
+
+    /**
+     * Flattens a slice of the amount index into a list, ascending by amount.
+     */
+    private static List<Expense> collect(Map<Long, PostingList> slice){
+        List<Expense> result = new ArrayList<>();
+        for(PostingList sameAmount : slice.values()){
+            sameAmount.addTo(result);
+        }
+        return result;
+    }
+
+    private static List<Expense> toList(PostingList list){
+        List<Expense> result = new ArrayList<>(list.size());
+        list.addTo(result);
+        return result;
+    }
+
+    /**
+     * Positional read-only view. Without gaps a position is a slot; with
+     * gaps get() finds the slot in O(log n) and iteration skips them, so
+     * reading never has to compact.
+     */
+    private class ExpensesView extends AbstractList<Expense> implements RandomAccess {
+
+        @Override
+        public Expense get(int index) {
+            Objects.checkIndex(index, size);
+            return slots[slotCount == size ? index : slotOf(index)];
+        }
+
+        @Override
+        public Iterator<Expense> iterator() {
+            return new Iterator<>() {
+                private int slot = 0;
+                private int returned = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return returned < size;
+                }
+
+                @Override
+                public Expense next() {
+                    if(!hasNext()){
+                        throw new NoSuchElementException();
+                    }
+                    while (slots[slot] == null){
+                        slot++;
+                    }
+                    returned++;
+                    return slots[slot++];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Identity of an expense for duplicate detection (same date and description).
+     */
+    private record ExpenseKey(int epochDay, String description) {
+
+        static ExpenseKey of(Expense expense){
+            return new ExpenseKey(expense.getEpochDay(), expense.getDescription());
+        }
     }
 }
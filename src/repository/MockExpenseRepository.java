@@ -14,14 +14,23 @@ import java.util.List;
 public class MockExpenseRepository implements ExpenseRepository{
 
     private final List<Expense> fakeData;
+    private long nextId = 1;
 
     public MockExpenseRepository(){
         this.fakeData = new ArrayList<>();
-        fakeData.add(new Expense("2025-01-01", 10.00, "Fake Coffee", Category.FOOD));
-        fakeData.add(new Expense("2024-04-08", 15.90, "Fake Bus", Category.TRANSPORT));
-        fakeData.add(new Expense("2025-10-11", 40.50, "Netflix", Category.ENTERTAINMENT));
-        fakeData.add(new Expense("2025-12-30", 132.75, "Medicines", Category.HEALTHCARE));
-        fakeData.add(new Expense("2025-06-20", 221.15, "TV", Category.HOUSING));
+        addFake(new Expense("2025-01-01", 10.00, "Fake Coffee", Category.FOOD));
+        addFake(new Expense("2024-04-08", 15.90, "Fake Bus", Category.TRANSPORT));
+        addFake(new Expense("2025-10-11", 40.50, "Netflix", Category.ENTERTAINMENT));
+        addFake(new Expense("2025-12-30", 132.75, "Medicines", Category.HEALTHCARE));
+        addFake(new Expense("2025-06-20", 221.15, "TV", Category.HOUSING));
+    }
+
+    private void addFake(Expense expense){
+        if(!expense.hasId()){
+            expense.assignId(nextId);
+        }
+        nextId = Math.max(nextId, expense.getId() + 1);
+        fakeData.add(expense);
     }
 
     @Override
@@ -29,7 +38,7 @@ public class MockExpenseRepository implements ExpenseRepository{
         if(expense == null){
             throw new IllegalArgumentException("Expense cannot be null!");
         }
-        fakeData.add(expense);
+        addFake(expense);
         System.out.println("[MOCK] Pretending to save: " + expense.getDescription());
     }
 
@@ -56,13 +65,15 @@ public class MockExpenseRepository implements ExpenseRepository{
     }
 
     @Override
-    public Expense findById(int index) {
+    public Expense findById(long id) {
 
-        if(index < 0 || index >= fakeData.size()){
-            throw new IndexOutOfBoundsException("Invalid index: " + index);
+        for(Expense expense : fakeData){
+            if(expense.getId() == id){
+                return expense;
+            }
         }
 
-        return fakeData.get(index);
+        throw new IndexOutOfBoundsException("Invalid ID: " + id);
     }
 
     @Override
@@ -117,12 +128,9 @@ public class MockExpenseRepository implements ExpenseRepository{
     }
 
     @Override
-    public void delete(int index) {
-       if(index < 0 || index >= fakeData.size()){
-           throw new IndexOutOfBoundsException("Invalid index: " + index);
-       }
-
-       Expense removed = fakeData.remove(index);
+    public void delete(long id) {
+       Expense removed = findById(id);
+       fakeData.remove(removed);
         System.out.println("[MOCK] Deleted: " + removed.getDescription());
     }
 
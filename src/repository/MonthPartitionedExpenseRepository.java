@@ -0,0 +1,437 @@
+package repository;
+
+import exception.DuplicateExpenseException;
+import exception.ExpenseNotFoundException;
+import exception.InvalidExpenseDataException;
+import exception.RepositoryException;
+import model.Category;
+import model.Dates;
+import model.Expense;
+import model.Money;
+import model.Priority;
+import util.LongIntHashMap;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * ExpenseRepository that partitions expenses by year-month.
+ *
+ * Each month is a small partition with its own duplicate index and
+ * running total; totals and counts across all partitions are kept
+ * in ExpenseAggregates. Month and
+ * date-range queries only touch the partitions they cover, and the
+ * total for a month is O(1), no matter how many years of history exist.
+ *
+ * findAll(), viewAll() and the category, priority and amount lookups list
+ * expenses in save order, like the other repositories: a global PostingList
+ * keeps that order next to the partitions, so saves and deletes stay
+ * amortized O(1) and viewAll() is a live view rather than a copy. Its
+ * ID -> position map doubles as the ID index.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.5.0
+ */
+public class MonthPartitionedExpenseRepository implements ExpenseRepository {
+
+    /**
+     * Month index (see Dates.monthIndex) -> partition.
+     */
+    private final NavigableMap<Integer, Partition> partitions;
+    private long nextId;
+
+    /**
+     * All expenses in save order, and the positions of the expenses in it
+     * (by ID, so also the ID index) and in their partitions.
+     */
+    private final PostingList saved;
+    private final LongIntHashMap savedPositions;
+    private final LongIntHashMap partitionPositions;
+    private final List<Expense> savedView;
+
+    /**
+     * Running totals and counts across all partitions.
+     */
+    private final ExpenseAggregates aggregates;
+
+    /**
+     * Creates empty month-partitioned repository.
+     */
+    public MonthPartitionedExpenseRepository(){
+        this.partitions = new TreeMap<>();
+        this.nextId = 1;
+        this.savedPositions = new LongIntHashMap();
+        this.partitionPositions = new LongIntHashMap();
+        this.saved = new PostingList(savedPositions);
+        this.savedView = new SavedView();
+        this.aggregates = new ExpenseAggregates();
+    }
+
+    @Override
+    public void save(Expense expense) {
+        if(expense == null){
+            throw new InvalidExpenseDataException("Expense cannot be null", "expense", null);
+        }
+
+        int month = expense.getMonthIndex();
+        Partition partition = partitions.get(month);
+        ExpenseKey key = ExpenseKey.of(expense);
+
+        if(partition != null && partition.keys.contains(key)){
+            throw new DuplicateExpenseException("Duplicate found:", expense.getDate(), expense.getDescription());
+        }
+
+        if(expense.hasId() && savedPositions.containsKey(expense.getId())){
+            throw new DuplicateExpenseException("Duplicate ID: " + expense.getId());
+        }
+
+        try{
+            long id = expense.hasId() ? expense.getId() : nextId;
+            expense.assignId(id);
+            nextId = Math.max(nextId, id + 1);
+
+            if(partition == null){
+                partition = new Partition(partitionPositions);
+                partitions.put(month, partition);
+            }
+
+            partition.add(expense, key);
+            saved.add(expense);
+            aggregates.add(expense);
+        }catch (Exception e){
+            throw new RepositoryException("Failed to save expense: " + expense.getDescription(), e);
+        }
+    }
+
+    @Override
+    public void saveAll(Expense... expenses) {
+        if(expenses == null){
+            return;
+        }
+
+        int savedCount = 0;
+        List<String> errors = new ArrayList<>();
+
+        for(Expense expense : expenses){
+            try{
+                if(expense != null){
+                    save(expense);
+                    savedCount++;
+                }
+            }catch (Exception e){
+                errors.add("Failed to save expense: " + e.getMessage());
+            }
+        }
+
+        if(!errors.isEmpty()){
+            System.out.println("⚠️  Warnings during bulk save:");
+            errors.forEach(System.out::println);
+        }
+
+        System.out.println("✓ Saved " + savedCount + " of " +
+                expenses.length + " expenses");
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        List<Expense> all = new ArrayList<>(saved.size());
+        saved.addTo(all);
+        return all;
+    }
+
+    /**
+     * Read-only live view in save order; reflects later saves and deletes.
+     */
+    @Override
+    public List<Expense> viewAll() {
+        return savedView;
+    }
+
+    @Override
+    public Expense findById(long id) throws ExpenseNotFoundException {
+        if(id <= 0){
+            throw new InvalidExpenseDataException("ID must be positive", "id", id);
+        }
+
+        Expense expense = saved.find(id);
+
+        if(expense == null){
+            throw new ExpenseNotFoundException("No expense found with ID: " + id, id);
+        }
+
+        return expense;
+    }
+
+    @Override
+    public List<Expense> findByCategory(Category category) {
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        int count = aggregates.countByCategory(category);
+        List<Expense> result = new ArrayList<>(count);
+        if(count == 0){
+            return result;
+        }
+        for(Expense expense : saved){
+            if(expense.getCategory() == category){
+                result.add(expense);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Expense> findByPriority(Priority priority) {
+        if(priority == null){
+            throw new InvalidExpenseDataException("Priority cannot be null", "priority", null);
+        }
+
+        int count = aggregates.countByPriority(priority);
+        List<Expense> result = new ArrayList<>(count);
+        if(count == 0){
+            return result;
+        }
+        for(Expense expense : saved){
+            if(expense.getPriority() == priority){
+                result.add(expense);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Expense> findExpensesAbove(double amount) {
+        if(amount < 0){
+            throw new InvalidExpenseDataException("Amount must be positive", "amount", amount);
+        }
+
+        List<Expense> result = new ArrayList<>();
+        for(Expense expense : saved){
+            if(expense.getAmount() >= amount){
+                result.add(expense);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Expense> findByMonth(String month) {
+        Partition partition = partitions.get(parseMonth(month));
+        List<Expense> result = new ArrayList<>();
+        if(partition != null){
+            partition.expenses.addTo(result);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Expense> findBetweenDates(String from, String to) {
+        int first = parseDate(from, "from");
+        int last = parseDate(to, "to");
+
+        if(last < first){
+            throw new InvalidExpenseDataException("End date cannot be before start date", "to", to);
+        }
+
+        int firstMonth = Dates.monthIndex(first);
+        int lastMonth = Dates.monthIndex(last);
+
+        List<Expense> result = new ArrayList<>();
+        for(Map.Entry<Integer, Partition> entry : partitions.subMap(firstMonth, true, lastMonth, true).entrySet()){
+            boolean edge = entry.getKey() == firstMonth || entry.getKey() == lastMonth;
+
+            if(!edge){
+                // Month lies entirely inside the range
+                entry.getValue().expenses.addTo(result);
+                continue;
+            }
+
+            for(Expense expense : entry.getValue().expenses){
+                int epochDay = expense.getEpochDay();
+                if(epochDay >= first && epochDay <= last){
+                    result.add(expense);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public double totalForMonth(String month) {
+        Partition partition = partitions.get(parseMonth(month));
+        return partition == null ? 0 : Money.toDouble(partition.totalMinor);
+    }
+
+    @Override
+    public double totalAmount() {
+        return aggregates.totalAmount();
+    }
+
+    @Override
+    public double totalByCategory(Category category) {
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        return aggregates.totalByCategory(category);
+    }
+
+    @Override
+    public int countByCategory(Category category) {
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        return aggregates.countByCategory(category);
+    }
+
+    @Override
+    public int countByPriority(Priority priority) {
+        if(priority == null){
+            throw new InvalidExpenseDataException("Priority cannot be null", "priority", null);
+        }
+
+        return aggregates.countByPriority(priority);
+    }
+
+    @Override
+    public ExpenseAggregates aggregates() {
+        return aggregates;
+    }
+
+    @Override
+    public void delete(long id) throws ExpenseNotFoundException {
+        if(id <= 0){
+            throw new InvalidExpenseDataException("ID must be positive", "id", id);
+        }
+
+        Expense expense = saved.find(id);
+
+        if(expense == null){
+            throw new ExpenseNotFoundException("Cannot delete - no expense with ID: " + id, id);
+        }
+
+        try{
+            int month = expense.getMonthIndex();
+            Partition partition = partitions.get(month);
+            partition.remove(expense);
+
+            if(partition.expenses.isEmpty()){
+                partitions.remove(month);
+            }
+
+            saved.remove(expense);
+            aggregates.remove(expense);
+        }catch (Exception e){
+            throw new RepositoryException("Failed to delete expense with ID: " + id, e);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        partitions.clear();
+        saved.clear();
+        savedPositions.clear();
+        partitionPositions.clear();
+        aggregates.clear();
+    }
+
+    @Override
+    public int count() {
+        return saved.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return saved.isEmpty();
+    }
+
+    /**
+     * Number of month partitions currently held.
+     */
+    public int partitionCount(){
+        return partitions.size();
+    }
+
+    private static int parseDate(String date, String fieldName){
+        try{
+            return Dates.parse(date);
+        }catch (IllegalArgumentException e){
+            throw new InvalidExpenseDataException("Date must be in YYYY-MM-DD format", fieldName, date);
+        }
+    }
+
+    private static int parseMonth(String month){
+        try{
+            return Dates.parseMonth(month);
+        }catch (IllegalArgumentException e){
+            throw new InvalidExpenseDataException("Month must be in YYYY-MM format", "month", month);
+        }
+    }
+
+    /**
+     * Live view of the expenses in save order.
+     */
+    private class SavedView extends AbstractList<Expense> implements RandomAccess {
+
+        @Override
+        public Expense get(int index) {
+            return saved.get(index);
+        }
+
+        @Override
+        public int size() {
+            return saved.size();
+        }
+
+        @Override
+        public Iterator<Expense> iterator() {
+            return saved.iterator();
+        }
+    }
+
+    /**
+     * One month of expenses (save order) with its own duplicate index and running total.
+     */
+    private static final class Partition {
+
+        final PostingList expenses;
+        final Set<ExpenseKey> keys = new HashSet<>();
+        long totalMinor;
+
+        Partition(LongIntHashMap positions){
+            this.expenses = new PostingList(positions);
+        }
+
+        void add(Expense expense, ExpenseKey key){
+            expenses.add(expense);
+            keys.add(key);
+            totalMinor += expense.getAmountMinor();
+        }
+
+        void remove(Expense expense){
+            expenses.remove(expense);
+            keys.remove(ExpenseKey.of(expense));
+            totalMinor -= expense.getAmountMinor();
+        }
+    }
+
+    /**
+     * Identity of an expense for duplicate detection (same date and description).
+     */
+    private record ExpenseKey(int epochDay, String description) {
+
+        static ExpenseKey of(Expense expense){
+            return new ExpenseKey(expense.getEpochDay(), expense.getDescription());
+        }
+    }
+}
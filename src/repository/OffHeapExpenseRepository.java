@@ -0,0 +1,752 @@
+package repository;
+
+import exception.DuplicateExpenseException;
+import exception.ExpenseNotFoundException;
+import exception.InvalidExpenseDataException;
+import exception.RepositoryException;
+import model.Category;
+import model.Expense;
+import model.Money;
+import model.Priority;
+import util.LongIntHashMap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * ExpenseRepository that keeps expense data outside the Java heap.
+ *
+ * Every expense is a fixed-width 32-byte record in a direct ByteBuffer,
+ * and descriptions are UTF-8 bytes in a separate direct "string arena".
+ * The heap only holds primitive index arrays, which the garbage collector
+ * never has to trace, so GC pauses do not grow with the number of rows.
+ *
+ * Record layout (little-endian):
+ * <pre>
+ *  0  long   id
+ *  8  long   amount in grosze
+ * 16  int    epoch-day
+ * 20  int    description offset in arena
+ * 24  int    description length in bytes
+ * 28  byte   category ordinal
+ * 29  byte   priority ordinal
+ * 30  byte   flags (bit 0 = deleted)
+ * </pre>
+ *
+ * Capacity grows by doubling, or explicitly through ensureCapacity().
+ * A delete only marks its record. Compaction squeezes deleted records
+ * out and rewrites the live descriptions into a fresh arena, so
+ * save/delete churn does not grow either buffer without bound. It runs
+ * only on writes: when a save finds the buffer full with more than a
+ * quarter deleted, or a delete leaves more than half of the records (and
+ * at least MIN_COMPACT_DELETED) deleted. Reads skip deleted records.
+ * A single buffer is limited to 2 GB, i.e. about 67M records.
+ * Call close() to drop the off-heap buffers; the repository is unusable afterwards.
+ *
+ * Not thread-safe.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.4.0
+ */
+public class OffHeapExpenseRepository implements ExpenseRepository, AutoCloseable {
+
+    private static final int RECORD_SIZE = 32;
+    private static final int ID = 0;
+    private static final int AMOUNT = 8;
+    private static final int EPOCH_DAY = 16;
+    private static final int DESCRIPTION_OFFSET = 20;
+    private static final int DESCRIPTION_LENGTH = 24;
+    private static final int CATEGORY = 28;
+    private static final int PRIORITY = 29;
+    private static final int FLAGS = 30;
+    private static final byte DELETED = 1;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int MIN_ARENA_SIZE = 1024;
+
+    /**
+     * Deleted records a delete tolerates before compacting, so small
+     * stores are not compacted every other delete.
+     */
+    private static final int MIN_COMPACT_DELETED = 1024;
+
+    private static final int NO_ROW = -1;
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private ByteBuffer records;
+    private int recordCapacity;
+    private int recordCount;
+    private int size;
+
+    private ByteBuffer arena;
+    private int arenaUsed;
+
+    /**
+     * Bytes of the arena still referenced by live records; the rest is garbage.
+     */
+    private int arenaLive;
+
+    /**
+     * ID -> record number.
+     */
+    private final LongIntHashMap rowById;
+
+    /**
+     * Open-addressing set over (epoch-day, description) for duplicate detection.
+     * Each slot packs the key hash (high 32 bits) and record number + 1 (low 32 bits);
+     * 0 marks an empty slot. Equal hashes are confirmed against the stored bytes.
+     */
+    private long[] keyTable;
+    private int keyCount;
+
+    private long nextId;
+    private boolean closed;
+
+    /**
+     * Incremented whenever record numbers change meaning (saves, deletes, compaction).
+     */
+    private int modifications;
+
+    private final List<Expense> expensesView;
+
+    /**
+     * Running totals and counts (on-heap, but independent of the row count
+     * except for one entry per distinct date).
+     */
+    private final ExpenseAggregates aggregates;
+
+    /**
+     * Creates off-heap repository with default initial capacity.
+     */
+    public OffHeapExpenseRepository(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates off-heap repository sized for expected number of expenses.
+     *
+     * @param initialCapacity number of records to allocate up front
+     */
+    public OffHeapExpenseRepository(int initialCapacity){
+        if(initialCapacity <= 0){
+            throw new InvalidExpenseDataException("Capacity must be positive", "initialCapacity", initialCapacity);
+        }
+
+        this.records = allocate((long) initialCapacity * RECORD_SIZE);
+        this.recordCapacity = initialCapacity;
+        this.arena = allocate((long) initialCapacity * 16);
+        this.rowById = new LongIntHashMap(initialCapacity);
+        this.keyTable = new long[tableSizeFor(initialCapacity)];
+        this.nextId = 1;
+        this.expensesView = new ExpensesView();
+        this.aggregates = new ExpenseAggregates();
+    }
+
+    @Override
+    public void save(Expense expense) {
+        ensureOpen();
+
+        if(expense == null){
+            throw new InvalidExpenseDataException("Expense cannot be null", "expense", null);
+        }
+
+        int epochDay = expense.getEpochDay();
+        byte[] description = expense.getDescription().getBytes(StandardCharsets.UTF_8);
+        int hash = keyHash(epochDay, description, 0, description.length);
+
+        if(findKey(hash, epochDay, description) != NO_ROW){
+            throw new DuplicateExpenseException("Duplicate found:", expense.getDate(), expense.getDescription());
+        }
+
+        if(expense.hasId() && rowById.containsKey(expense.getId())){
+            throw new DuplicateExpenseException("Duplicate ID: " + expense.getId());
+        }
+
+        try{
+            long id = expense.hasId() ? expense.getId() : nextId;
+            expense.assignId(id);
+            nextId = Math.max(nextId, id + 1);
+
+            if(recordCount == recordCapacity){
+                if(recordCount - size > recordCount / 4){
+                    compact();
+                }else {
+                    ensureCapacity(recordCapacity * 2);
+                }
+            }
+
+            int descriptionOffset = appendToArena(description);
+            int row = recordCount;
+            int base = row * RECORD_SIZE;
+
+            records.putLong(base + ID, id);
+            records.putLong(base + AMOUNT, expense.getAmountMinor());
+            records.putInt(base + EPOCH_DAY, epochDay);
+            records.putInt(base + DESCRIPTION_OFFSET, descriptionOffset);
+            records.putInt(base + DESCRIPTION_LENGTH, description.length);
+            records.put(base + CATEGORY, (byte) expense.getCategory().ordinal());
+            records.put(base + PRIORITY, (byte) expense.getPriority().ordinal());
+            records.put(base + FLAGS, (byte) 0);
+
+            recordCount++;
+            size++;
+            modifications++;
+            arenaLive += description.length;
+            rowById.put(id, row);
+            insertKey(hash, row);
+            aggregates.add(expense);
+        }catch (Exception e){
+            throw new RepositoryException("Failed to save expense: " + expense.getDescription(), e);
+        }
+    }
+
+    @Override
+    public void saveAll(Expense... expenses) {
+        if(expenses == null){
+            return;
+        }
+
+        int savedCount = 0;
+        List<String> errors = new ArrayList<>();
+
+        for(Expense expense : expenses){
+            try{
+                if(expense != null){
+                    save(expense);
+                    savedCount++;
+                }
+            }catch (Exception e){
+                errors.add("Failed to save expense: " + e.getMessage());
+            }
+        }
+
+        if(!errors.isEmpty()){
+            System.out.println("⚠️  Warnings during bulk save:");
+            errors.forEach(System.out::println);
+        }
+
+        System.out.println("✓ Saved " + savedCount + " of " +
+                expenses.length + " expenses");
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        return new ArrayList<>(viewAll());
+    }
+
+    @Override
+    public List<Expense> viewAll() {
+        ensureOpen();
+        return expensesView;
+    }
+
+    @Override
+    public Expense findById(long id) throws ExpenseNotFoundException {
+        ensureOpen();
+
+        if(id <= 0){
+            throw new InvalidExpenseDataException("ID must be positive", "id", id);
+        }
+
+        int row = rowById.getOrDefault(id, NO_ROW);
+
+        if(row == NO_ROW){
+            throw new ExpenseNotFoundException("No expense found with ID: " + id, id);
+        }
+
+        return materialize(row);
+    }
+
+    @Override
+    public List<Expense> findByCategory(Category category) {
+        ensureOpen();
+
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        byte ordinal = (byte) category.ordinal();
+        List<Expense> result = new ArrayList<>();
+
+        for(int row = 0; row < recordCount; row++){
+            int base = row * RECORD_SIZE;
+            if(records.get(base + FLAGS) != DELETED && records.get(base + CATEGORY) == ordinal){
+                result.add(materialize(row));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<Expense> findByPriority(Priority priority) {
+        ensureOpen();
+
+        if(priority == null){
+            throw new InvalidExpenseDataException("Priority cannot be null", "priority", null);
+        }
+
+        byte ordinal = (byte) priority.ordinal();
+        List<Expense> result = new ArrayList<>();
+
+        for(int row = 0; row < recordCount; row++){
+            int base = row * RECORD_SIZE;
+            if(records.get(base + FLAGS) != DELETED && records.get(base + PRIORITY) == ordinal){
+                result.add(materialize(row));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<Expense> findExpensesAbove(double amount) {
+        ensureOpen();
+
+        if(amount < 0){
+            throw new InvalidExpenseDataException("Amount must be positive", "amount", amount);
+        }
+
+        List<Expense> result = new ArrayList<>();
+
+        for(int row = 0; row < recordCount; row++){
+            int base = row * RECORD_SIZE;
+            if(records.get(base + FLAGS) != DELETED && Money.toDouble(records.getLong(base + AMOUNT)) >= amount){
+                result.add(materialize(row));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public double totalAmount() {
+        ensureOpen();
+        return aggregates.totalAmount();
+    }
+
+    @Override
+    public double totalByCategory(Category category) {
+        ensureOpen();
+
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        return aggregates.totalByCategory(category);
+    }
+
+    @Override
+    public int countByCategory(Category category) {
+        ensureOpen();
+
+        if(category == null){
+            throw new InvalidExpenseDataException("Category cannot be null", "category", null);
+        }
+
+        return aggregates.countByCategory(category);
+    }
+
+    @Override
+    public int countByPriority(Priority priority) {
+        ensureOpen();
+
+        if(priority == null){
+            throw new InvalidExpenseDataException("Priority cannot be null", "priority", null);
+        }
+
+        return aggregates.countByPriority(priority);
+    }
+
+    @Override
+    public ExpenseAggregates aggregates() {
+        ensureOpen();
+        return aggregates;
+    }
+
+    @Override
+    public void delete(long id) throws ExpenseNotFoundException {
+        ensureOpen();
+
+        if(id <= 0){
+            throw new InvalidExpenseDataException("ID must be positive", "id", id);
+        }
+
+        int row = rowById.getOrDefault(id, NO_ROW);
+
+        if(row == NO_ROW){
+            throw new ExpenseNotFoundException("Cannot delete - no expense with ID: " + id, id);
+        }
+
+        try{
+            aggregates.remove(materialize(row));
+            removeKey(row);
+            rowById.remove(id);
+            records.put(row * RECORD_SIZE + FLAGS, DELETED);
+            arenaLive -= records.getInt(row * RECORD_SIZE + DESCRIPTION_LENGTH);
+            size--;
+            modifications++;
+
+            int deleted = recordCount - size;
+            if(deleted > recordCount / 2 && deleted >= MIN_COMPACT_DELETED){
+                compact();
+            }
+        }catch (Exception e){
+            throw new RepositoryException("Failed to delete expense with ID: " + id, e);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        ensureOpen();
+
+        recordCount = 0;
+        size = 0;
+        modifications++;
+        arenaUsed = 0;
+        arenaLive = 0;
+        rowById.clear();
+        keyTable = new long[keyTable.length];
+        keyCount = 0;
+        aggregates.clear();
+    }
+
+    @Override
+    public int count() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Grows record storage so it can hold at least the given number of expenses.
+     * Existing records are copied into a new direct buffer.
+     *
+     * @param capacity minimum number of records
+     */
+    public void ensureCapacity(int capacity){
+        ensureOpen();
+
+        if(capacity <= recordCapacity){
+            return;
+        }
+
+        ByteBuffer grown = allocate((long) capacity * RECORD_SIZE);
+        grown.put(0, records, 0, recordCount * RECORD_SIZE);
+        records = grown;
+        recordCapacity = capacity;
+    }
+
+    /**
+     * Number of records the current off-heap buffer can hold.
+     */
+    public int capacity(){
+        return recordCapacity;
+    }
+
+    /**
+     * Releases the off-heap buffers. Direct buffers have no explicit free in
+     * Java 21 without preview APIs, so memory returns to the OS once the
+     * dropped buffers are collected. Any later call fails.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        records = null;
+        arena = null;
+        keyTable = null;
+        rowById.clear();
+        recordCount = 0;
+        recordCapacity = 0;
+        size = 0;
+    }
+
+    private void ensureOpen(){
+        if(closed){
+            throw new RepositoryException("Off-heap repository is closed");
+        }
+    }
+
+    /**
+     * Builds an Expense object from a record.
+     */
+    private Expense materialize(int row){
+        int base = row * RECORD_SIZE;
+
+        byte[] description = new byte[records.getInt(base + DESCRIPTION_LENGTH)];
+        arena.get(records.getInt(base + DESCRIPTION_OFFSET), description);
+
+        Expense expense = Expense.ofEpochDay(
+                records.getInt(base + EPOCH_DAY),
+                records.getLong(base + AMOUNT),
+                new String(description, StandardCharsets.UTF_8),
+                CATEGORIES[records.get(base + CATEGORY)],
+                PRIORITIES[records.get(base + PRIORITY)]);
+        expense.assignId(records.getLong(base + ID));
+        return expense;
+    }
+
+    private int appendToArena(byte[] description){
+        // Reclaim deleted descriptions before growing, once they are most of the arena
+        if((long) arenaUsed + description.length > arena.capacity() && arenaUsed - arenaLive > arenaLive){
+            compact();
+        }
+
+        if((long) arenaUsed + description.length > arena.capacity()){
+            long grownSize = Math.max((long) arena.capacity() * 2, (long) arenaUsed + description.length);
+            ByteBuffer grown = allocate(grownSize);
+            grown.put(0, arena, 0, arenaUsed);
+            arena = grown;
+        }
+
+        int offset = arenaUsed;
+        arena.put(offset, description);
+        arenaUsed += description.length;
+        return offset;
+    }
+
+    /**
+     * Squeezes deleted records out, keeping saved order, and copies the
+     * live descriptions into a fresh arena sized for them.
+     */
+    private void compact(){
+        if(recordCount == size){
+            return;
+        }
+
+        int target = 0;
+        for(int row = 0; row < recordCount; row++){
+            int base = row * RECORD_SIZE;
+            if(records.get(base + FLAGS) == DELETED){
+                continue;
+            }
+            if(target != row){
+                records.put(target * RECORD_SIZE, records, base, RECORD_SIZE);
+            }
+            target++;
+        }
+        recordCount = target;
+        modifications++;
+
+        ByteBuffer liveArena = allocate(Math.max(arenaLive * 2L, MIN_ARENA_SIZE));
+        int used = 0;
+        for(int row = 0; row < recordCount; row++){
+            int base = row * RECORD_SIZE;
+            int length = records.getInt(base + DESCRIPTION_LENGTH);
+            liveArena.put(used, arena, records.getInt(base + DESCRIPTION_OFFSET), length);
+            records.putInt(base + DESCRIPTION_OFFSET, used);
+            used += length;
+        }
+        arena = liveArena;
+        arenaUsed = used;
+        arenaLive = used;
+
+        rowById.clear();
+        keyTable = new long[keyTable.length];
+        keyCount = 0;
+
+        for(int row = 0; row < recordCount; row++){
+            int base = row * RECORD_SIZE;
+            rowById.put(records.getLong(base + ID), row);
+            insertKey(storedKeyHash(row), row);
+        }
+    }
+
+    // ---- duplicate-key hash set ----
+
+    private int findKey(int hash, int epochDay, byte[] description){
+        int mask = keyTable.length - 1;
+        int slot = hash & mask;
+
+        while (keyTable[slot] != 0){
+            long entry = keyTable[slot];
+            if((int) (entry >>> 32) == hash){
+                int row = (int) entry - 1;
+                if(sameKey(row, epochDay, description)){
+                    return row;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return NO_ROW;
+    }
+
+    private void insertKey(int hash, int row){
+        if(keyCount + 1 > keyTable.length * 0.6){
+            resizeKeyTable();
+        }
+
+        int mask = keyTable.length - 1;
+        int slot = hash & mask;
+        while (keyTable[slot] != 0){
+            slot = (slot + 1) & mask;
+        }
+
+        keyTable[slot] = ((long) hash << 32) | (row + 1L);
+        keyCount++;
+    }
+
+    private void removeKey(int row){
+        int hash = storedKeyHash(row);
+        int mask = keyTable.length - 1;
+        int slot = hash & mask;
+
+        while ((int) keyTable[slot] - 1 != row){
+            slot = (slot + 1) & mask;
+        }
+
+        // Backward-shift deletion, as in LongIntHashMap
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keyTable[next] != 0){
+            int home = (int) (keyTable[next] >>> 32) & mask;
+            if(((next - home) & mask) >= ((next - gap) & mask)){
+                keyTable[gap] = keyTable[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        keyTable[gap] = 0;
+        keyCount--;
+    }
+
+    private void resizeKeyTable(){
+        long[] old = keyTable;
+        keyTable = new long[old.length * 2];
+        int mask = keyTable.length - 1;
+
+        for(long entry : old){
+            if(entry != 0){
+                int slot = (int) (entry >>> 32) & mask;
+                while (keyTable[slot] != 0){
+                    slot = (slot + 1) & mask;
+                }
+                keyTable[slot] = entry;
+            }
+        }
+    }
+
+    private boolean sameKey(int row, int epochDay, byte[] description){
+        int base = row * RECORD_SIZE;
+
+        if(records.getInt(base + EPOCH_DAY) != epochDay
+                || records.getInt(base + DESCRIPTION_LENGTH) != description.length){
+            return false;
+        }
+
+        int offset = records.getInt(base + DESCRIPTION_OFFSET);
+        for(int i = 0; i < description.length; i++){
+            if(arena.get(offset + i) != description[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int storedKeyHash(int row){
+        int base = row * RECORD_SIZE;
+        int offset = records.getInt(base + DESCRIPTION_OFFSET);
+        int length = records.getInt(base + DESCRIPTION_LENGTH);
+
+        int h = records.getInt(base + EPOCH_DAY);
+        for(int i = 0; i < length; i++){
+            h = 31 * h + arena.get(offset + i);
+        }
+        return mix(h);
+    }
+
+    private static int keyHash(int epochDay, byte[] bytes, int offset, int length){
+        int h = epochDay;
+        for(int i = offset; i < offset + length; i++){
+            h = 31 * h + bytes[i];
+        }
+        return mix(h);
+    }
+
+    private static int mix(int h){
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static int tableSizeFor(int expected){
+        int size = 16;
+        while (size * 0.6 < expected){
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static ByteBuffer allocate(long bytes){
+        if(bytes > Integer.MAX_VALUE){
+            throw new RepositoryException("Off-heap buffer cannot exceed 2 GB (requested " + bytes + " bytes)");
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Positional read-only view over the live records.
+     *
+     * Without deleted records, position i is record i. Otherwise get walks
+     * from the last position it returned and skips deleted records, so a
+     * pass in order (as the iterator makes) costs O(1) per element.
+     */
+    private class ExpensesView extends AbstractList<Expense> {
+
+        private int cursorIndex = -1;
+        private int cursorRow = -1;
+        private int cursorModifications = -1;
+
+        @Override
+        public Expense get(int index) {
+            ensureOpen();
+            Objects.checkIndex(index, size);
+            return materialize(rowAt(index));
+        }
+
+        private int rowAt(int index){
+            if(recordCount == size){
+                return index;
+            }
+
+            if(cursorModifications != modifications || index < cursorIndex - index){
+                // Stale, or the start is closer than the cursor
+                cursorIndex = -1;
+                cursorRow = -1;
+                cursorModifications = modifications;
+            }
+
+            while (cursorIndex < index){
+                cursorRow++;
+                if(records.get(cursorRow * RECORD_SIZE + FLAGS) != DELETED){
+                    cursorIndex++;
+                }
+            }
+            while (cursorIndex > index){
+                cursorRow--;
+                if(records.get(cursorRow * RECORD_SIZE + FLAGS) != DELETED){
+                    cursorIndex--;
+                }
+            }
+            return cursorRow;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
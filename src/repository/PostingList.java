@@ -0,0 +1,252 @@
+package repository;
+
+import model.Expense;
+import util.LongIntHashMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Expenses of one index key (a category, a priority, an amount, a month)
+ * in saved order, with O(1) append and O(1) amortized remove by id.
+ *
+ * Remove only nulls out the position, found through a shared id -> position
+ * map; once there are more gaps than expenses the array is compacted, so the
+ * cost stays amortized O(1) and reads skip at most as many gaps as there are
+ * expenses. Every expense is in at most one list per map, so all lists of an
+ * index can share one map.
+ *
+ * get(index) is O(1) while the list has no gaps. After a remove it counts
+ * live positions in a Fenwick tree, built on the first such get and kept up
+ * to date until the array is compacted or grown, so it is O(log n) then.
+ *
+ * Not thread-safe. Used by InMemoryExpenseRepository for its category,
+ * priority and amount indexes, and by MonthPartitionedExpenseRepository
+ * for its save order and month partitions.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.3.0
+ */
+final class PostingList implements Iterable<Expense> {
+
+    private static final int INITIAL_CAPACITY = 2;
+
+    private final LongIntHashMap positions;
+
+    private Expense[] items;
+    private int length;
+    private int size;
+
+    /**
+     * Position of the first expense; everything before it is a gap.
+     */
+    private int head;
+
+    /**
+     * Fenwick tree of live positions (1-based), or null until get() needs it.
+     */
+    private int[] livePositions;
+
+    PostingList(LongIntHashMap positions){
+        this.positions = positions;
+        this.items = new Expense[INITIAL_CAPACITY];
+    }
+
+    void add(Expense expense){
+        if(length == items.length){
+            if(length - size > length / 2){
+                compact();
+            }else {
+                items = Arrays.copyOf(items, length * 2);
+                livePositions = null;
+            }
+        }
+
+        items[length] = expense;
+        positions.put(expense.getId(), length);
+        if(livePositions != null){
+            markLive(length, 1);
+        }
+        length++;
+        size++;
+    }
+
+    void remove(Expense expense){
+        int position = positions.getOrDefault(expense.getId(), -1);
+        if(position < 0 || items[position] != expense){
+            return;
+        }
+
+        items[position] = null;
+        positions.remove(expense.getId());
+        size--;
+        if(livePositions != null){
+            markLive(position, -1);
+        }
+
+        while (head < length && items[head] == null){
+            head++;
+        }
+        if(length - size > size){
+            compact();
+        }
+    }
+
+    /**
+     * Empties the list; the caller clears the shared position map.
+     */
+    void clear(){
+        items = new Expense[INITIAL_CAPACITY];
+        length = 0;
+        size = 0;
+        head = 0;
+        livePositions = null;
+    }
+
+    int size(){
+        return size;
+    }
+
+    boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Expense with the given id, or null if this list does not hold it.
+     * O(1) through the shared position map.
+     */
+    Expense find(long id){
+        int position = positions.getOrDefault(id, -1);
+        if(position < 0){
+            return null;
+        }
+
+        Expense expense = items[position];
+        return expense != null && expense.getId() == id ? expense : null;
+    }
+
+    /**
+     * Earliest saved expense, or null if the list is empty.
+     */
+    Expense first(){
+        return size == 0 ? null : items[head];
+    }
+
+    /**
+     * The index-th expense in saved order.
+     *
+     * @throws IndexOutOfBoundsException if index is not below size()
+     */
+    Expense get(int index){
+        Objects.checkIndex(index, size);
+        if(length - head == size){
+            return items[head + index];
+        }
+
+        if(livePositions == null){
+            buildLivePositions();
+        }
+
+        // Walk down the tree to the position with index live ones before it
+        int position = 0;
+        int remaining = index + 1;
+        for(int step = Integer.highestOneBit(livePositions.length - 1); step > 0; step >>= 1){
+            int next = position + step;
+            if(next < livePositions.length && livePositions[next] < remaining){
+                position = next;
+                remaining -= livePositions[next];
+            }
+        }
+        return items[position];
+    }
+
+    /**
+     * Iterates in saved order; the list must not change meanwhile.
+     */
+    @Override
+    public Iterator<Expense> iterator() {
+        return new Iterator<>() {
+            private int next = skipGaps(head);
+
+            @Override
+            public boolean hasNext() {
+                return next < length;
+            }
+
+            @Override
+            public Expense next() {
+                if(next >= length){
+                    throw new NoSuchElementException();
+                }
+                Expense expense = items[next];
+                next = skipGaps(next + 1);
+                return expense;
+            }
+        };
+    }
+
+    private int skipGaps(int position){
+        while (position < length && items[position] == null){
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Appends the expenses to target in saved order.
+     */
+    void addTo(Collection<Expense> target){
+        for(int i = head; i < length; i++){
+            if(items[i] != null){
+                target.add(items[i]);
+            }
+        }
+    }
+
+    /**
+     * Moves expenses over the gaps, keeping saved order.
+     */
+    private void compact(){
+        int target = 0;
+        for(int i = head; i < length; i++){
+            Expense expense = items[i];
+            if(expense != null){
+                items[target] = expense;
+                positions.put(expense.getId(), target);
+                target++;
+            }
+        }
+
+        Arrays.fill(items, target, length, null);
+        length = target;
+        head = 0;
+        livePositions = null;
+    }
+
+    private void markLive(int position, int change){
+        for(int i = position + 1; i < livePositions.length; i += i & -i){
+            livePositions[i] += change;
+        }
+    }
+
+    /**
+     * Builds the Fenwick tree over the whole array in O(n).
+     */
+    private void buildLivePositions(){
+        livePositions = new int[items.length + 1];
+        for(int i = head; i < length; i++){
+            if(items[i] != null){
+                livePositions[i + 1]++;
+            }
+        }
+        for(int i = 1; i < livePositions.length; i++){
+            int parent = i + (i & -i);
+            if(parent < livePositions.length){
+                livePositions[parent] += livePositions[i];
+            }
+        }
+    }
+}
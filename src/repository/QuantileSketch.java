@@ -0,0 +1,211 @@
+package repository;
+
+import model.Money;
+
+/**
+ * Streaming quantile sketch of expense amounts (median, p90, p99, ...)
+ * with a guaranteed relative error.
+ *
+ * Amounts (grosze) are counted in logarithmic buckets: bucket i holds
+ * amounts in (GAMMA^(i-1), GAMMA^i], where GAMMA = (1 + a) / (1 - a) and
+ * a = RELATIVE_ERROR. A quantile is answered with the midpoint of the
+ * bucket its rank falls into, so it is within 1% of the exact value
+ * (the element at rank q * (count - 1) in sorted order), no matter how many
+ * amounts were added. This is the DDSketch scheme; unlike t-digest or KLL
+ * it is exact about counts, so an amount can be removed again on delete.
+ *
+ * Memory is one int per bucket over a window around the amounts seen
+ * (grown by doubling): 1..10 000 PLN spans 461 buckets, so about 1 000
+ * ints (4KB); all positive longs span 2 200. Sketches merge by adding
+ * bucket counts, with the same error bound as one sketch fed every amount.
+ *
+ * Callers only read it; the update methods are package-private.
+ * Not thread-safe; owned by ExpenseAggregates.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public final class QuantileSketch {
+
+    /**
+     * Upper bound of |estimate - exact| / exact for every quantile.
+     */
+    public static final double RELATIVE_ERROR = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ERROR) / (1 - RELATIVE_ERROR);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private static final int MIN_CAPACITY = 64;
+
+    /**
+     * Bucket index of counts[0].
+     */
+    private int firstBucket;
+    private int[] counts;
+    private long count;
+
+    public QuantileSketch(){
+        clear();
+    }
+
+    // ---- updates ----
+
+    void add(long amountMinor){
+        int bucket = bucketOf(amountMinor);
+        ensureCovers(bucket);
+        counts[bucket - firstBucket]++;
+        count++;
+    }
+
+    /**
+     * Removes an amount added before; the sketch is then the same as if
+     * it had never been added.
+     */
+    void remove(long amountMinor){
+        int bucket = bucketOf(amountMinor);
+        ensureCovers(bucket);
+        counts[bucket - firstBucket]--;
+        count--;
+    }
+
+    void clear(){
+        firstBucket = 0;
+        counts = new int[0];
+        count = 0;
+    }
+
+    /**
+     * Independent copy, for handing out a consistent snapshot.
+     */
+    public QuantileSketch copy(){
+        QuantileSketch copy = new QuantileSketch();
+        copy.firstBucket = firstBucket;
+        copy.counts = counts.clone();
+        copy.count = count;
+        return copy;
+    }
+
+    /**
+     * New sketch of the amounts of both sketches; neither is changed.
+     */
+    public QuantileSketch mergedWith(QuantileSketch other){
+        QuantileSketch merged = copy();
+        merged.addAll(other);
+        return merged;
+    }
+
+    /**
+     * Adds the bucket counts of another sketch to this one.
+     */
+    void addAll(QuantileSketch other){
+        if(other.counts.length == 0){
+            return;
+        }
+
+        ensureCovers(other.firstBucket);
+        ensureCovers(other.firstBucket + other.counts.length - 1);
+        for(int i = 0; i < other.counts.length; i++){
+            counts[other.firstBucket - firstBucket + i] += other.counts[i];
+        }
+        count += other.count;
+    }
+
+    // ---- queries ----
+
+    public long count(){
+        return count;
+    }
+
+    public boolean isEmpty(){
+        return count == 0;
+    }
+
+    /**
+     * Estimated q-quantile in PLN, within RELATIVE_ERROR of the exact value.
+     *
+     * @param q quantile between 0 and 1 (0.5 = median, 0.9 = p90)
+     * @return the estimate, or 0 if the sketch is empty
+     * @throws IllegalArgumentException if q is not between 0 and 1
+     */
+    public double quantile(double q){
+        if(!(q >= 0 && q <= 1)){
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        if(count == 0){
+            return 0;
+        }
+
+        long rank = (long) (q * (count - 1));
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++){
+            seen += counts[i];
+            if(seen > rank){
+                return estimate(firstBucket + i) / Money.MINOR_PER_UNIT;
+            }
+        }
+        return estimate(firstBucket + counts.length - 1) / Money.MINOR_PER_UNIT;
+    }
+
+    public double median(){
+        return quantile(0.5);
+    }
+
+    /**
+     * Number of buckets held, i.e. the memory used (4 bytes each).
+     */
+    public int bucketCount(){
+        return counts.length;
+    }
+
+    // ---- internals ----
+
+    /**
+     * Bucket of an amount in grosze; amounts below 1 grosz share bucket 0.
+     */
+    private static int bucketOf(long amountMinor){
+        if(amountMinor <= 1){
+            return 0;
+        }
+        return (int) Math.ceil(Math.log(amountMinor) / LOG_GAMMA);
+    }
+
+    /**
+     * Midpoint of a bucket (in grosze), at most RELATIVE_ERROR away from any amount in it.
+     */
+    private static double estimate(int bucket){
+        return 2 * Math.pow(GAMMA, bucket) / (GAMMA + 1);
+    }
+
+    /**
+     * Grows the window to contain bucket, at least doubling it.
+     */
+    private void ensureCovers(int bucket){
+        int capacity = counts.length;
+        if(capacity > 0 && bucket >= firstBucket && bucket - firstBucket < capacity){
+            return;
+        }
+
+        int newFirst;
+        int newCapacity;
+
+        if(capacity == 0){
+            newCapacity = MIN_CAPACITY;
+            newFirst = bucket - newCapacity / 2;
+        }else {
+            int low = Math.min(firstBucket, bucket);
+            int high = Math.max(firstBucket + capacity - 1, bucket);
+            newCapacity = capacity;
+            while (newCapacity < high - low + 1 + capacity){
+                newCapacity *= 2;
+            }
+            newFirst = bucket < firstBucket ? high - newCapacity + 1 : low;
+        }
+
+        int[] newCounts = new int[newCapacity];
+        if(capacity > 0){
+            System.arraycopy(counts, 0, newCounts, firstBucket - newFirst, capacity);
+        }
+        firstBucket = newFirst;
+        counts = newCounts;
+    }
+}
@@ -0,0 +1,322 @@
+package repository;
+
+import model.Category;
+import model.Dates;
+import model.Expense;
+import model.Money;
+import model.Priority;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+
+/**
+ * Pre-aggregated spending cube: total (grosze) and count per
+ * (time bucket, Category, Priority) cell.
+ *
+ * The time dimension is kept at three levels - day (epoch-day), month
+ * (month index, see Dates) and year. Month and year are the roll-ups of
+ * day; all three are updated on every save and delete (one cell per
+ * level), so a roll-up query never re-aggregates days. Passing null for
+ * category or priority slices over all of them:
+ *
+ *   cube.totalMinor(Level.MONTH, Dates.parseMonth("2025-03"), Category.FOOD, null)
+ *   cube.totalMinor(Level.YEAR, 2024, null, Priority.HIGH)
+ *
+ * Each level is a sorted map from bucket to its 24 cells (long sums,
+ * int counts), holding only buckets that have expenses; a bucket whose
+ * last expense is removed is dropped. So memory follows the dates in use
+ * (about 300 bytes per day, month and year with expenses), not the span
+ * between the earliest and latest date, and range queries visit only
+ * non-empty buckets.
+ *
+ * writeTo/readFrom store the non-empty buckets of each level,
+ * so a saved cube can answer queries before the rows are loaded.
+ * Not thread-safe; owned by ExpenseAggregates.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.2.0
+ */
+public final class SpendingCube {
+
+    /**
+     * Granularity of the time dimension; buckets are epoch-days, month indexes or years.
+     */
+    public enum Level {
+        DAY, MONTH, YEAR
+    }
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final Level[] LEVELS = Level.values();
+    private static final int CELLS_PER_BUCKET = CATEGORIES.length * PRIORITIES.length;
+
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Per level: bucket -> cells, only for buckets with expenses.
+     */
+    private final List<NavigableMap<Integer, Cells>> layers;
+
+    public SpendingCube(){
+        this.layers = new ArrayList<>(LEVELS.length);
+        for(int i = 0; i < LEVELS.length; i++){
+            layers.add(new TreeMap<>());
+        }
+    }
+
+    // ---- updates ----
+
+    void add(Expense expense){
+        update(expense, expense.getAmountMinor(), 1);
+    }
+
+    void remove(Expense expense){
+        update(expense, -expense.getAmountMinor(), -1);
+    }
+
+    void clear(){
+        for(NavigableMap<Integer, Cells> layer : layers){
+            layer.clear();
+        }
+    }
+
+    /**
+     * Independent copy, for handing out a consistent snapshot.
+     */
+    public SpendingCube copy(){
+        SpendingCube copy = new SpendingCube();
+        for(int i = 0; i < LEVELS.length; i++){
+            for(Map.Entry<Integer, Cells> entry : layers.get(i).entrySet()){
+                copy.layers.get(i).put(entry.getKey(), entry.getValue().copy());
+            }
+        }
+        return copy;
+    }
+
+    private void update(Expense expense, long amount, int countChange){
+        int cell = cellOf(expense.getCategory(), expense.getPriority());
+        int epochDay = expense.getEpochDay();
+
+        // One date conversion feeds both coarser levels
+        int yearMonthDay = Dates.yearMonthDay(epochDay);
+        int year = Math.floorDiv(yearMonthDay, 10000);
+        int month = year * 12 + (yearMonthDay - year * 10000) / 100 - 1;
+
+        update(layers.get(Level.DAY.ordinal()), epochDay, cell, amount, countChange);
+        update(layers.get(Level.MONTH.ordinal()), month, cell, amount, countChange);
+        update(layers.get(Level.YEAR.ordinal()), year, cell, amount, countChange);
+    }
+
+    private static void update(NavigableMap<Integer, Cells> layer, int bucket, int cell, long amount, int countChange){
+        Cells cells = layer.computeIfAbsent(bucket, b -> new Cells());
+        cells.sums[cell] += amount;
+        cells.counts[cell] += countChange;
+        cells.size += countChange;
+        if(cells.size == 0){
+            layer.remove(bucket);
+        }
+    }
+
+    private static int cellOf(Category category, Priority priority){
+        return category.ordinal() * PRIORITIES.length + priority.ordinal();
+    }
+
+    // ---- queries ----
+
+    /**
+     * Total in grosze of one bucket, sliced by category and priority.
+     *
+     * @param level time granularity
+     * @param bucket epoch-day, month index or year (matching level)
+     * @param category category, or null for all categories
+     * @param priority priority, or null for all priorities
+     */
+    public long totalMinor(Level level, int bucket, Category category, Priority priority){
+        return totalMinor(level, bucket, bucket, category, priority);
+    }
+
+    /**
+     * Total in grosze of buckets fromBucket..toBucket (inclusive), sliced by category and priority.
+     * Only buckets that hold expenses are visited.
+     */
+    public long totalMinor(Level level, int fromBucket, int toBucket, Category category, Priority priority){
+        if(toBucket < fromBucket){
+            return 0;
+        }
+
+        long total = 0;
+        for(Cells cells : layers.get(level.ordinal()).subMap(fromBucket, true, toBucket, true).values()){
+            total += cells.totalMinor(category, priority);
+        }
+        return total;
+    }
+
+    public double total(Level level, int bucket, Category category, Priority priority){
+        return Money.toDouble(totalMinor(level, bucket, category, priority));
+    }
+
+    /**
+     * Number of expenses in one bucket, sliced by category and priority
+     * (null for all).
+     */
+    public int count(Level level, int bucket, Category category, Priority priority){
+        Cells cells = layers.get(level.ordinal()).get(bucket);
+        return cells == null ? 0 : cells.count(category, priority);
+    }
+
+    /**
+     * Read-only live set of the buckets of a level that hold at least one
+     * expense, in ascending order.
+     */
+    NavigableSet<Integer> bucketSet(Level level){
+        return Collections.unmodifiableNavigableSet(layers.get(level.ordinal()).navigableKeySet());
+    }
+
+    /**
+     * Buckets of a level that hold at least one expense, in ascending order.
+     */
+    public int[] buckets(Level level){
+        NavigableMap<Integer, Cells> layer = layers.get(level.ordinal());
+        int[] buckets = new int[layer.size()];
+        int size = 0;
+        for(int bucket : layer.keySet()){
+            buckets[size++] = bucket;
+        }
+        return buckets;
+    }
+
+    public boolean isEmpty(){
+        return layers.get(Level.YEAR.ordinal()).isEmpty();
+    }
+
+    /**
+     * Text of a bucket: 2025-03-14, 2025-03 or 2025.
+     */
+    public static String label(Level level, int bucket){
+        switch (level){
+            case DAY:
+                return Dates.format(bucket);
+            case MONTH:
+                return Dates.formatMonth(bucket);
+            default:
+                return Integer.toString(bucket);
+        }
+    }
+
+    // ---- persistence ----
+
+    /**
+     * Writes the non-empty buckets of every level.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(CATEGORIES.length);
+        out.writeInt(PRIORITIES.length);
+
+        for(NavigableMap<Integer, Cells> layer : layers){
+            out.writeInt(layer.size());
+            for(Map.Entry<Integer, Cells> entry : layer.entrySet()){
+                out.writeInt(entry.getKey());
+                Cells cells = entry.getValue();
+                for(int cell = 0; cell < CELLS_PER_BUCKET; cell++){
+                    out.writeLong(cells.sums[cell]);
+                    out.writeInt(cells.counts[cell]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a cube written by writeTo.
+     *
+     * @throws IOException if the data is of another version or was written
+     *                     for a different set of categories or priorities
+     */
+    public static SpendingCube readFrom(DataInput in) throws IOException {
+        if(in.readInt() != FORMAT_VERSION || in.readInt() != CATEGORIES.length || in.readInt() != PRIORITIES.length){
+            throw new IOException("Incompatible spending cube");
+        }
+
+        SpendingCube cube = new SpendingCube();
+        for(NavigableMap<Integer, Cells> layer : cube.layers){
+            int buckets = in.readInt();
+            if(buckets < 0){
+                throw new IOException("Corrupt spending cube");
+            }
+
+            for(int i = 0; i < buckets; i++){
+                int bucket = in.readInt();
+                Cells cells = new Cells();
+                for(int cell = 0; cell < CELLS_PER_BUCKET; cell++){
+                    cells.sums[cell] = in.readLong();
+                    cells.counts[cell] = in.readInt();
+                    cells.size += cells.counts[cell];
+                }
+                if(cells.size > 0){
+                    layer.put(bucket, cells);
+                }
+            }
+        }
+        return cube;
+    }
+
+    /**
+     * Totals and counts of the 24 (category, priority) cells of one bucket.
+     */
+    private static final class Cells {
+
+        final long[] sums = new long[CELLS_PER_BUCKET];
+        final int[] counts = new int[CELLS_PER_BUCKET];
+
+        /**
+         * Expenses in all cells; the bucket is dropped at 0.
+         */
+        int size;
+
+        Cells copy(){
+            Cells copy = new Cells();
+            System.arraycopy(sums, 0, copy.sums, 0, CELLS_PER_BUCKET);
+            System.arraycopy(counts, 0, copy.counts, 0, CELLS_PER_BUCKET);
+            copy.size = size;
+            return copy;
+        }
+
+        long totalMinor(Category category, Priority priority){
+            long total = 0;
+            for(int c = 0; c < CATEGORIES.length; c++){
+                if(category != null && category.ordinal() != c){
+                    continue;
+                }
+                for(int p = 0; p < PRIORITIES.length; p++){
+                    if(priority == null || priority.ordinal() == p){
+                        total += sums[c * PRIORITIES.length + p];
+                    }
+                }
+            }
+            return total;
+        }
+
+        int count(Category category, Priority priority){
+            int count = 0;
+            for(int c = 0; c < CATEGORIES.length; c++){
+                if(category != null && category.ordinal() != c){
+                    continue;
+                }
+                for(int p = 0; p < PRIORITIES.length; p++){
+                    if(priority == null || priority.ordinal() == p){
+                        count += counts[c * PRIORITIES.length + p];
+                    }
+                }
+            }
+            return count;
+        }
+    }
+}
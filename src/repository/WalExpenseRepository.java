@@ -0,0 +1,704 @@
+package repository;
+
+import exception.DuplicateExpenseException;
+import exception.ExpenseNotFoundException;
+import exception.RepositoryException;
+import model.Category;
+import model.Expense;
+import model.Priority;
+import persistence.ExpenseCsvReader;
+import persistence.ExpenseCsvWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Durable ExpenseRepository: every save and delete is written to a
+ * write-ahead log and forced to disk before the call returns.
+ *
+ * Data lives in a directory:
+ * - snapshot.csv  - all expenses at the last checkpoint (saveToFile layout),
+ * - wal.prev.log  - changes being folded into a new snapshot, while one is written,
+ * - wal.log       - changes since then, one journal row each (+ add, - delete).
+ * On open, the snapshot is loaded and both logs replayed on top of it, so
+ * whatever was acknowledged before a crash is back.
+ *
+ * Checkpoints: once the log is as big as the snapshot (and at least
+ * MIN_CHECKPOINT_BYTES), a background thread folds it into a new snapshot.
+ * It renames the log to wal.prev.log and copies the rows under the lock,
+ * then writes the snapshot without it, so writers only wait for the
+ * rename and the copy. Each snapshot is written after at least as many log
+ * bytes as it holds, so bulk ingestion rewrites O(n) bytes in total.
+ *
+ * Group commit: writers append their row to a shared buffer and wait.
+ * One of them (the leader) writes the buffer out and calls
+ * FileChannel.force once for everybody queued so far; rows appended
+ * while it syncs go into the next batch. With many writers one fsync
+ * covers many expenses; saveAll and saveBatch always need just one.
+ *
+ * Queries run against an in-memory delegate repository. All access is
+ * serialized on this object, except the fsync itself. A change is visible
+ * to readers as soon as it is logged, slightly before it is durable.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.3.0
+ */
+public class WalExpenseRepository implements ExpenseRepository, AutoCloseable {
+
+    public static final String SNAPSHOT_FILE = "snapshot.csv";
+    public static final String LOG_FILE = "wal.log";
+    public static final String PREVIOUS_LOG_FILE = "wal.prev.log";
+
+    /**
+     * Smallest log that is folded into a snapshot, so small repositories
+     * are not rewritten every few rows.
+     */
+    private static final long MIN_CHECKPOINT_BYTES = 4L * 1024 * 1024;
+
+    private final ExpenseRepository delegate;
+    private final Path directory;
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final Path previousLogFile;
+    private ExpenseCsvWriter log;
+
+    // Group commit state (guarded by this)
+    private long appendedRows;
+    private long durableRows;
+    private boolean syncing;
+    private long syncCount;
+    private IOException failure;
+    private boolean closed;
+
+    // Checkpoint state (guarded by this)
+    private boolean checkpointing;
+    private long snapshotBytes;
+
+    private final int recoveredRows;
+
+    /**
+     * Copy of the delegate's aggregates handed to readers; dropped on every write (guarded by this).
+     */
+    private ExpenseAggregates aggregatesSnapshot;
+
+    /**
+     * Opens (or creates) a durable repository in a directory,
+     * keeping the data in an InMemoryExpenseRepository.
+     *
+     * @param directory data directory
+     * @throws RepositoryException if recovery fails
+     */
+    public WalExpenseRepository(Path directory){
+        this(directory, new InMemoryExpenseRepository());
+    }
+
+    /**
+     * Opens (or creates) a durable repository in a directory.
+     *
+     * @param directory data directory
+     * @param delegate empty repository that holds the data in memory
+     * @throws RepositoryException if recovery fails
+     */
+    public WalExpenseRepository(Path directory, ExpenseRepository delegate){
+        if(directory == null || delegate == null){
+            throw new IllegalArgumentException("Directory and delegate cannot be null");
+        }
+
+        this.delegate = delegate;
+        this.directory = directory;
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.logFile = directory.resolve(LOG_FILE);
+        this.previousLogFile = directory.resolve(PREVIOUS_LOG_FILE);
+
+        try{
+            Files.createDirectories(directory);
+            this.recoveredRows = recover();
+            this.snapshotBytes = Files.exists(snapshotFile) ? Files.size(snapshotFile) : 0;
+            this.log = ExpenseCsvWriter.appendJournal(logFile);
+        }catch (IOException e){
+            throw new RepositoryException("Failed to open write-ahead log in " + directory, e);
+        }
+    }
+
+    // ---- recovery ----
+
+    /**
+     * Loads the snapshot and replays the previous log (if a checkpoint was
+     * running) and the log. A torn last row (crash in the middle of a
+     * write) was never acknowledged and is dropped. If a log had rows, a
+     * checkpoint folds them into a fresh snapshot.
+     *
+     * Replaying an add that is already there or a delete that already
+     * happened is expected after a crash during a checkpoint; any other
+     * failure means the log is damaged, and opening fails with its line.
+     *
+     * @return rows restored from snapshot and logs
+     * @throws RepositoryException if a complete log row cannot be replayed
+     */
+    private int recover() throws IOException {
+        int rows = 0;
+
+        if(Files.exists(snapshotFile)){
+            try(ExpenseCsvReader reader = ExpenseCsvReader.open(snapshotFile.toFile())){
+                Expense expense;
+                while ((expense = reader.next()) != null){
+                    delegate.save(expense);
+                    rows++;
+                }
+            }
+        }
+
+        if(!Files.exists(previousLogFile) && !Files.exists(logFile)){
+            return rows;
+        }
+
+        rows += replay(previousLogFile) + replay(logFile);
+        writeSnapshot(delegate.viewAll(), previousLogFile, logFile);
+        return rows;
+    }
+
+    /**
+     * Replays one log into the delegate.
+     *
+     * @return number of entries replayed
+     */
+    private int replay(Path logPath) throws IOException {
+        File log = logPath.toFile();
+        if(!log.exists()){
+            return 0;
+        }
+
+        int replayed = 0;
+        try(ExpenseCsvReader reader = ExpenseCsvReader.open(log)){
+            if(reader.isJournal()){
+                while (true){
+                    try{
+                        if(!reader.nextEntry()){
+                            break;
+                        }
+                    }catch (RuntimeException e){
+                        if(reader.isRecordTerminated()){
+                            throw corruptLog(logPath, reader, e);
+                        }
+                        // Torn tail: nothing valid follows it
+                        break;
+                    }
+
+                    if(!reader.isRecordTerminated()){
+                        break;
+                    }
+
+                    try{
+                        if(reader.getOp() == ExpenseCsvReader.ADDED){
+                            delegate.save(reader.getEntryExpense());
+                        }else {
+                            delegate.delete(reader.getEntryDeletedId());
+                        }
+                    }catch (DuplicateExpenseException | ExpenseNotFoundException e){
+                        // Already in the snapshot: a crash hit between snapshot swap and log removal
+                    }catch (RuntimeException e){
+                        throw corruptLog(logPath, reader, e);
+                    }
+                    replayed++;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    private static RepositoryException corruptLog(Path logPath, ExpenseCsvReader reader, RuntimeException cause){
+        return new RepositoryException("Cannot replay " + logPath + " at line " + reader.getLineNumber()
+                + ": " + cause.getMessage(), cause);
+    }
+
+    /**
+     * Number of snapshot rows and log entries restored when the repository was opened.
+     */
+    public int getRecoveredRows(){
+        return recoveredRows;
+    }
+
+    // ---- writes ----
+
+    @Override
+    public void save(Expense expense) {
+        long row;
+
+        synchronized (this){
+            row = append(expense);
+        }
+
+        awaitDurable(row);
+    }
+
+    /**
+     * Saves an expense to the delegate and appends its log row; the caller holds this.
+     *
+     * @return number of the log row
+     */
+    private long append(Expense expense){
+        ensureOpen();
+        aggregatesSnapshot = null;
+        delegate.save(expense);
+
+        try{
+            log.writeAdded(expense);
+            return ++appendedRows;
+        }catch (IOException e){
+            // The log may hold part of the row now - refuse further writes
+            failure = e;
+            delegate.delete(expense.getId());
+            throw new RepositoryException("Failed to log expense: " + expense.getDescription(), e);
+        }
+    }
+
+    /**
+     * Saves every valid expense and waits for a single group commit.
+     */
+    @Override
+    public void saveAll(Expense... expenses) {
+        if(expenses == null){
+            return;
+        }
+
+        List<Expense> batch = new ArrayList<>(expenses.length);
+        for(Expense expense : expenses){
+            if(expense != null){
+                batch.add(expense);
+            }
+        }
+
+        List<String> errors = new ArrayList<>();
+        int savedCount = saveBatch(batch, (e, index) -> errors.add("Failed to save expense: " + e.getMessage()));
+
+        if(!errors.isEmpty()){
+            System.out.println("⚠️  Warnings during bulk save:");
+            errors.forEach(System.out::println);
+        }
+
+        System.out.println("✓ Saved " + savedCount + " of " +
+                expenses.length + " expenses");
+    }
+
+    /**
+     * Logs the whole batch and waits for a single group commit.
+     */
+    @Override
+    public int saveBatch(List<Expense> expenses, ObjIntConsumer<RuntimeException> onError) {
+        int savedCount = 0;
+        long lastRow;
+
+        synchronized (this){
+            for(int i = 0; i < expenses.size(); i++){
+                try{
+                    append(expenses.get(i));
+                    savedCount++;
+                }catch (RuntimeException e){
+                    onError.accept(e, i);
+                }
+            }
+            lastRow = appendedRows;
+        }
+
+        awaitDurable(lastRow);
+        return savedCount;
+    }
+
+    @Override
+    public void delete(long id) throws ExpenseNotFoundException {
+        long row;
+
+        synchronized (this){
+            ensureOpen();
+            aggregatesSnapshot = null;
+            Expense expense = delegate.findById(id);
+            delegate.delete(id);
+
+            try{
+                log.writeDeleted(id);
+                row = ++appendedRows;
+            }catch (IOException e){
+                failure = e;
+                delegate.save(expense);
+                throw new RepositoryException("Failed to log delete of expense with ID: " + id, e);
+            }
+        }
+
+        awaitDurable(row);
+    }
+
+    /**
+     * Deletes everything by checkpointing an empty snapshot.
+     */
+    @Override
+    public synchronized void deleteAll() {
+        ensureOpen();
+        aggregatesSnapshot = null;
+        delegate.deleteAll();
+        checkpoint();
+    }
+
+    /**
+     * Blocks until the given log row is on disk. The first waiter that
+     * finds no sync running becomes leader and forces everything appended so far.
+     */
+    private void awaitDurable(long row){
+        long batchEnd;
+
+        synchronized (this){
+            while (durableRows < row && syncing && failure == null){
+                waitForSync();
+            }
+
+            if(failure != null){
+                throw new RepositoryException("Write-ahead log failed", failure);
+            }
+
+            if(durableRows >= row){
+                return;
+            }
+
+            // Leader: take everything queued so far as one batch
+            syncing = true;
+            batchEnd = appendedRows;
+
+            try{
+                log.flush();
+            }catch (IOException e){
+                failSync(e);
+            }
+        }
+
+        IOException error = null;
+        try{
+            log.force();
+        }catch (IOException e){
+            error = e;
+        }
+
+        boolean checkpointDue;
+        synchronized (this){
+            if(error != null){
+                failSync(error);
+            }
+
+            durableRows = Math.max(durableRows, batchEnd);
+            syncCount++;
+            syncing = false;
+            checkpointDue = !checkpointing && !closed && failure == null
+                    && log.size() >= Math.max(MIN_CHECKPOINT_BYTES, snapshotBytes);
+            checkpointing |= checkpointDue;
+            notifyAll();
+        }
+
+        if(checkpointDue){
+            // The leader only starts it; its own write is already durable
+            Thread.ofVirtual().unstarted(this::checkpointInBackground).start();
+        }
+    }
+
+    private void failSync(IOException e){
+        failure = e;
+        syncing = false;
+        notifyAll();
+        throw new RepositoryException("Write-ahead log failed", e);
+    }
+
+    private void waitForSync(){
+        try{
+            wait();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while waiting for write-ahead log");
+        }
+    }
+
+    // ---- checkpoints ----
+
+    /**
+     * Writes all expenses to a new snapshot and starts an empty log.
+     * Writers are blocked meanwhile.
+     */
+    public synchronized void checkpoint(){
+        ensureOpen();
+
+        // One checkpoint at a time: a background one would swap in an older snapshot
+        while (syncing || checkpointing){
+            waitForSync();
+        }
+
+        try{
+            log.close();
+            snapshotBytes = writeSnapshot(delegate.viewAll(), logFile);
+            log = ExpenseCsvWriter.appendJournal(logFile);
+        }catch (IOException e){
+            failure = e;
+            throw new RepositoryException("Checkpoint failed", e);
+        }
+
+        // Everything appended so far is in the snapshot now
+        durableRows = appendedRows;
+        notifyAll();
+    }
+
+    /**
+     * Checkpoint started by a group commit leader: rotates the log and
+     * copies the rows under the lock, then writes the snapshot without it.
+     */
+    private void checkpointInBackground(){
+        long bytes = -1;
+
+        try{
+            List<Expense> rows;
+            synchronized (this){
+                rows = rotateLog();
+            }
+            bytes = writeSnapshot(rows, previousLogFile);
+        }catch (IOException e){
+            synchronized (this){
+                // The logs still hold everything, but a second rotation would overwrite wal.prev.log
+                failure = e;
+            }
+        }catch (RuntimeException e){
+            // Closed or interrupted before the rotation - nothing changed on disk
+        }finally {
+            synchronized (this){
+                if(bytes >= 0){
+                    snapshotBytes = bytes;
+                }
+                checkpointing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Forces and closes the log, renames it to wal.prev.log and opens an
+     * empty one; the caller holds this.
+     *
+     * @return the rows the logs add up to at this point
+     */
+    private List<Expense> rotateLog() throws IOException {
+        ensureOpen();
+
+        while (syncing){
+            waitForSync();
+        }
+
+        log.flush();
+        log.force();
+        log.close();
+        Files.move(logFile, previousLogFile, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        log = ExpenseCsvWriter.appendJournal(logFile);
+
+        // Everything appended so far is durable in wal.prev.log
+        durableRows = appendedRows;
+        notifyAll();
+
+        return delegate.findAll();
+    }
+
+    /**
+     * Writes rows to a temp file, forces it, swaps it in for the snapshot,
+     * forces the directory and only then drops the logs it replaces.
+     *
+     * @param foldedLogs logs whose changes the rows include
+     * @return size of the new snapshot
+     */
+    private long writeSnapshot(List<Expense> rows, Path... foldedLogs) throws IOException {
+        Path temp = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+
+        try(ExpenseCsvWriter writer = new ExpenseCsvWriter(temp, false)){
+            for(Expense expense : rows){
+                writer.write(expense);
+            }
+            writer.flush();
+            writer.force();
+        }
+
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // Without this a crash could keep the log deletes but lose the rename
+        syncDirectory();
+        for(Path foldedLog : foldedLogs){
+            Files.deleteIfExists(foldedLog);
+        }
+        return Files.size(snapshotFile);
+    }
+
+    /**
+     * Forces renames and new files in the data directory to disk.
+     */
+    private void syncDirectory() throws IOException {
+        try(FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)){
+            channel.force(true);
+        }catch (AccessDeniedException e){
+            // Windows cannot open a directory as a channel; there the rename is left to the file system
+        }
+    }
+
+    /**
+     * Number of fsyncs issued for log writes (for measuring group commit).
+     */
+    public synchronized long getSyncCount(){
+        return syncCount;
+    }
+
+    /**
+     * Number of log rows written since the repository was opened.
+     */
+    public synchronized long getLoggedRows(){
+        return appendedRows;
+    }
+
+    /**
+     * Forces pending log rows and closes the log. Any later call fails.
+     */
+    @Override
+    public synchronized void close() {
+        if(closed){
+            return;
+        }
+
+        while (syncing || checkpointing){
+            waitForSync();
+        }
+
+        closed = true;
+        try{
+            log.flush();
+            log.force();
+            log.close();
+        }catch (IOException e){
+            throw new RepositoryException("Failed to close write-ahead log", e);
+        }
+    }
+
+    private void ensureOpen(){
+        if(closed){
+            throw new RepositoryException("Write-ahead log repository is closed");
+        }
+        if(failure != null){
+            throw new RepositoryException("Write-ahead log failed", failure);
+        }
+    }
+
+    // ---- reads (delegated) ----
+
+    @Override
+    public synchronized List<Expense> findAll() {
+        return delegate.findAll();
+    }
+
+    /**
+     * Returns a read-only snapshot; a live view of the delegate
+     * would not be safe while other threads write.
+     */
+    @Override
+    public synchronized List<Expense> viewAll() {
+        return Collections.unmodifiableList(delegate.findAll());
+    }
+
+    @Override
+    public synchronized Expense findById(long id) throws ExpenseNotFoundException {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public synchronized List<Expense> findByCategory(Category category) {
+        return delegate.findByCategory(category);
+    }
+
+    @Override
+    public synchronized List<Expense> findByPriority(Priority priority) {
+        return delegate.findByPriority(priority);
+    }
+
+    @Override
+    public synchronized List<Expense> findExpensesAbove(double amount) {
+        return delegate.findExpensesAbove(amount);
+    }
+
+    @Override
+    public synchronized List<Expense> findExpensesBetween(double min, double max) {
+        return delegate.findExpensesBetween(min, max);
+    }
+
+    @Override
+    public synchronized List<Expense> findByMonth(String month) {
+        return delegate.findByMonth(month);
+    }
+
+    @Override
+    public synchronized List<Expense> findBetweenDates(String from, String to) {
+        return delegate.findBetweenDates(from, to);
+    }
+
+    @Override
+    public synchronized double totalForMonth(String month) {
+        return delegate.totalForMonth(month);
+    }
+
+    @Override
+    public synchronized Optional<Expense> findMostExpensive() {
+        return delegate.findMostExpensive();
+    }
+
+    @Override
+    public synchronized Optional<Expense> findCheapest() {
+        return delegate.findCheapest();
+    }
+
+    @Override
+    public synchronized double totalAmount() {
+        return delegate.totalAmount();
+    }
+
+    @Override
+    public synchronized double totalByCategory(Category category) {
+        return delegate.totalByCategory(category);
+    }
+
+    @Override
+    public synchronized int countByCategory(Category category) {
+        return delegate.countByCategory(category);
+    }
+
+    @Override
+    public synchronized int countByPriority(Priority priority) {
+        return delegate.countByPriority(priority);
+    }
+
+    /**
+     * Returns a read-only snapshot, for the same reason as viewAll().
+     * It is copied once per change and shared until the next write.
+     */
+    @Override
+    public synchronized ExpenseAggregates aggregates() {
+        if(aggregatesSnapshot == null){
+            aggregatesSnapshot = delegate.aggregates().copy();
+        }
+        return aggregatesSnapshot;
+    }
+
+    @Override
+    public synchronized int count() {
+        return delegate.count();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+}
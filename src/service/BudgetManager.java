@@ -3,14 +3,31 @@ package service;
 import exception.ExpenseNotFoundException;
 import exception.InvalidExpenseDataException;
 import model.Category;
+import model.Dates;
 import model.Expense;
+import model.Money;
 import model.Priority;
+import persistence.BinaryExpenseFile;
+import persistence.ExpenseCsvReader;
+import persistence.ExpenseCsvWriter;
+import persistence.ExpenseJournal;
+import persistence.ExpenseSource;
+import persistence.ExpenseSummary;
+import persistence.ParallelExpenseCsvLoader;
+import persistence.SpendingCubeFile;
+import repository.ExpenseAggregates;
 import repository.ExpenseRepository;
+import repository.HeavyHitters;
+import repository.InMemoryExpenseRepository;
+import repository.QuantileSketch;
+import repository.SpendingCube;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Manages a collection of expenses with CRUD operations.
@@ -25,13 +42,52 @@ import java.util.*;
  *
  *
  * @author Konrad Wojdyna
- * @version 0.7.0
+ * @version 0.10.0
  */
 
 public class BudgetManager {
 
+    /**
+     * Months shown with amount percentiles in displayAdvancedStatistics.
+     */
+    private static final int PERCENTILE_MONTHS = 12;
+
+    /**
+     * Rows saved per batch when loading a file (one commit each on a durable repository).
+     */
+    private static final int INSERT_BATCH_ROWS = 1024;
+
     private final ExpenseRepository repository;
 
+    /**
+     * Incremental persistence for one file; null = every save rewrites the file.
+     */
+    private ExpenseJournal journal;
+
+    /**
+     * Thread filling the repository in the background (see loadInBackground);
+     * null when no load is running. Other threads wait for it in rows().
+     */
+    private volatile Thread loader;
+
+    /**
+     * Messages of the background load, kept until the menu shows them
+     * instead of being printed while it waits for input.
+     */
+    private final Queue<String> loadMessages = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Saved count/total of the file being loaded in the background, or null.
+     */
+    private volatile ExpenseSummary loadingSummary;
+
+    /**
+     * Saved spending cube of the file being loaded in the background, or null.
+     * Used only until the load ends; the repository builds its own cube from
+     * the loaded rows (see SpendingCubeFile).
+     */
+    private volatile SpendingCube loadingCube;
+
     /**
      * Creates BudgetManager with specified repository.
      *
@@ -60,7 +116,10 @@ public class BudgetManager {
             throw new IllegalArgumentException("Expense canot be null");
         }
 
-        repository.save(expense);
+        rows().save(expense);
+        if(journal != null){
+            journal.recordAdded(expense);
+        }
         System.out.println("✓ Added: " + expense.getDescription());
     }
 
@@ -107,17 +166,31 @@ public class BudgetManager {
             return;
         }
 
-        repository.saveAll(expenses);
+        boolean[] hadId = new boolean[expenses.length];
+        for(int i = 0; i < expenses.length; i++){
+            hadId[i] = expenses[i] != null && expenses[i].hasId();
+        }
+
+        rows().saveAll(expenses);
+
+        if(journal != null){
+            // saveAll reports failures itself; an expense got its ID only if it was saved
+            for(int i = 0; i < expenses.length; i++){
+                if(expenses[i] != null && !hadId[i] && expenses[i].hasId()){
+                    journal.recordAdded(expenses[i]);
+                }
+            }
+        }
         System.out.println("✓ Bulk add complete expenses added.");
     }
 
     /**
      * Displays all expenses in the budget.
-     * Shows numbered list with formatted expense infromation.
+     * Shows list with expense IDs and formatted expense infromation.
      */
     public void displayAllExpenses(){
 
-        List<Expense> allExpenses = repository.findAll();
+        List<Expense> allExpenses = rows().viewAll();
 
         if(allExpenses.isEmpty()){
             System.out.println("No expenses to display");
@@ -125,35 +198,38 @@ public class BudgetManager {
         }
 
         System.out.println("\n=== All Expenses ===");
-        for(int i=0; i<allExpenses.size(); i++){
-            System.out.print((i + 1) + ". ");
-            allExpenses.get(i).displayInfo();
+        for(Expense expense : allExpenses){
+            System.out.print("#" + expense.getId() + " ");
+            expense.displayInfo();
         }
     }
 
     /**
      * Calculates the total amount of all expenses.
+     * While a background load runs, the saved summary answers without waiting.
      *
      * @return sum of all expense amounts in PLN
      */
     public double calculateTotal(){
-        List<Expense> allExpenses = repository.findAll();
-
-        double total = 0;
-        for(Expense expense : allExpenses){
-            total += expense.getAmount();
+        ExpenseSummary summary = loadingSummary;
+        if(summary != null && isLoading()){
+            return summary.getTotal();
         }
-
-        return  total;
+        return rows().totalAmount();
     }
 
     /**
      * Returns the number of expenses in the budget.
+     * While a background load runs, the saved summary answers without waiting.
      *
      * @return count of expenses
      */
     public int getExpenseCount(){
-        return repository.count();
+        ExpenseSummary summary = loadingSummary;
+        if(summary != null && isLoading()){
+            return summary.getCount();
+        }
+        return rows().count();
     }
 
     /**
@@ -162,22 +238,7 @@ public class BudgetManager {
      * @return the expense with the highest amount, or null if no expenses
      */
     public Expense findMostExpensive(){
-
-        List<Expense> allExpenses = repository.findAll();
-
-        if(allExpenses.isEmpty()){
-            return  null;
-        }
-
-        Expense mostExpensive = allExpenses.getFirst();
-
-        for(Expense expense : allExpenses){
-            if(expense.getAmount() > mostExpensive.getAmount()){
-                mostExpensive = expense;
-            }
-        }
-
-        return mostExpensive;
+        return rows().findMostExpensive().orElse(null);
     }
 
     /**
@@ -186,22 +247,7 @@ public class BudgetManager {
      * @return the expense with lowest amount, or null if no expenses
      */
     public Expense findCheapest(){
-
-        List<Expense> allExpenses = repository.findAll();
-
-        if(allExpenses.isEmpty()){
-            return  null;
-        }
-
-        Expense cheapest = allExpenses.getFirst();
-
-        for(Expense expense : allExpenses){
-            if(expense.getAmount() < cheapest.getAmount()){
-                cheapest = expense;
-            }
-        }
-
-        return  cheapest;
+        return rows().findCheapest().orElse(null);
     }
 
     /**
@@ -209,7 +255,10 @@ public class BudgetManager {
      * This operation cannot be undone.
      */
     public void clearAllExpenses(){
-        repository.deleteAll();
+        rows().deleteAll();
+        if(journal != null){
+            journal.recordCleared();
+        }
         System.out.println("All expenses cleared");
     }
 
@@ -220,7 +269,7 @@ public class BudgetManager {
      * @throws IllegalArgumentException if category name is null
      */
     public List<Expense> findByCategory(Category category){
-          return  repository.findByCategory(category);
+          return  rows().findByCategory(category);
     }
 
     /**
@@ -230,27 +279,22 @@ public class BudgetManager {
      * @return total amount in PLN for that category
      */
     public double getTotalByCategory(Category category){
-        List<Expense> expensesByCategory = findByCategory(category);
-
-        double total = 0;
-
-        for(Expense expense : expensesByCategory){
-            total += expense.getAmount();
-        }
-
-        return total;
+        return rows().totalByCategory(category);
     }
 
     /**
-     * Removes expense at specified index.
+     * Removes expense with specified ID.
      *
-     * @param index the index of expense to remove (0-based)
-     * @throws IndexOutOfBoundsException if index is invalid
+     * @param id the ID of expense to remove
+     * @throws RuntimeException if no expense has that ID
      */
-    public void  removeExpense(int index){
+    public void  removeExpense(long id){
         try{
-        Expense expense = repository.findById(index);
-        repository.delete(index);
+        Expense expense = rows().findById(id);
+        rows().delete(id);
+        if(journal != null){
+            journal.recordDeleted(id);
+        }
         System.out.println("Removed: " + expense.getDescription());
 
         }catch (ExpenseNotFoundException e){
@@ -270,7 +314,18 @@ public class BudgetManager {
      * @return ArrayList of expenses with amount > threshold
      */
     public List<Expense> findExpensesAbove(double amount){
-        return repository.findExpensesAbove(amount);
+        return rows().findExpensesAbove(amount);
+    }
+
+    /**
+     * Finds all expenses with amount between min and max (inclusive).
+     *
+     * @param min lower bound
+     * @param max upper bound
+     * @return list of expenses in that range
+     */
+    public List<Expense> findExpensesBetween(double min, double max){
+        return rows().findExpensesBetween(min, max);
     }
 
     /**
@@ -280,7 +335,7 @@ public class BudgetManager {
      * @return ArrayList of expenses with that priority
      */
     public List<Expense> findByPriority(Priority priority){
-        return repository.findByPriority(priority);
+        return rows().findByPriority(priority);
     }
 
     /**
@@ -295,15 +350,15 @@ public class BudgetManager {
         boolean hasAny = false;
 
         for(Category category : categories){
-            List<Expense> categoryExpense = findByCategory(category);
+            int count = rows().countByCategory(category);
 
-            if(!categoryExpense.isEmpty()){
+            if(count > 0){
                 hasAny = true;
                 double total = getTotalByCategory(category);
 
                 System.out.printf("%s: %d expenses | %.2f PLN%n",
                         category.getLabel(),
-                        categoryExpense.size(),
+                        count,
                         total);
             }
         }
@@ -315,6 +370,77 @@ public class BudgetManager {
         System.out.println("───────────────────────────────────────");
     }
 
+    /**
+     * Descriptions (merchants) with the most expenses, from the fixed-size
+     * tracker kept in the aggregates. Counts are upper bounds, at most
+     * entry.error() too high (see HeavyHitters).
+     *
+     * @param k number of descriptions, at most HeavyHitters.CAPACITY
+     * @return heaviest first
+     */
+    public List<HeavyHitters.Entry> getTopDescriptionsByCount(int k){
+        return rows().aggregates().frequentDescriptions().top(k);
+    }
+
+    /**
+     * Descriptions (merchants) with the highest spend; estimates and errors
+     * are in grosze (see getTopDescriptionsByCount).
+     *
+     * @param k number of descriptions, at most HeavyHitters.CAPACITY
+     * @return heaviest first
+     */
+    public List<HeavyHitters.Entry> getTopDescriptionsBySpend(int k){
+        return rows().aggregates().costlyDescriptions().top(k);
+    }
+
+    /**
+     * Displays the top k descriptions by spend and by number of expenses,
+     * each with the range its exact value is guaranteed to lie in.
+     *
+     * @param k number of descriptions per list
+     */
+    public void displayTopDescriptions(int k){
+        ExpenseAggregates aggregates = rows().aggregates();
+        HeavyHitters bySpend = aggregates.costlyDescriptions();
+        HeavyHitters byCount = aggregates.frequentDescriptions();
+
+        if(byCount.total() == 0){
+            System.out.println("No expenses to analyze.");
+            return;
+        }
+
+        System.out.println("\n🏆 Top " + k + " by spend:");
+        System.out.println("───────────────────────────────────────");
+        int rank = 1;
+        for(HeavyHitters.Entry entry : bySpend.top(k)){
+            System.out.printf("%2d. %-25s %12s PLN", rank++, entry.description(), Money.format(entry.estimate()));
+            if(entry.error() > 0){
+                System.out.print(" (at least " + Money.format(entry.guaranteed()) + ")");
+            }
+            System.out.println();
+        }
+
+        System.out.println("\n🔁 Top " + k + " by number of expenses:");
+        System.out.println("───────────────────────────────────────");
+        rank = 1;
+        for(HeavyHitters.Entry entry : byCount.top(k)){
+            System.out.printf("%2d. %-25s %8d", rank++, entry.description(), entry.estimate());
+            if(entry.error() > 0){
+                System.out.print(" (at least " + entry.guaranteed() + ")");
+            }
+            System.out.println();
+        }
+
+        System.out.println("───────────────────────────────────────");
+        if(byCount.maxError() == 0 && bySpend.maxError() == 0){
+            System.out.println("✓ Exact: every description is tracked");
+        }else {
+            System.out.printf("⚠️  Estimates from the %d heaviest descriptions; untracked ones have at most "
+                            + "%s PLN / %d expenses%n",
+                    HeavyHitters.CAPACITY, Money.format(bySpend.maxError()), byCount.maxError());
+        }
+    }
+
     /**
      * Finds expenses by category and displays them.
      * Convenience method combining find + display
@@ -361,24 +487,16 @@ public class BudgetManager {
 
     /**
      * Calculates total spending for each category using HashMap.
-     * More efficient than multiple loops - 0(n) instead of 0(n*m).
+     * Reads the repository's running aggregates, so no expense is scanned.
      *
      * @return map of category to total amount
      */
     public Map<Category, Double> calculateTotalsByCategory(){
         Map<Category, Double> totals = new HashMap<>();
+        ExpenseAggregates aggregates = rows().aggregates();
 
-        //Initialize all categories with 0.0
         for(Category category : Category.values()){
-            totals.put(category, 0.0);
-        }
-
-        //Sum expenses for each category (single loop)
-        List<Expense> allExpenses = repository.findAll();
-        for(Expense expense : allExpenses){
-            Category cat = expense.getCategory();
-            double currentTotal = totals.get(cat);
-            totals.put(cat, currentTotal + expense.getAmount());
+            totals.put(category, aggregates.totalByCategory(category));
         }
 
         return totals;
@@ -391,18 +509,10 @@ public class BudgetManager {
      */
     public Map<Category, Integer> getExpenseCountByCategory(){
         Map<Category, Integer> counts = new HashMap<>();
+        ExpenseAggregates aggregates = rows().aggregates();
 
-        //Initialize with 0
         for(Category category : Category.values()){
-            counts.put(category, 0);
-        }
-
-        //Count expenses
-        List<Expense> expenses = repository.findAll();
-        for(Expense expense : expenses){
-            Category cat = expense.getCategory();
-            int currentCount = counts.get(cat);
-            counts.put(cat, currentCount + 1);
+            counts.put(category, aggregates.countByCategory(category));
         }
 
         return counts;
@@ -415,17 +525,10 @@ public class BudgetManager {
      */
     public Map<Priority, Integer> getExpenseCountByPriority(){
         Map<Priority, Integer> counts = new HashMap<>();
+        ExpenseAggregates aggregates = rows().aggregates();
 
-        //Initialize
         for(Priority priority : Priority.values()){
-            counts.put(priority, 0);
-        }
-
-        //Count
-        List<Expense> allExpenses = repository.findAll();
-        for(Expense expense : allExpenses){
-            Priority p = expense.getPriority();
-            counts.put(p, counts.get(p) + 1);
+            counts.put(priority, aggregates.countByPriority(priority));
         }
 
         return  counts;
@@ -434,74 +537,62 @@ public class BudgetManager {
     /**
      * Get all unique dates that have expenses.
      *
-     * @return set of unique dates
+     * @return read-only set of unique dates
      */
     public Set<String> getUniqueDates(){
-        Set<String> dates = new HashSet<>();
-
-        List<Expense> allExpenses = repository.findAll();
-        for(Expense expense : allExpenses){
-            dates.add(expense.getDate());
-        }
-
-        return  dates;
+        return rows().aggregates().totalsByDate().keySet();
     }
 
     /**
-     * Get total spending per date.
+     * Get total spending per date, from the repository's running per-date sums.
      *
-     * @return map of date to total amount
+     * @return read-only map of date to total amount
      */
     public Map<String, Double> getTotalsByDate(){
-       Map<String, Double> totals = new HashMap<>();
-
-       List<Expense> allExpenses = repository.findAll();
-       for(Expense expense : allExpenses){
-           String date = expense.getDate();
-           double currentTotal = totals.getOrDefault(date, 0.0);
-           totals.put(date, currentTotal + expense.getAmount());
-       }
-
-       return totals;
+        return rows().aggregates().totalsByDate();
     }
 
+    /**
+     * Prints overall, per-category, per-priority and per-date statistics.
+     * All figures come from a single StatisticsEngine pass over the expenses.
+     */
     public void displayAdvancedStatistics(){
         System.out.println("Advanced Budget Statistics");
 
-        List<Expense> allExpenses = repository.findAll();
+        ExpenseStatistics statistics = getStatistics();
+        ExpenseAggregates aggregates = rows().aggregates();
 
-        if(allExpenses.isEmpty()){
+        if(statistics.isEmpty()){
             System.out.println("No expenses to analyze.");
             return;
         }
 
         //Overall totals
-        double grandTotal = calculateTotal();
         System.out.println("\n📊 Overall Statistics:");
         System.out.println("───────────────────────────────────────");
-        System.out.printf("Total Expenses: %d%n", allExpenses.size());
-        System.out.printf("Total Amount: %.2f PLN%n", grandTotal);
-        System.out.printf("Average Expense: %.2f PLN%n", grandTotal / allExpenses.size());
+        System.out.printf("Total Expenses: %d%n", statistics.getCount());
+        System.out.println("Total Amount: " + Money.format(statistics.getTotalMinor()) + " PLN");
+        System.out.printf("Average Expense: %.2f PLN%n", statistics.getAverage());
+        System.out.printf("Min / Max: %.2f / %.2f PLN | Std dev: %.2f PLN%n",
+                statistics.getMin(), statistics.getMax(), statistics.getStandardDeviation());
+        printPercentiles("", aggregates.amountSketch(null));
 
         //Category breakdown
         System.out.println("\n📂 By Category:");
         System.out.println("───────────────────────────────────────");
 
-        Map<Category, Double> categoryTotals = calculateTotalsByCategory();
-        Map<Category, Integer> categoryCounts = getExpenseCountByCategory();
-
         for(Category category : Category.values()){
-            int count = categoryCounts.get(category);
-            double total = categoryTotals.get(category);
+            int count = statistics.getCount(category);
 
             if(count > 0){
-                double percentage = (total / grandTotal) * 100;
-                double average = total / count;
-
                 System.out.printf("%s%n", category.getLabel());
                 System.out.printf("  Count: %d | Total: %.2f PLN (%.1f%%)%n",
-                        count, total, percentage);
-                System.out.printf("  Average: %.2f PLN%n", average);
+                        count, statistics.getTotal(category), statistics.getPercentage(category));
+                System.out.printf("  Average: %.2f PLN%n", statistics.getAverage(category));
+                System.out.printf("  Min / Max: %.2f / %.2f PLN | Std dev: %.2f PLN%n",
+                        statistics.getMin(category), statistics.getMax(category),
+                        statistics.getStandardDeviation(category));
+                printPercentiles("  ", aggregates.amountSketch(category));
             }
         }
 
@@ -509,63 +600,83 @@ public class BudgetManager {
         System.out.println("\n⚡ By Priority:");
         System.out.println("───────────────────────────────────────");
 
-        Map<Priority, Integer> priorityCounts = getExpenseCountByPriority();
-
         for (Priority priority : Priority.values()) {
-            int count = priorityCounts.get(priority);
+            int count = statistics.getCount(priority);
             if (count > 0) {
-                double percentage = (count * 100.0) / allExpenses.size();
                 System.out.printf("%s: %d expenses (%.1f%%)%n",
-                        priority, count, percentage);
+                        priority, count, statistics.getPercentage(priority));
             }
         }
 
+        // Monthly amount distribution, latest months
+        System.out.println("\n📆 By Month (last " + PERCENTILE_MONTHS + "):");
+        System.out.println("───────────────────────────────────────");
+
+        int[] months = aggregates.cube().buckets(SpendingCube.Level.MONTH);
+        for(int i = Math.max(0, months.length - PERCENTILE_MONTHS); i < months.length; i++){
+            QuantileSketch sketch = aggregates.monthAmountSketch(months[i], months[i]);
+            System.out.printf("%s: %d expenses%n", Dates.formatMonth(months[i]), sketch.count());
+            printPercentiles("  ", sketch);
+        }
+
         // Date analysis
         System.out.println("\n📅 Date Analysis:");
         System.out.println("───────────────────────────────────────");
 
-        Set<String> uniqueDates = getUniqueDates();
-        System.out.printf("Unique dates with expenses: %d%n", uniqueDates.size());
+        System.out.printf("Unique dates with expenses: %d%n", statistics.getUniqueDates());
 
-        Map<String, Double> dateTotals = getTotalsByDate();
+        if (statistics.getMostExpensiveDate() != null) {
+            System.out.printf("Most expensive date: %s (%.2f PLN)%n",
+                    statistics.getMostExpensiveDate(), statistics.getMostExpensiveDateTotal());
+        }
 
-        // Find most expensive date
-        String maxDate = null;
-        double maxAmount = 0;
+        System.out.println("───────────────────────────────────────");
+    }
 
-        for (Map.Entry<String, Double> entry : dateTotals.entrySet()) {
-            if (entry.getValue() > maxAmount) {
-                maxAmount = entry.getValue();
-                maxDate = entry.getKey();
-            }
-        }
+    private static void printPercentiles(String indent, QuantileSketch sketch){
+        System.out.printf("%sMedian / p90 / p99: %.2f / %.2f / %.2f PLN (±%.0f%%)%n", indent,
+                sketch.median(), sketch.quantile(0.9), sketch.quantile(0.99),
+                QuantileSketch.RELATIVE_ERROR * 100);
+    }
 
-        if (maxDate != null) {
-            System.out.printf("Most expensive date: %s (%.2f PLN)%n", maxDate, maxAmount);
-        }
+    /**
+     * Computes all statistics of the current expenses in one pass.
+     *
+     * @return immutable statistics snapshot
+     */
+    public ExpenseStatistics getStatistics(){
+        return new StatisticsEngine().compute(rows().viewAll());
+    }
 
-        System.out.println("───────────────────────────────────────");
+    /**
+     * Computes all statistics of the current expenses on all cores.
+     * Results are the same on every run (see StatisticsEngine.computeParallel);
+     * small sets are computed sequentially.
+     *
+     * @return immutable statistics snapshot
+     */
+    public ExpenseStatistics getStatisticsParallel(){
+        return new StatisticsEngine().computeParallel(rows().viewAll());
     }
 
     /**
      * Get expenses by month
      *
-     * @return map expenses by month
+     * @return map expenses by month, grouped by date in date order
      */
     public Map<String, List<Expense>> getExpensesByMonth(String month){
-        Map<String, List<Expense>> expensesByMonth = new HashMap<>();
+        // Group on the epoch-day; format each date once
+        Map<Integer, List<Expense>> byEpochDay = new TreeMap<>();
 
-        List<Expense> allExpenses = repository.findAll();
-
-        for(Expense expense : allExpenses){
-            String date = expense.getDate();
+        List<Expense> monthExpenses = rows().findByMonth(month);
 
-            if(date.startsWith(month)){
-                List<Expense> expensesOnDate = expensesByMonth.getOrDefault(date, new ArrayList<>());
-                expensesOnDate.add(expense);
+        for(Expense expense : monthExpenses){
+            byEpochDay.computeIfAbsent(expense.getEpochDay(), day -> new ArrayList<>()).add(expense);
+        }
 
-                expensesByMonth.put(date, expensesOnDate);
-            }
+        Map<String, List<Expense>> expensesByMonth = new LinkedHashMap<>();
+        for(Map.Entry<Integer, List<Expense>> entry : byEpochDay.entrySet()){
+            expensesByMonth.put(Dates.format(entry.getKey()), entry.getValue());
         }
 
             System.out.println("Expenses in " + month + " grouped by date: ");
@@ -580,6 +691,174 @@ public class BudgetManager {
         return expensesByMonth;
     }
 
+    /**
+     * Calculates total spending in specified month.
+     *
+     * @param month the month (YYYY-MM format)
+     * @return total amount in PLN
+     */
+    public double getTotalForMonth(String month){
+        return rows().totalForMonth(month);
+    }
+
+    /**
+     * Finds expenses dated between two dates (inclusive).
+     *
+     * @param from first date (YYYY-MM-DD)
+     * @param to last date (YYYY-MM-DD)
+     * @return list of expenses in that date range
+     */
+    public List<Expense> findExpensesBetweenDates(String from, String to){
+        return rows().findBetweenDates(from, to);
+    }
+
+    /**
+     * Total spent between two dates (inclusive), from the date-range index
+     * kept in the aggregates - no scan over the expenses.
+     *
+     * @param from first date (YYYY-MM-DD)
+     * @param to last date (YYYY-MM-DD)
+     * @return total amount in PLN
+     * @throws InvalidExpenseDataException if a date is invalid or to is before from
+     */
+    public double getTotalBetween(String from, String to){
+        return getTotalBetween(from, to, null);
+    }
+
+    /**
+     * Total spent in a category between two dates (inclusive).
+     *
+     * @param from first date (YYYY-MM-DD)
+     * @param to last date (YYYY-MM-DD)
+     * @param category category to sum, or null for all categories
+     * @return total amount in PLN
+     * @throws InvalidExpenseDataException if a date is invalid or to is before from
+     */
+    public double getTotalBetween(String from, String to, Category category){
+        int first = parseDate(from, "from");
+        int last = parseDate(to, "to");
+        checkRange(first, last, to);
+
+        return Money.toDouble(rows().aggregates().totalBetweenMinor(first, last, category));
+    }
+
+    /**
+     * Number of expenses between two dates (inclusive).
+     *
+     * @param category category to count, or null for all categories
+     * @throws InvalidExpenseDataException if a date is invalid or to is before from
+     */
+    public int getCountBetween(String from, String to, Category category){
+        int first = parseDate(from, "from");
+        int last = parseDate(to, "to");
+        checkRange(first, last, to);
+
+        return category == null
+                ? rows().aggregates().countBetween(first, last)
+                : rows().aggregates().countBetween(first, last, category);
+    }
+
+    /**
+     * Distribution of expense amounts (median, p90, p99, ...), from the
+     * quantile sketches kept in the aggregates - no sort over the expenses.
+     * Every quantile is within QuantileSketch.RELATIVE_ERROR of the exact value.
+     *
+     * @param category category, or null for all categories
+     * @return snapshot of the sketch
+     */
+    public QuantileSketch getAmountSketch(Category category){
+        return rows().aggregates().amountSketch(category).copy();
+    }
+
+    /**
+     * Distribution of expense amounts in a range of months (inclusive).
+     *
+     * @param fromMonth first month (YYYY-MM)
+     * @param toMonth last month (YYYY-MM)
+     * @return snapshot of the month sketches merged
+     * @throws InvalidExpenseDataException if a month is invalid or toMonth is before fromMonth
+     */
+    public QuantileSketch getAmountSketch(String fromMonth, String toMonth){
+        int first = parseMonth(fromMonth, "fromMonth");
+        int last = parseMonth(toMonth, "toMonth");
+        if(last < first){
+            throw new InvalidExpenseDataException("End month cannot be before start month", "toMonth", toMonth);
+        }
+
+        return rows().aggregates().monthAmountSketch(first, last);
+    }
+
+    private static int parseMonth(String month, String fieldName){
+        try{
+            return Dates.parseMonth(month);
+        }catch (IllegalArgumentException e){
+            throw new InvalidExpenseDataException("Month must be in YYYY-MM format", fieldName, month);
+        }
+    }
+
+    private static int parseDate(String date, String fieldName){
+        try{
+            return Dates.parse(date);
+        }catch (IllegalArgumentException e){
+            throw new InvalidExpenseDataException("Date must be in YYYY-MM-DD format", fieldName, date);
+        }
+    }
+
+    private static void checkRange(int first, int last, String to){
+        if(last < first){
+            throw new InvalidExpenseDataException("End date cannot be before start date", "to", to);
+        }
+    }
+
+    /**
+     * Totals per day, month and year, sliced by category and priority.
+     * While a background load runs, the cube saved with the file answers
+     * without waiting (if it is up to date).
+     *
+     * @return read-only cube; a snapshot, not updated by later changes
+     */
+    public SpendingCube getSpendingCube(){
+        SpendingCube cube = loadingCube;
+        if(cube != null && isLoading()){
+            return cube;
+        }
+        return rows().aggregates().cube().copy();
+    }
+
+    /**
+     * Total per month (YYYY-MM, ascending), optionally for one category and priority.
+     *
+     * @param category category to sum, or null for all categories
+     * @param priority priority to sum, or null for all priorities
+     * @return month -> total in PLN, months without expenses left out
+     */
+    public Map<String, Double> getMonthlyTotals(Category category, Priority priority){
+        return totalsPer(SpendingCube.Level.MONTH, category, priority);
+    }
+
+    /**
+     * Total per year (ascending), optionally for one category and priority.
+     *
+     * @param category category to sum, or null for all categories
+     * @param priority priority to sum, or null for all priorities
+     * @return year -> total in PLN, years without expenses left out
+     */
+    public Map<String, Double> getYearlyTotals(Category category, Priority priority){
+        return totalsPer(SpendingCube.Level.YEAR, category, priority);
+    }
+
+    private Map<String, Double> totalsPer(SpendingCube.Level level, Category category, Priority priority){
+        SpendingCube cube = getSpendingCube();
+        Map<String, Double> totals = new LinkedHashMap<>();
+
+        for(int bucket : cube.buckets(level)){
+            if(cube.count(level, bucket, category, priority) > 0){
+                totals.put(SpendingCube.label(level, bucket), cube.total(level, bucket, category, priority));
+            }
+        }
+        return totals;
+    }
+
     /**
      * Finds category with most expenses (by count).
      *
@@ -601,13 +880,20 @@ public class BudgetManager {
         return  mostPopular;
     }
 
-    public Expense getExpenseByIndex(int index) throws ExpenseNotFoundException{
-        if(index < 0){
-            throw new InvalidExpenseDataException("Index cannot be negative", "index", index);
+    /**
+     * Finds expense by its stable ID.
+     *
+     * @param id the expense ID
+     * @return the expense
+     * @throws ExpenseNotFoundException if no expense has that ID
+     */
+    public Expense getExpenseById(long id) throws ExpenseNotFoundException{
+        if(id <= 0){
+            throw new InvalidExpenseDataException("ID must be positive", "id", id);
         }
 
         try{
-            return  repository.findById(index);
+            return  rows().findById(id);
         }catch (ExpenseNotFoundException e){
             System.out.println("Expense not found: " + e.getMessage());
             throw e;
@@ -615,114 +901,433 @@ public class BudgetManager {
     }
 
     /**
-     * Saves all expenses to CSV file.
+     * Saves all expenses to CSV file (UTF-8).
+     * Files named *.gz are gzip-compressed, files named *.bin use the binary format.
      *
      * @param fileName path to save file
      * @throws IOException if file write fails
      */
     public void saveToFile(String fileName) throws IOException {
+        if(fileName.endsWith(".bin")){
+            saveToBinaryFile(fileName);
+            return;
+        }
+        saveToFile(fileName, fileName.endsWith(".gz"));
+    }
 
-        try(BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))){
+    /**
+     * Saves all expenses in the memory-mapped binary format.
+     *
+     * @param fileName path to save file
+     * @throws IOException if file write fails
+     */
+    public void saveToBinaryFile(String fileName) throws IOException {
+        List<Expense> allExpenses = rows().viewAll();
+        BinaryExpenseFile.write(Path.of(fileName), allExpenses);
+
+        System.out.println("✓ Saved " + allExpenses.size() +
+                " expenses to " + fileName + " (binary)");
+    }
 
-            writer.write("date,amount,description,category,priority");
-            writer.newLine();
+    /**
+     * Saves all expenses to CSV file (UTF-8), optionally gzip-compressed.
+     *
+     * @param fileName path to save file
+     * @param gzip whether to compress the output
+     * @throws IOException if file write fails
+     */
+    public void saveToFile(String fileName, boolean gzip) throws IOException {
 
-            List<Expense> allExpenses = repository.findAll();
+        if(journal != null && journal.covers(fileName)){
+            saveChanges(fileName);
+            return;
+        }
+
+        List<Expense> allExpenses = rows().viewAll();
+
+        try(ExpenseCsvWriter writer = new ExpenseCsvWriter(Path.of(fileName), gzip)){
             for(Expense expense : allExpenses){
+                writer.write(expense);
+            }
+        }
 
-                String desc = expense.getDescription();
+        System.out.println("✓ Saved " + allExpenses.size() +
+                " expenses to " + fileName);
+    }
 
-                if(desc.contains(",") || desc.contains("\"")){
-                    desc = "\"" + desc.replace("\"", "\"\"") + "\"";
-                }
 
-                String line = String.format("%s,%s,%s,%s,%s",
-                        expense.getDate(),
-                        expense.getAmount(),
-                        desc,
-                        expense.getCategory().name(),  // FOOD, TRANSPORT, etc.
-                        expense.getPriority().name()); // LOW, MEDIUM, HIGH
+    /**
+     * Switches saving of one file to incremental mode: saves of that file
+     * append only the changes since the last save to a journal next to it,
+     * and loading it replays the journal. The file is rewritten in full
+     * (compacted) once the journal passes the threshold.
+     *
+     * @param fileName base file, e.g. expenses.csv
+     * @param compactionBytes journal size that triggers compaction
+     */
+    public void useJournal(String fileName, long compactionBytes){
+        this.journal = new ExpenseJournal(fileName, compactionBytes);
+    }
 
-                writer.write(line);
-                writer.newLine();
+    /**
+     * Switches saving of one file to incremental mode with the default compaction threshold.
+     *
+     * @param fileName base file, e.g. expenses.csv
+     */
+    public void useJournal(String fileName){
+        useJournal(fileName, ExpenseJournal.DEFAULT_COMPACTION_BYTES);
+    }
+
+    private void saveChanges(String fileName) throws IOException {
+        int changes = journal.pendingChanges();
+
+        if(journal.save(rows().viewAll())){
+            System.out.println("✓ Saved " + rows().count() + " expenses to " + fileName + " (compacted)");
+        }else {
+            System.out.println("✓ Saved " + changes + " changes to " + journal.getJournalFile().getFileName());
+        }
+
+        ExpenseAggregates aggregates = rows().aggregates();
+        ExpenseSummary.write(Path.of(fileName), aggregates.count(), aggregates.totalAmountMinor());
+        SpendingCubeFile.write(Path.of(fileName), aggregates.cube());
+    }
+
+    /**
+     * Loads expenses from CSV file (UTF-8, plain or gzip) or binary expense file.
+     * Loaded into an empty repository, files with an id column keep their
+     * IDs; otherwise rows get fresh IDs (see loadTarget). Invalid rows are
+     * reported and skipped.
+     *
+     * @param filename path to load file
+     * @throws IOException if file read fails
+     */
+    public void loadFromFile(String filename) throws IOException {
+        File file = new File(filename);
+
+        if (!file.exists()) {
+            report("⚠️  File not found: " + filename);
+            return;
+        }
+
+        if (BinaryExpenseFile.isBinary(file)) {
+            loadFromBinaryFile(filename);
+            return;
+        }
+
+        boolean wasEmpty = rows().isEmpty();
+        ExpenseRepository target = loadTarget(wasEmpty);
+
+        try (ExpenseCsvReader reader = ExpenseCsvReader.open(file)) {
+            insertAll(reader, filename, target);
+        }
+
+        replayJournal(filename, target, wasEmpty);
+        mergeLoaded(target);
+    }
+
+    /**
+     * Starts loading a file on a virtual thread and returns at once.
+     *
+     * Until the load finishes, getExpenseCount and calculateTotal answer
+     * from the file's saved summary (if it is up to date); every other
+     * operation waits for the load first. The load prints nothing itself:
+     * its messages wait in takeLoadMessages (awaitLoad prints them).
+     *
+     * @param filename path to load file
+     */
+    public void loadInBackground(String filename){
+        awaitLoad();
+
+        loadingSummary = ExpenseSummary.read(Path.of(filename));
+        loadingCube = SpendingCubeFile.read(Path.of(filename));
+        Thread thread = Thread.ofVirtual().unstarted(() -> {
+            try {
+                loadFromFile(filename);
+            } catch (IOException e) {
+                report("❌ Error loading: " + e.getMessage());
+            } finally {
+                loader = null;
+                loadingSummary = null;
+                loadingCube = null;
             }
+        });
+
+        // Published before it starts, so its own calls to rows() don't wait on themselves
+        loader = thread;
+        thread.start();
+    }
+
+    /**
+     * Whether a background load is still running.
+     */
+    public boolean isLoading(){
+        return loader != null;
+    }
+
+    /**
+     * Whether count and total can be answered while the background load runs.
+     */
+    public boolean hasLoadingSummary(){
+        return loadingSummary != null && isLoading();
+    }
 
-            System.out.println("✓ Saved " + allExpenses.size() +
-                    " expenses to " + fileName);
+    /**
+     * Blocks until a running background load has finished.
+     */
+    public void awaitLoad(){
+        Thread running = loader;
+        if(running == null || running == Thread.currentThread()){
+            return;
+        }
+
+        System.out.println("⏳ Waiting for expenses to finish loading...");
+        boolean interrupted = false;
+        while (running.isAlive()){
+            try{
+                running.join();
+            }catch (InterruptedException e){
+                interrupted = true;
+            }
         }
+
+        if(interrupted){
+            Thread.currentThread().interrupt();
+        }
+        takeLoadMessages().forEach(System.out::println);
     }
 
+    /**
+     * Messages of the background load (rows loaded, skipped rows, errors)
+     * not shown yet; they are removed from the manager.
+     */
+    public List<String> takeLoadMessages(){
+        List<String> messages = new ArrayList<>();
+        String message;
+        while ((message = loadMessages.poll()) != null){
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /**
+     * Prints a load message, or keeps it for takeLoadMessages when the
+     * background loader reports it.
+     */
+    private void report(String message){
+        if(Thread.currentThread() == loader){
+            loadMessages.add(message);
+        }else {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * The repository, once no background load is filling it.
+     */
+    private ExpenseRepository rows(){
+        Thread running = loader;
+        if(running != null && running != Thread.currentThread()){
+            awaitLoad();
+        }
+        return repository;
+    }
 
     /**
-     * Loads expenses from CSV file.
+     * Loads expenses from a binary expense file. The file is memory-mapped,
+     * so there is no parsing; rows are decoded as they are inserted.
+     *
+     * @param filename path to load file
+     * @throws IOException if the file is not a valid binary expense file
+     */
+    public void loadFromBinaryFile(String filename) throws IOException {
+        ExpenseRepository target = loadTarget(rows().isEmpty());
+
+        try (BinaryExpenseFile file = BinaryExpenseFile.open(Path.of(filename))) {
+            insertAll(file.source(), filename, target);
+        }
+
+        mergeLoaded(target);
+        if (journal != null) {
+            journal.requireRewrite();
+        }
+    }
+
+    /**
+     * Loads expenses from CSV file, parsing chunks of it on all cores.
+     * Rows are inserted in file order on the calling thread, so the result
+     * (IDs, duplicates, skipped rows) is the same as with loadFromFile.
      *
      * @param filename path to load file
      * @throws IOException if file read fails
      */
-    public void loadFromFile(String filename) throws IOException {
+    public void loadFromFileParallel(String filename) throws IOException {
         File file = new File(filename);
 
         if (!file.exists()) {
-            System.out.println("⚠️  File not found: " + filename);
+            report("⚠️  File not found: " + filename);
             return;
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        if (BinaryExpenseFile.isBinary(file)) {
+            loadFromBinaryFile(filename);
+            return;
+        }
 
-            // Skip header line
-            String header = reader.readLine();
+        if (ExpenseCsvReader.isGzip(file)) {
+            // A compressed stream cannot be split into byte ranges
+            loadFromFile(filename);
+            return;
+        }
 
-            int loadedCount = 0;
-            int errorCount = 0;
-            String line;
+        boolean wasEmpty = rows().isEmpty();
+        ExpenseRepository target = loadTarget(wasEmpty);
 
-            while ((line = reader.readLine()) != null) {
-                try {
+        try (ExpenseSource rows = new ParallelExpenseCsvLoader().parse(file)) {
+            insertAll(rows, filename, target);
+        }
 
-                    String regex = ",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)";
+        replayJournal(filename, target, wasEmpty);
+        mergeLoaded(target);
+    }
 
-                    // Parse CSV line
-                    String[] parts = line.split(regex);
+    /**
+     * Repository a file is loaded into. Rows keep the IDs stored in the
+     * file only when the repository is empty, the case the journal needs.
+     * Otherwise the file (and its journal, whose deletes refer to those
+     * IDs) is loaded into a separate repository first, and mergeLoaded
+     * copies the rows in with fresh IDs, so they cannot clash with the
+     * expenses already here.
+     */
+    private ExpenseRepository loadTarget(boolean wasEmpty){
+        return wasEmpty ? rows() : new InMemoryExpenseRepository();
+    }
 
+    /**
+     * Saves the rows of a separately loaded file (see loadTarget) into the
+     * repository with fresh IDs; rows it already holds are reported and skipped.
+     */
+    private void mergeLoaded(ExpenseRepository loaded){
+        if(loaded == repository){
+            return;
+        }
 
-                    if (parts.length != 5) {
-                        System.out.println("⚠️  Skipping invalid line: " + line);
-                        errorCount++;
-                        continue;
-                    }
-                    String date = parts[0];
-                    double amount = Double.parseDouble(parts[1]);
-                    if(parts[2].startsWith("\"")){
-                        parts[2] = parts[2].substring(1, parts[2].length() - 1);
-                    }
-                    String description = parts[2];
-                    Category category = Category.valueOf(parts[3]);
-                    Priority priority = Priority.valueOf(parts[4]);
+        List<Expense> batch = new ArrayList<>(INSERT_BATCH_ROWS);
+        int merged = 0;
+        for(Expense expense : loaded.viewAll()){
+            batch.add(Expense.ofEpochDay(expense.getEpochDay(), expense.getAmountMinor(),
+                    expense.getDescription(), expense.getCategory(), expense.getPriority()));
+            if(batch.size() == INSERT_BATCH_ROWS){
+                merged += mergeBatch(batch);
+            }
+        }
+        merged += mergeBatch(batch);
 
-                    // Create and add expense
-                    Expense expense = new Expense(date, amount, description,
-                            category, priority);
-                    repository.save(expense);
-                    loadedCount++;
+        report("✓ Merged " + merged + " of " + loaded.count() + " expenses into the ones already loaded");
+        if(journal != null && merged > 0){
+            // Rows from a load are not tracked as changes
+            journal.requireRewrite();
+        }
+    }
 
+    /**
+     * Saves and empties a batch of rows copied by mergeLoaded.
+     *
+     * @return number of rows saved
+     */
+    private int mergeBatch(List<Expense> batch){
+        int saved = rows().saveBatch(batch, (e, index) -> report("⚠️  Skipping row: " + e.getMessage()));
+        batch.clear();
+        return saved;
+    }
 
-                } catch (NumberFormatException e) {
-                    System.out.println("⚠️  Invalid number in line: " + line);
-                    errorCount++;
-                } catch (IllegalArgumentException e) {
-                    System.out.println("⚠️  Invalid category/priority in line: " + line);
-                    errorCount++;
-                } catch (Exception e) {
-                    System.out.println("⚠️  Error parsing line: " + line);
-                    errorCount++;
-                }
+    private void replayJournal(String filename, ExpenseRepository target, boolean wasEmpty) throws IOException {
+        if(journal == null){
+            return;
+        }
+
+        if(!journal.covers(filename)){
+            // Rows from another file are not tracked as changes
+            journal.requireRewrite();
+            return;
+        }
+
+        int applied = journal.replay(target, wasEmpty, this::report);
+        if(applied > 0){
+            report("✓ Applied " + applied + " journal entries");
+        }
+    }
+
+    /**
+     * Reads every row of a source and saves them in batches of
+     * INSERT_BATCH_ROWS, so a durable repository commits once per batch
+     * instead of once per row. Rows are saved and reported in file order.
+     */
+    private void insertAll(ExpenseSource source, String filename, ExpenseRepository target) throws IOException {
+        List<Expense> batch = new ArrayList<>(INSERT_BATCH_ROWS);
+        int[] lines = new int[INSERT_BATCH_ROWS];
+        int readCount = 0;
+        int loadedCount = 0;
+        int parseErrors = 0;
+
+        while (true) {
+            Expense expense;
+            try {
+                expense = source.next();
+            } catch (InvalidExpenseDataException e) {
+                loadedCount += saveBatch(target, batch, lines);
+                report("⚠️  Skipping invalid row: " + e.getMessage());
+                parseErrors++;
+                continue;
+            } catch (IOException e) {
+                saveBatch(target, batch, lines);
+                throw e;
+            } catch (Exception e) {
+                loadedCount += saveBatch(target, batch, lines);
+                report("⚠️  Error in line " + source.getLineNumber() + ": " + e.getMessage());
+                parseErrors++;
+                continue;
+            }
+
+            if (expense == null) {
+                break;
             }
 
-            System.out.println("✓ Loaded " + loadedCount + " expenses from " + filename);
-            if (errorCount > 0) {
-                System.out.println("⚠️  " + errorCount + " lines had errors");
+            lines[batch.size()] = source.getLineNumber();
+            batch.add(expense);
+            readCount++;
+            if (batch.size() == INSERT_BATCH_ROWS) {
+                loadedCount += saveBatch(target, batch, lines);
             }
         }
+        loadedCount += saveBatch(target, batch, lines);
+
+        int errorCount = parseErrors + readCount - loadedCount;
+        report("✓ Loaded " + loadedCount + " expenses from " + filename);
+        if (errorCount > 0) {
+            report("⚠️  " + errorCount + " lines had errors");
+        }
+    }
+
+    /**
+     * Saves and empties a batch of rows read by insertAll.
+     *
+     * @param lines file line of each row in the batch, for error messages
+     * @return number of rows saved
+     */
+    private int saveBatch(ExpenseRepository target, List<Expense> batch, int[] lines) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        int saved = target.saveBatch(batch, (e, index) -> {
+            if (e instanceof InvalidExpenseDataException) {
+                report("⚠️  Skipping invalid row: " + e.getMessage());
+            } else {
+                report("⚠️  Error in line " + lines[index] + ": " + e.getMessage());
+            }
+        });
+        batch.clear();
+        return saved;
     }
 
 }
@@ -0,0 +1,170 @@
+package service;
+
+import model.Category;
+import model.Money;
+import model.Priority;
+
+import java.util.Map;
+
+/**
+ * Immutable result of one StatisticsEngine pass: overall, per-category,
+ * per-priority and per-date figures for a set of expenses.
+ *
+ * Totals, min and max are exact (computed in grosze); the *Minor getters
+ * return them as grosze. Standard deviations are population values (all expenses are known,
+ * nothing is sampled). Min, max, average and standard deviation are 0
+ * for a group without expenses.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.2.0
+ */
+public final class ExpenseStatistics {
+
+    private final int count;
+    private final long total;
+    private final long min;
+    private final long max;
+    private final double standardDeviation;
+
+    private final int[] categoryCounts;
+    private final long[] categoryTotals;
+    private final long[] categoryMins;
+    private final long[] categoryMaxs;
+    private final double[] categoryStandardDeviations;
+
+    private final int[] priorityCounts;
+
+    private final Map<String, Double> totalsByDate;
+    private final String mostExpensiveDate;
+    private final long mostExpensiveDateTotal;
+
+    ExpenseStatistics(int count, long total, long min, long max, double standardDeviation,
+                      int[] categoryCounts, long[] categoryTotals, long[] categoryMins,
+                      long[] categoryMaxs, double[] categoryStandardDeviations, int[] priorityCounts,
+                      Map<String, Double> totalsByDate, String mostExpensiveDate, long mostExpensiveDateTotal){
+        this.count = count;
+        this.total = total;
+        this.min = min;
+        this.max = max;
+        this.standardDeviation = standardDeviation;
+        this.categoryCounts = categoryCounts.clone();
+        this.categoryTotals = categoryTotals.clone();
+        this.categoryMins = categoryMins.clone();
+        this.categoryMaxs = categoryMaxs.clone();
+        this.categoryStandardDeviations = categoryStandardDeviations.clone();
+        this.priorityCounts = priorityCounts.clone();
+        this.totalsByDate = totalsByDate;
+        this.mostExpensiveDate = mostExpensiveDate;
+        this.mostExpensiveDateTotal = mostExpensiveDateTotal;
+    }
+
+    // ---- overall ----
+
+    public int getCount(){
+        return count;
+    }
+
+    public boolean isEmpty(){
+        return count == 0;
+    }
+
+    public double getTotal(){
+        return Money.toDouble(total);
+    }
+
+    public long getTotalMinor(){
+        return total;
+    }
+
+    public double getAverage(){
+        return count == 0 ? 0 : Money.toDouble(total) / count;
+    }
+
+    public double getMin(){
+        return Money.toDouble(min);
+    }
+
+    public double getMax(){
+        return Money.toDouble(max);
+    }
+
+    public double getStandardDeviation(){
+        return standardDeviation;
+    }
+
+    // ---- per category ----
+
+    public int getCount(Category category){
+        return categoryCounts[category.ordinal()];
+    }
+
+    public double getTotal(Category category){
+        return Money.toDouble(categoryTotals[category.ordinal()]);
+    }
+
+    public long getTotalMinor(Category category){
+        return categoryTotals[category.ordinal()];
+    }
+
+    public double getAverage(Category category){
+        int categoryCount = categoryCounts[category.ordinal()];
+        return categoryCount == 0 ? 0 : Money.toDouble(categoryTotals[category.ordinal()]) / categoryCount;
+    }
+
+    public double getMin(Category category){
+        return Money.toDouble(categoryMins[category.ordinal()]);
+    }
+
+    public double getMax(Category category){
+        return Money.toDouble(categoryMaxs[category.ordinal()]);
+    }
+
+    public double getStandardDeviation(Category category){
+        return categoryStandardDeviations[category.ordinal()];
+    }
+
+    /**
+     * Share of the overall total spent in a category, in percent.
+     */
+    public double getPercentage(Category category){
+        return total == 0 ? 0 : categoryTotals[category.ordinal()] * 100.0 / total;
+    }
+
+    // ---- per priority ----
+
+    public int getCount(Priority priority){
+        return priorityCounts[priority.ordinal()];
+    }
+
+    /**
+     * Share of all expenses with a priority, in percent.
+     */
+    public double getPercentage(Priority priority){
+        return count == 0 ? 0 : priorityCounts[priority.ordinal()] * 100.0 / count;
+    }
+
+    // ---- per date ----
+
+    public int getUniqueDates(){
+        return totalsByDate.size();
+    }
+
+    /**
+     * Total per date (read-only).
+     */
+    public Map<String, Double> getTotalsByDate(){
+        return totalsByDate;
+    }
+
+    /**
+     * Date with the highest total, or null if there are no expenses.
+     * Ties go to the earliest date.
+     */
+    public String getMostExpensiveDate(){
+        return mostExpensiveDate;
+    }
+
+    public double getMostExpensiveDateTotal(){
+        return Money.toDouble(mostExpensiveDateTotal);
+    }
+}
@@ -0,0 +1,361 @@
+package service;
+
+import model.Category;
+import model.Dates;
+import model.Expense;
+import model.Money;
+import model.Priority;
+import util.LongIntHashMap;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Computes every figure of the advanced statistics screen in one pass.
+ *
+ * Each expense is read once and folded into primitive accumulators:
+ * count, exact sum in grosze, min, max and a running mean/variance
+ * (Welford) per category and overall, a count per priority, and a sum
+ * per date (keyed by epoch-day). The result is an immutable ExpenseStatistics; printing is
+ * left to the caller.
+ *
+ * computeParallel() splits the list with a halving Spliterator on a
+ * ForkJoinPool; every leaf fills its own accumulator and results are
+ * combined left to right. How the list is split depends only on its size
+ * and the sequential threshold - never on the number of threads or on
+ * timing - so results are the same on every run and pool size. Totals,
+ * min and max are exact and equal to compute(); standard deviations may
+ * differ from it in the last bits, since the variance terms are grouped
+ * differently. Lists below the threshold are computed sequentially.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.4.0
+ */
+public class StatisticsEngine {
+
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+
+    /**
+     * Creates engine that runs parallel passes on the common ForkJoinPool.
+     */
+    public StatisticsEngine(){
+        this(ForkJoinPool.commonPool(), DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    /**
+     * Creates engine with its own pool and threshold.
+     *
+     * @param pool pool for parallel passes
+     * @param sequentialThreshold lists smaller than this are computed sequentially;
+     *                            larger ones are split into chunks of about this size
+     * @throws IllegalArgumentException if pool is null or threshold not positive
+     */
+    public StatisticsEngine(ForkJoinPool pool, int sequentialThreshold){
+        if(pool == null){
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+
+        if(sequentialThreshold <= 0){
+            throw new IllegalArgumentException("Sequential threshold must be positive");
+        }
+
+        this.pool = pool;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    /**
+     * Computes statistics of the given expenses.
+     *
+     * @param expenses expenses to analyze (read once, in iteration order)
+     * @return statistics snapshot
+     */
+    public ExpenseStatistics compute(Iterable<Expense> expenses){
+        Accumulator accumulator = new Accumulator();
+        for(Expense expense : expenses){
+            accumulator.accept(expense);
+        }
+        return accumulator.result();
+    }
+
+    /**
+     * Computes statistics of the given expenses on the pool.
+     * The list must not change while the pass runs.
+     *
+     * @param expenses expenses to analyze
+     * @return statistics snapshot, reproducible for the same list and threshold
+     */
+    public ExpenseStatistics computeParallel(List<Expense> expenses){
+        if(expenses.size() < sequentialThreshold){
+            return compute(expenses);
+        }
+
+        List<Expense> indexed = expenses instanceof RandomAccess ? expenses : new ArrayList<>(expenses);
+        Spliterator<Expense> rows = new RangeSpliterator(indexed, 0, indexed.size());
+
+        return pool.invoke(new AccumulateTask(rows, sequentialThreshold)).result();
+    }
+
+    /**
+     * Spliterator over an index range of a random-access list.
+     * trySplit() always cuts the range in half, so the split tree is fixed by the size.
+     */
+    static final class RangeSpliterator implements Spliterator<Expense> {
+
+        private final List<Expense> expenses;
+        private int index;
+        private final int end;
+
+        RangeSpliterator(List<Expense> expenses, int start, int end){
+            this.expenses = expenses;
+            this.index = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Expense> action) {
+            if(index >= end){
+                return false;
+            }
+            action.accept(expenses.get(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Expense> action) {
+            for(; index < end; index++){
+                action.accept(expenses.get(index));
+            }
+        }
+
+        @Override
+        public Spliterator<Expense> trySplit() {
+            int middle = (index + end) >>> 1;
+            if(middle <= index){
+                return null;
+            }
+
+            Spliterator<Expense> prefix = new RangeSpliterator(expenses, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * Splits until a part is no larger than the threshold, then accumulates it.
+     * The left part is always combined with the right one, in list order.
+     */
+    private static final class AccumulateTask extends RecursiveTask<Accumulator> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient Spliterator<Expense> rows;
+        private final int threshold;
+
+        AccumulateTask(Spliterator<Expense> rows, int threshold){
+            this.rows = rows;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if(rows.estimateSize() > threshold){
+                Spliterator<Expense> prefix = rows.trySplit();
+                if(prefix != null){
+                    AccumulateTask left = new AccumulateTask(prefix, threshold);
+                    AccumulateTask right = new AccumulateTask(rows, threshold);
+                    left.fork();
+
+                    Accumulator rightResult = right.compute();
+                    Accumulator leftResult = left.join();
+                    leftResult.combine(rightResult);
+                    return leftResult;
+                }
+            }
+
+            Accumulator accumulator = new Accumulator();
+            rows.forEachRemaining(accumulator::accept);
+            return accumulator;
+        }
+    }
+
+    /**
+     * Mutable per-pass state. Two accumulators over disjoint parts of the
+     * data can be merged with combine().
+     */
+    static final class Accumulator {
+
+        private static final Category[] CATEGORIES = Category.values();
+
+        /**
+         * One slot per category, then one for all expenses.
+         */
+        private static final int ALL = CATEGORIES.length;
+        private static final int SLOTS = ALL + 1;
+
+        private final int[] counts = new int[SLOTS];
+        private final long[] sums = new long[SLOTS];
+        private final long[] mins = new long[SLOTS];
+        private final long[] maxs = new long[SLOTS];
+        private final double[] means = new double[SLOTS];
+        private final double[] squaredDeviations = new double[SLOTS];
+
+        private final int[] priorityCounts = new int[Priority.values().length];
+
+        /**
+         * Epoch-day -> slot in dateTotals; slotDays maps back.
+         */
+        private final LongIntHashMap dateSlots = new LongIntHashMap();
+        private int[] slotDays = new int[64];
+        private long[] dateTotals = new long[64];
+
+        Accumulator(){
+            Arrays.fill(mins, Long.MAX_VALUE);
+            Arrays.fill(maxs, Long.MIN_VALUE);
+        }
+
+        void accept(Expense expense){
+            long amount = expense.getAmountMinor();
+
+            add(expense.getCategory().ordinal(), amount);
+            add(ALL, amount);
+            priorityCounts[expense.getPriority().ordinal()]++;
+
+            // Slot first: dateSlot() may replace the array
+            int dateSlot = dateSlot(expense.getEpochDay());
+            dateTotals[dateSlot] += amount;
+        }
+
+        private void add(int slot, long amount){
+            int count = ++counts[slot];
+
+            sums[slot] += amount;
+            mins[slot] = Math.min(mins[slot], amount);
+            maxs[slot] = Math.max(maxs[slot], amount);
+
+            // Mean and variance are tracked in PLN
+            double value = Money.toDouble(amount);
+            double delta = value - means[slot];
+            means[slot] += delta / count;
+            squaredDeviations[slot] += delta * (value - means[slot]);
+        }
+
+        private int dateSlot(int epochDay){
+            int slot = dateSlots.getOrDefault(epochDay, -1);
+            if(slot < 0){
+                slot = dateSlots.size();
+                dateSlots.put(epochDay, slot);
+                if(slot == dateTotals.length){
+                    dateTotals = Arrays.copyOf(dateTotals, slot * 2);
+                    slotDays = Arrays.copyOf(slotDays, slot * 2);
+                }
+                slotDays[slot] = epochDay;
+            }
+            return slot;
+        }
+
+        /**
+         * Merges another accumulator into this one (Chan et al. for the variance).
+         */
+        void combine(Accumulator other){
+            for(int slot = 0; slot < SLOTS; slot++){
+                int otherCount = other.counts[slot];
+                if(otherCount == 0){
+                    continue;
+                }
+
+                int count = counts[slot];
+                int merged = count + otherCount;
+                double delta = other.means[slot] - means[slot];
+
+                means[slot] += delta * otherCount / merged;
+                squaredDeviations[slot] += other.squaredDeviations[slot]
+                        + delta * delta * ((double) count * otherCount / merged);
+                counts[slot] = merged;
+
+                sums[slot] += other.sums[slot];
+                mins[slot] = Math.min(mins[slot], other.mins[slot]);
+                maxs[slot] = Math.max(maxs[slot], other.maxs[slot]);
+            }
+
+            for(int i = 0; i < priorityCounts.length; i++){
+                priorityCounts[i] += other.priorityCounts[i];
+            }
+
+            for(int otherSlot = 0; otherSlot < other.dateSlots.size(); otherSlot++){
+                int dateSlot = dateSlot(other.slotDays[otherSlot]);
+                dateTotals[dateSlot] += other.dateTotals[otherSlot];
+            }
+        }
+
+        ExpenseStatistics result(){
+            int[] categoryCounts = Arrays.copyOf(counts, ALL);
+            long[] categoryTotals = Arrays.copyOf(sums, ALL);
+            long[] categoryMins = new long[ALL];
+            long[] categoryMaxs = new long[ALL];
+            double[] categoryDeviations = new double[ALL];
+
+            for(int slot = 0; slot < ALL; slot++){
+                categoryMins[slot] = min(slot);
+                categoryMaxs[slot] = max(slot);
+                categoryDeviations[slot] = standardDeviation(slot);
+            }
+
+            int dateCount = dateSlots.size();
+            int mostExpensiveSlot = -1;
+            for(int slot = 0; slot < dateCount; slot++){
+                if(mostExpensiveSlot < 0 || dateTotals[slot] > dateTotals[mostExpensiveSlot]
+                        || dateTotals[slot] == dateTotals[mostExpensiveSlot] && slotDays[slot] < slotDays[mostExpensiveSlot]){
+                    mostExpensiveSlot = slot;
+                }
+            }
+
+            Map<String, Double> totalsByDate = new HashMap<>();
+            for(int slot = 0; slot < dateCount; slot++){
+                totalsByDate.put(Dates.format(slotDays[slot]), Money.toDouble(dateTotals[slot]));
+            }
+
+            String mostExpensiveDate = mostExpensiveSlot < 0 ? null : Dates.format(slotDays[mostExpensiveSlot]);
+            long mostExpensiveDateTotal = mostExpensiveSlot < 0 ? 0 : dateTotals[mostExpensiveSlot];
+
+            return new ExpenseStatistics(counts[ALL], sums[ALL], min(ALL), max(ALL), standardDeviation(ALL),
+                    categoryCounts, categoryTotals, categoryMins, categoryMaxs, categoryDeviations,
+                    priorityCounts, Collections.unmodifiableMap(totalsByDate), mostExpensiveDate, mostExpensiveDateTotal);
+        }
+
+        private long min(int slot){
+            return counts[slot] == 0 ? 0 : mins[slot];
+        }
+
+        private long max(int slot){
+            return counts[slot] == 0 ? 0 : maxs[slot];
+        }
+
+        private double standardDeviation(int slot){
+            return counts[slot] == 0 ? 0 : Math.sqrt(squaredDeviations[slot] / counts[slot]);
+        }
+    }
+}
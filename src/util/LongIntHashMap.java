@@ -0,0 +1,176 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive long keys to primitive int values.
+ *
+ * Uses open addressing with linear probing and backward-shift deletion,
+ * so there are no tombstones and no boxing: get, put and remove run in
+ * O(1) expected time and the whole map is three flat arrays.
+ *
+ * Not thread-safe.
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public class LongIntHashMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * Creates empty map with default capacity.
+     */
+    public LongIntHashMap(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates empty map sized for expected number of entries.
+     *
+     * @param expectedSize number of entries to hold without resizing
+     */
+    public LongIntHashMap(int expectedSize){
+        if(expectedSize < 0){
+            throw new IllegalArgumentException("Expected size cannot be negative: " + expectedSize);
+        }
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Returns value mapped to key, or defaultValue if key is absent.
+     */
+    public int getOrDefault(long key, int defaultValue){
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public boolean containsKey(long key){
+        return find(key) >= 0;
+    }
+
+    /**
+     * Maps key to value, replacing any previous value.
+     */
+    public void put(long key, int value){
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (used[slot]){
+            if(keys[slot] == key){
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+
+        if(++size > resizeAt){
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes mapping for key.
+     *
+     * @return true if key was present
+     */
+    public boolean remove(long key){
+        int slot = find(key);
+        if(slot < 0){
+            return false;
+        }
+
+        // Backward-shift: pull later entries of the probe chain into the gap,
+        // so lookups never have to skip deleted slots.
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+
+        while (used[next]){
+            int home = hash(keys[next]) & mask;
+            if(((next - home) & mask) >= ((next - gap) & mask)){
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        used[gap] = false;
+        size--;
+        return true;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public void clear(){
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int find(long key){
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (used[slot]){
+            if(keys[slot] == key){
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    private void rehash(int newCapacity){
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        allocate(newCapacity);
+        size = 0;
+
+        for(int i = 0; i < oldKeys.length; i++){
+            if(oldUsed[i]){
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity){
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize){
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize){
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long key){
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,226 @@
+package persistence;
+
+import exception.InvalidExpenseDataException;
+import model.Category;
+import model.Dates;
+import model.Expense;
+import model.Priority;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Round trip of ExpenseCsvWriter and ExpenseCsvReader, aimed at the
+ * reader's state machine: quoted fields with commas, doubled quotes and
+ * line breaks, read from a file and one char at a time, plus line numbers,
+ * skipping of malformed rows and the older layout without an id column.
+ *
+ * Run with: java -cp out persistence.ExpenseCsvReaderTest
+ * (exits with status 1 if a check fails).
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public class ExpenseCsvReaderTest {
+
+    private static final int FIRST_DAY = Dates.parse("2025-01-01");
+
+    private static final String[] DESCRIPTIONS = {
+            "Plain",
+            "",
+            "Comma, inside",
+            "Quote \" inside",
+            "\"Fully quoted\"",
+            "Line\nbreak",
+            "Windows\r\nbreak",
+            "Ends with newline\n",
+            ",",
+            "\"\"",
+            "  padded  ",
+            "Zażółć gęślą jaźń €",
+            "Emoji 🍕 pizza",
+    };
+
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("csv-test");
+        try{
+            roundTrip(dir.resolve("expenses.csv"), false);
+            roundTrip(dir.resolve("expenses.csv.gz"), true);
+            oneCharAtATime(dir.resolve("chunks.csv"));
+            malformedRows();
+            olderLayout();
+        }finally {
+            try(var files = Files.list(dir)){
+                for(Path file : files.toList()){
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+
+        if(failures.isEmpty()){
+            System.out.println("✓ CSV round trip kept every description intact");
+        }else {
+            failures.forEach(failure -> System.out.println("❌ " + failure));
+            System.exit(1);
+        }
+    }
+
+    private static void roundTrip(Path file, boolean compress) throws IOException {
+        List<Expense> written = sample();
+        write(file, written, compress);
+
+        List<Expense> read = new ArrayList<>();
+        try(ExpenseCsvReader reader = ExpenseCsvReader.open(file.toFile())){
+            check(file.getFileName() + ": has IDs", reader.hasIds(), true);
+            Expense expense;
+            while ((expense = reader.next()) != null){
+                read.add(expense);
+            }
+        }
+        check(file.getFileName() + ": rows", rows(read), rows(written));
+    }
+
+    /**
+     * Every char arrives in its own read, so each state of the machine
+     * is entered across a buffer refill.
+     */
+    private static void oneCharAtATime(Path file) throws IOException {
+        List<Expense> written = sample();
+        write(file, written, false);
+        String text = Files.readString(file, StandardCharsets.UTF_8);
+
+        List<Expense> read = new ArrayList<>();
+        List<Integer> lines = new ArrayList<>();
+        try(ExpenseCsvReader reader = new ExpenseCsvReader(new OneCharReader(new StringReader(text)))){
+            Expense expense;
+            while ((expense = reader.next()) != null){
+                read.add(expense);
+                lines.add(reader.getLineNumber());
+            }
+        }
+        check("one char at a time: rows", rows(read), rows(written));
+
+        // Each row starts one line after the previous one ended
+        List<Integer> expectedLines = new ArrayList<>();
+        int line = 2;
+        for(Expense expense : written){
+            expectedLines.add(line);
+            line += 1 + lineBreaks(expense.getDescription());
+        }
+        check("one char at a time: line numbers", lines, expectedLines);
+    }
+
+    /**
+     * A bad row is reported after it was consumed, so reading goes on with
+     * the next row - also when the bad row spans lines inside quotes.
+     */
+    private static void malformedRows() throws IOException {
+        String text = ExpenseCsvWriter.HEADER + "\n"
+                + "1,2025-01-01,12.50,\"Good, first\",FOOD,LOW\n"
+                + "2,2025-01-02,oops,\"Bad\namount\",FOOD,LOW\n"
+                + "3,2025-01-03,1.00,Too few fields\n"
+                + "4,2025-01-04,7.25,\"Good\nlast\",TRANSPORT,HIGH\n";
+
+        List<String> good = new ArrayList<>();
+        List<Integer> badLines = new ArrayList<>();
+        try(ExpenseCsvReader reader = new ExpenseCsvReader(new StringReader(text))){
+            while (true){
+                try{
+                    Expense expense = reader.next();
+                    if(expense == null){
+                        break;
+                    }
+                    good.add(expense.getDescription());
+                }catch (InvalidExpenseDataException e){
+                    badLines.add(reader.getLineNumber());
+                }
+            }
+        }
+        check("malformed: good rows", good, List.of("Good, first", "Good\nlast"));
+        check("malformed: bad lines", badLines, List.of(3, 5));
+    }
+
+    private static void olderLayout() throws IOException {
+        String text = "date,amount,description,category,priority\n"
+                + "2025-01-01,12.5,\"Old, file\",FOOD,LOW\n";
+
+        try(ExpenseCsvReader reader = new ExpenseCsvReader(new StringReader(text))){
+            check("older layout: has IDs", reader.hasIds(), false);
+            Expense expense = reader.next();
+            check("older layout: description", expense.getDescription(), "Old, file");
+            check("older layout: amount", expense.getAmountMinor(), 1_250L);
+            check("older layout: no ID", expense.hasId(), false);
+        }
+    }
+
+    private static List<Expense> sample(){
+        List<Expense> expenses = new ArrayList<>();
+        long[] amounts = {1, 1_250, 1_205, 100_000, 1_000_000};
+        for(int i = 0; i < DESCRIPTIONS.length; i++){
+            Expense expense = Expense.ofEpochDay(FIRST_DAY + i, amounts[i % amounts.length], DESCRIPTIONS[i],
+                    Category.values()[i % Category.values().length],
+                    Priority.values()[i % Priority.values().length]);
+            expense.assignId(i + 1);
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    private static void write(Path file, List<Expense> expenses, boolean compress) throws IOException {
+        try(ExpenseCsvWriter writer = new ExpenseCsvWriter(file, compress)){
+            for(Expense expense : expenses){
+                writer.write(expense);
+            }
+        }
+    }
+
+    private static int lineBreaks(String text){
+        int breaks = 0;
+        for(int i = 0; i < text.length(); i++){
+            if(text.charAt(i) == '\n'){
+                breaks++;
+            }
+        }
+        return breaks;
+    }
+
+    private static List<String> rows(List<Expense> expenses){
+        List<String> rows = new ArrayList<>();
+        for(Expense expense : expenses){
+            rows.add(expense.getId() + "|" + Dates.format(expense.getEpochDay()) + "|" + expense.getAmountMinor()
+                    + "|" + expense.getDescription() + "|" + expense.getCategory() + "|" + expense.getPriority());
+        }
+        return rows;
+    }
+
+    private static void check(String what, Object actual, Object expected){
+        if(!actual.equals(expected)){
+            failures.add(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * Hands out at most one char per read.
+     */
+    private static final class OneCharReader extends FilterReader {
+
+        OneCharReader(Reader in){
+            super(in);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(length, 1));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package persistence;
+
+import model.Category;
+import model.Dates;
+import model.Expense;
+import model.Priority;
+import repository.ExpenseRepository;
+import repository.InMemoryExpenseRepository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves a repository through ExpenseJournal, loads base file plus journal
+ * into a fresh repository and checks that both hold the same rows.
+ *
+ * Covers appending changes, replay order (a delete and a re-add of the
+ * same date and description), compaction into a new base file and
+ * skipping damaged journal entries.
+ *
+ * Run with: java -cp out persistence.ExpenseJournalTest
+ * (exits with status 1 if a check fails).
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public class ExpenseJournalTest {
+
+    private static final int FIRST_DAY = Dates.parse("2025-01-01");
+    private static final long NO_COMPACTION = Long.MAX_VALUE;
+
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("journal-test");
+        try{
+            appendAndReplay(dir.resolve("append.csv"));
+            deleteAndReAdd(dir.resolve("readd.csv"));
+            compaction(dir.resolve("compact.csv"));
+            damagedEntry(dir.resolve("damaged.csv"));
+            replayIntoNonEmpty(dir.resolve("non-empty.csv"));
+        }finally {
+            try(var files = Files.list(dir)){
+                for(Path file : files.toList()){
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+
+        if(failures.isEmpty()){
+            System.out.println("✓ Journal replay and compaction restored every change");
+        }else {
+            failures.forEach(failure -> System.out.println("❌ " + failure));
+            System.exit(1);
+        }
+    }
+
+    private static void appendAndReplay(Path file) throws IOException {
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        ExpenseJournal journal = new ExpenseJournal(file.toString(), NO_COMPACTION);
+        add(repository, journal, 0, "Rent");
+        add(repository, journal, 1, "Food");
+        add(repository, journal, 2, "Bus");
+        check("append: first save rewrites", journal.save(repository.findAll()), true);
+
+        delete(repository, journal, 2);
+        add(repository, journal, 3, "Cinema");
+        check("append: second save appends", journal.save(repository.findAll()), false);
+        check("append: journal written", Files.exists(journal.getJournalFile()), true);
+
+        // Saved and deleted between two saves: the file never sees it
+        add(repository, journal, 4, "Gone");
+        delete(repository, journal, 5);
+        check("append: nothing pending", journal.pendingChanges(), 0);
+
+        List<String> warnings = new ArrayList<>();
+        ExpenseRepository loaded = load(file, warnings);
+        check("append: rows", rows(loaded), rows(repository));
+        check("append: warnings", warnings, List.of());
+    }
+
+    /**
+     * Deletes are written before adds, so a new expense may take over the
+     * date and description of a deleted one.
+     */
+    private static void deleteAndReAdd(Path file) throws IOException {
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        ExpenseJournal journal = new ExpenseJournal(file.toString(), NO_COMPACTION);
+        add(repository, journal, 0, "Gym");
+        journal.save(repository.findAll());
+
+        add(repository, journal, 1, "Shoes");
+        delete(repository, journal, 1);
+        add(repository, journal, 0, "Gym");
+        journal.save(repository.findAll());
+
+        List<String> warnings = new ArrayList<>();
+        ExpenseRepository loaded = load(file, warnings);
+        check("re-add: rows", rows(loaded), rows(repository));
+        check("re-add: warnings", warnings, List.of());
+    }
+
+    private static void compaction(Path file) throws IOException {
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        ExpenseJournal journal = new ExpenseJournal(file.toString(), 200);
+        add(repository, journal, 0, "Rent");
+        journal.save(repository.findAll());
+
+        boolean compacted = false;
+        for(int i = 1; i <= 10 && !compacted; i++){
+            add(repository, journal, i, "Item " + i);
+            compacted = journal.save(repository.findAll());
+        }
+
+        check("compaction: happened", compacted, true);
+        check("compaction: journal dropped", Files.exists(journal.getJournalFile()), false);
+
+        ExpenseRepository loaded = load(file, new ArrayList<>());
+        check("compaction: rows", rows(loaded), rows(repository));
+
+        // The journal starts over after compaction
+        delete(repository, journal, 1);
+        check("compaction: appends again", journal.save(repository.findAll()), false);
+        check("compaction: rows after delete", rows(load(file, new ArrayList<>())), rows(repository));
+    }
+
+    private static void damagedEntry(Path file) throws IOException {
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        ExpenseJournal journal = new ExpenseJournal(file.toString(), NO_COMPACTION);
+        add(repository, journal, 0, "Rent");
+        journal.save(repository.findAll());
+        add(repository, journal, 1, "Food");
+        journal.save(repository.findAll());
+
+        Files.writeString(journal.getJournalFile(), "?,7\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        add(repository, journal, 2, "Bus");
+        journal.save(repository.findAll());
+
+        List<String> warnings = new ArrayList<>();
+        ExpenseRepository loaded = load(file, warnings);
+        check("damaged: rows", rows(loaded), rows(repository));
+        check("damaged: warnings", warnings.size(), 1);
+    }
+
+    /**
+     * After a replay into a repository that had other rows, the file no
+     * longer mirrors it, so the next save must rewrite the base file.
+     */
+    private static void replayIntoNonEmpty(Path file) throws IOException {
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        ExpenseJournal journal = new ExpenseJournal(file.toString(), NO_COMPACTION);
+        add(repository, journal, 0, "Rent");
+        journal.save(repository.findAll());
+
+        ExpenseJournal reopened = new ExpenseJournal(file.toString(), NO_COMPACTION);
+        reopened.replay(new InMemoryExpenseRepository(), false, warning -> {});
+        check("non-empty: rewrites", reopened.save(repository.findAll()), true);
+
+        reopened.replay(new InMemoryExpenseRepository(), true, warning -> {});
+        check("empty: appends", reopened.save(repository.findAll()), false);
+    }
+
+    private static void add(ExpenseRepository repository, ExpenseJournal journal, int day, String description){
+        Expense expense = Expense.ofEpochDay(FIRST_DAY + day, 1_000 + day, description, Category.OTHER, Priority.LOW);
+        repository.save(expense);
+        journal.recordAdded(expense);
+    }
+
+    private static void delete(ExpenseRepository repository, ExpenseJournal journal, long id){
+        repository.delete(id);
+        journal.recordDeleted(id);
+    }
+
+    /**
+     * Loads base file and journal the way BudgetManager does.
+     */
+    private static ExpenseRepository load(Path file, List<String> warnings) throws IOException {
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        try(ExpenseCsvReader reader = ExpenseCsvReader.open(file.toFile())){
+            Expense expense;
+            while ((expense = reader.next()) != null){
+                repository.save(expense);
+            }
+        }
+        new ExpenseJournal(file.toString()).replay(repository, true, warnings::add);
+        return repository;
+    }
+
+    private static List<String> rows(ExpenseRepository repository){
+        List<String> rows = new ArrayList<>();
+        for(Expense expense : repository.findAll()){
+            rows.add(expense.getId() + " " + Dates.format(expense.getEpochDay()) + " "
+                    + expense.getAmountMinor() + " " + expense.getDescription());
+        }
+        return rows;
+    }
+
+    private static void check(String what, Object actual, Object expected){
+        if(!actual.equals(expected)){
+            failures.add(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package repository;
+
+import exception.DuplicateExpenseException;
+import exception.ExpenseNotFoundException;
+import model.Category;
+import model.Dates;
+import model.Expense;
+import model.Priority;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Races saves against deletes on a ConcurrentExpenseRepository and checks
+ * that, once the threads finish, every index and aggregate matches a
+ * recomputation from the expenses that are left, and that the count is
+ * exactly the successful saves minus the successful deletes.
+ *
+ * Deleters aim at the newest IDs, so many deletes land right after an
+ * expense becomes visible, while its save is still updating indexes.
+ *
+ * Run with: java -cp out repository.ConcurrentExpenseRepositoryTest
+ * (exits with status 1 if a check fails).
+ *
+ * @author Konrad Wojdyna
+ * @version 0.2.0
+ */
+public class ConcurrentExpenseRepositoryTest {
+
+    private static final int ROUNDS = 20;
+    private static final int WRITERS = 4;
+    private static final int DELETERS = 4;
+    private static final int SAVES_PER_WRITER = 5_000;
+
+    /**
+     * Fewer descriptions than HeavyHitters.CAPACITY, so every one is tracked exactly.
+     */
+    private static final int DESCRIPTIONS = 50;
+    private static final int DAYS = 60;
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws InterruptedException {
+        for(int round = 1; round <= ROUNDS; round++){
+            race(round);
+        }
+
+        if(failures.isEmpty()){
+            System.out.println("✓ " + ROUNDS + " rounds of racing saves and deletes left every index consistent");
+        }else {
+            failures.forEach(failure -> System.out.println("❌ " + failure));
+            System.exit(1);
+        }
+    }
+
+    private static void race(int round) throws InterruptedException {
+        ConcurrentExpenseRepository repository = new ConcurrentExpenseRepository();
+        AtomicLong newestId = new AtomicLong();
+        AtomicInteger writersLeft = new AtomicInteger(WRITERS);
+        AtomicInteger unexpectedErrors = new AtomicInteger();
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger deleted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + DELETERS);
+        int firstDay = Dates.parse("2025-01-01");
+
+        for(int w = 0; w < WRITERS; w++){
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try{
+                    start.await();
+                    for(int i = 0; i < SAVES_PER_WRITER; i++){
+                        Expense expense = Expense.ofEpochDay(firstDay + random.nextInt(DAYS), 1 + random.nextInt(50_000),
+                                "Item " + random.nextInt(DESCRIPTIONS),
+                                CATEGORIES[random.nextInt(CATEGORIES.length)],
+                                PRIORITIES[random.nextInt(PRIORITIES.length)]);
+                        try{
+                            repository.save(expense);
+                            saved.incrementAndGet();
+                            newestId.accumulateAndGet(expense.getId(), Math::max);
+                        }catch (DuplicateExpenseException e){
+                            // Same date and description drawn twice
+                        }
+                    }
+                }catch (Exception e){
+                    unexpectedErrors.incrementAndGet();
+                }finally {
+                    writersLeft.decrementAndGet();
+                }
+            });
+        }
+
+        for(int d = 0; d < DELETERS; d++){
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try{
+                    start.await();
+                    while (writersLeft.get() > 0){
+                        // Just published IDs, and some not published yet
+                        long id = newestId.get() + random.nextInt(-4, 8);
+                        try{
+                            if(id > 0){
+                                repository.delete(id);
+                                deleted.incrementAndGet();
+                            }
+                        }catch (ExpenseNotFoundException e){
+                            // Not saved yet, or deleted by another thread
+                        }
+                    }
+                }catch (Exception e){
+                    unexpectedErrors.incrementAndGet();
+                }
+            });
+        }
+
+        start.countDown();
+        pool.shutdown();
+        if(!pool.awaitTermination(2, TimeUnit.MINUTES)){
+            fail(round, "threads did not finish");
+            return;
+        }
+        if(unexpectedErrors.get() > 0){
+            fail(round, unexpectedErrors.get() + " unexpected errors");
+        }
+
+        check(round, "saved minus deleted", repository.count(), saved.get() - deleted.get());
+        verify(round, repository);
+    }
+
+    /**
+     * Compares every index and aggregate with values recomputed from findAll().
+     */
+    private static void verify(int round, ConcurrentExpenseRepository repository){
+        List<Expense> expenses = repository.findAll();
+        ExpenseAggregates expected = ExpenseAggregates.of(expenses);
+        ExpenseAggregates actual = repository.aggregates();
+
+        check(round, "count", repository.count(), expenses.size());
+        check(round, "aggregated count", actual.count(), expenses.size());
+        check(round, "total", actual.totalAmountMinor(), expected.totalAmountMinor());
+        check(round, "totalAmount()", repository.totalAmount(), expected.totalAmount());
+        check(round, "amount index", repository.findExpensesAbove(0).size(), expenses.size());
+
+        List<Expense> inRange = new ArrayList<>();
+        for(Expense expense : expenses){
+            if(expense.getAmount() >= 100.005 && expense.getAmount() <= 250.5){
+                inRange.add(expense);
+            }
+        }
+        check(round, "amount range", repository.findExpensesBetween(100.005, 250.5).size(), inRange.size());
+
+        for(Category category : CATEGORIES){
+            List<Expense> inCategory = new ArrayList<>();
+            for(Expense expense : expenses){
+                if(expense.getCategory() == category){
+                    inCategory.add(expense);
+                }
+            }
+            check(round, category + " index", repository.findByCategory(category), inCategory);
+            check(round, category + " count", repository.countByCategory(category), inCategory.size());
+            check(round, category + " total", repository.totalByCategory(category), expected.totalByCategory(category));
+            check(round, category + " aggregated total", actual.totalByCategoryMinor(category), expected.totalByCategoryMinor(category));
+            check(round, category + " sketch", actual.amountSketch(category).count(), expected.amountSketch(category).count());
+        }
+
+        for(Priority priority : PRIORITIES){
+            List<Expense> withPriority = new ArrayList<>();
+            for(Expense expense : expenses){
+                if(expense.getPriority() == priority){
+                    withPriority.add(expense);
+                }
+            }
+            check(round, priority + " index", repository.findByPriority(priority), withPriority);
+            check(round, priority + " count", repository.countByPriority(priority), withPriority.size());
+            check(round, priority + " aggregated total", actual.totalByPriorityMinor(priority), expected.totalByPriorityMinor(priority));
+        }
+
+        check(round, "totals by date", new HashMap<>(actual.totalsByDate()), new HashMap<>(expected.totalsByDate()));
+        int firstDay = Dates.parse("2025-01-01");
+        check(round, "date range total", actual.totalBetweenMinor(firstDay, firstDay + DAYS, null),
+                expected.totalBetweenMinor(firstDay, firstDay + DAYS, null));
+
+        for(SpendingCube.Level level : SpendingCube.Level.values()){
+            for(int bucket : expected.cube().buckets(level)){
+                check(round, level + " cube " + SpendingCube.label(level, bucket),
+                        actual.cube().totalMinor(level, bucket, null, null),
+                        expected.cube().totalMinor(level, bucket, null, null));
+            }
+            check(round, level + " cube buckets", actual.cube().buckets(level).length, expected.cube().buckets(level).length);
+        }
+
+        checkTopDescriptions(round, "frequent", actual.frequentDescriptions(), expenses, false);
+        checkTopDescriptions(round, "costly", actual.costlyDescriptions(), expenses, true);
+    }
+
+    /**
+     * With fewer descriptions than slots every estimate must be exact,
+     * and only descriptions that still have expenses may be tracked.
+     */
+    private static void checkTopDescriptions(int round, String name, HeavyHitters tracker, List<Expense> expenses, boolean bySpend){
+        Map<String, Long> exact = new HashMap<>();
+        long total = 0;
+        for(Expense expense : expenses){
+            long weight = bySpend ? expense.getAmountMinor() : 1;
+            exact.merge(expense.getDescription(), weight, Long::sum);
+            total += weight;
+        }
+
+        check(round, name + " total", tracker.total(), total);
+
+        Set<String> tracked = new HashSet<>();
+        for(HeavyHitters.Entry entry : tracker.top(HeavyHitters.CAPACITY)){
+            tracked.add(entry.description());
+            check(round, name + " estimate of " + entry.description(), entry.estimate(), exact.getOrDefault(entry.description(), 0L));
+        }
+        check(round, name + " descriptions", tracked, exact.keySet());
+    }
+
+    private static void check(int round, String what, Object actual, Object expected){
+        if(!actual.equals(expected)){
+            fail(round, what + ": expected " + abbreviate(expected) + " but was " + abbreviate(actual));
+        }
+    }
+
+    private static String abbreviate(Object value){
+        String text = String.valueOf(value);
+        return text.length() > 80 ? text.substring(0, 80) + "..." : text;
+    }
+
+    private static void fail(int round, String message){
+        failures.add("Round " + round + ": " + message);
+    }
+}
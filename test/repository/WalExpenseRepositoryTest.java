@@ -0,0 +1,305 @@
+package repository;
+
+import exception.RepositoryException;
+import model.Category;
+import model.Dates;
+import model.Expense;
+import model.Priority;
+import persistence.ExpenseCsvWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Crash recovery and group commit of WalExpenseRepository.
+ *
+ * Crashes are simulated by writing the files a crash would leave behind
+ * (a torn last log row, a snapshot next to wal.prev.log and wal.log) and
+ * opening a repository on them.
+ *
+ * Run with: java -cp out repository.WalExpenseRepositoryTest
+ * (exits with status 1 if a check fails).
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public class WalExpenseRepositoryTest {
+
+    private static final int FIRST_DAY = Dates.parse("2025-01-01");
+    private static final int WRITERS = 16;
+    private static final int SAVES_PER_WRITER = 50;
+
+    /**
+     * Enough log rows to pass the 4 MB checkpoint threshold.
+     */
+    private static final int CHECKPOINT_ROWS = 120_000;
+
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("wal-test");
+        try{
+            roundTrip(dir.resolve("round-trip"));
+            tornTail(dir.resolve("torn-row"), "+,3,2025-01-03,9.9");
+            tornTail(dir.resolve("torn-quote"), "+,3,2025-01-03,9.99,\"Half a\nrow");
+            damagedRow(dir.resolve("damaged"));
+            crashDuringCheckpoint(dir.resolve("crash-after-swap"), true);
+            crashDuringCheckpoint(dir.resolve("crash-before-swap"), false);
+            groupCommit(dir.resolve("group-commit"));
+            backgroundCheckpoint(dir.resolve("background-checkpoint"));
+        }finally {
+            deleteRecursively(dir);
+        }
+
+        if(failures.isEmpty()){
+            System.out.println("✓ Write-ahead log recovered every acknowledged change");
+        }else {
+            failures.forEach(failure -> System.out.println("❌ " + failure));
+            System.exit(1);
+        }
+    }
+
+    private static void roundTrip(Path dir){
+        String tricky = "Dinner, \"Luigi's\"\nsecond line";
+
+        try(WalExpenseRepository wal = new WalExpenseRepository(dir)){
+            wal.save(expense(0, 150_000, "Rent"));
+            wal.save(expense(1, 4_250, tricky));
+            wal.save(expense(2, 999, "Snack"));
+            wal.delete(1);
+            wal.save(expense(3, 350, "Bus"));
+        }
+
+        try(WalExpenseRepository wal = new WalExpenseRepository(dir)){
+            check("round trip: descriptions", descriptions(wal), List.of(tricky, "Snack", "Bus"));
+            check("round trip: IDs", ids(wal), List.of(2L, 3L, 4L));
+            check("round trip: amount", wal.findById(2).getAmountMinor(), 4_250L);
+            check("round trip: logs folded", Files.exists(dir.resolve(WalExpenseRepository.PREVIOUS_LOG_FILE)), false);
+
+            wal.save(expense(4, 100, "Tea"));
+            check("round trip: next ID", wal.findById(5).getDescription(), "Tea");
+        }
+    }
+
+    /**
+     * A crash in the middle of a row leaves part of it at the end of the
+     * log. That row was never acknowledged, so it is dropped.
+     */
+    private static void tornTail(Path dir, String tornRow) throws IOException {
+        Files.createDirectories(dir);
+        Path log = dir.resolve(WalExpenseRepository.LOG_FILE);
+        writeLog(log, withId(expense(0, 1_000, "Coffee"), 1), withId(expense(1, 2_000, "Lunch"), 2));
+        Files.writeString(log, tornRow, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        String what = "torn tail " + dir.getFileName();
+        try(WalExpenseRepository wal = new WalExpenseRepository(dir)){
+            check(what + ": recovered", descriptions(wal), List.of("Coffee", "Lunch"));
+            wal.save(expense(2, 500, "Snack"));
+        }
+
+        try(WalExpenseRepository wal = new WalExpenseRepository(dir)){
+            check(what + ": after new write", ids(wal), List.of(1L, 2L, 3L));
+        }
+    }
+
+    /**
+     * A complete row that cannot be replayed is damage, not a torn write:
+     * opening fails and names the line.
+     */
+    private static void damagedRow(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path log = dir.resolve(WalExpenseRepository.LOG_FILE);
+        writeLog(log, withId(expense(0, 1_000, "Coffee"), 1));
+        Files.writeString(log, "+,2,2025-01-02,12.00,Lunch,NOT_A_CATEGORY,LOW\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        writeLog(log, withId(expense(2, 3_000, "Dinner"), 3));
+
+        try(WalExpenseRepository wal = new WalExpenseRepository(dir)){
+            failures.add("damaged row: opened with " + wal.count() + " rows");
+        }catch (RepositoryException e){
+            check("damaged row: line in message", e.getMessage().contains("line 3"), true);
+        }
+    }
+
+    /**
+     * A background checkpoint renames wal.log to wal.prev.log, writes a
+     * new snapshot, then deletes wal.prev.log. A crash can stop it after
+     * the snapshot swap (prev log rows already in the snapshot) or before
+     * it (old snapshot); either way replay must land on the same rows.
+     */
+    private static void crashDuringCheckpoint(Path dir, boolean snapshotSwapped) throws IOException {
+        Files.createDirectories(dir);
+        Expense a = withId(expense(0, 1_000, "A"), 1);
+        Expense b = withId(expense(1, 2_000, "B"), 2);
+        Expense c = withId(expense(2, 3_000, "C"), 3);
+        Expense d = withId(expense(3, 4_000, "D"), 4);
+
+        try(ExpenseCsvWriter snapshot = new ExpenseCsvWriter(dir.resolve(WalExpenseRepository.SNAPSHOT_FILE), false)){
+            snapshot.write(a);
+            if(snapshotSwapped){
+                snapshot.write(b);
+            }
+        }
+        // Leftover of a snapshot that was being written
+        Files.writeString(dir.resolve(WalExpenseRepository.SNAPSHOT_FILE + ".tmp"), "id,date,amo");
+
+        Path previousLog = dir.resolve(WalExpenseRepository.PREVIOUS_LOG_FILE);
+        writeLog(previousLog, b);
+        try(ExpenseCsvWriter writer = ExpenseCsvWriter.appendJournal(previousLog)){
+            writer.writeAdded(c);
+            writer.writeDeleted(1);
+        }
+
+        Path log = dir.resolve(WalExpenseRepository.LOG_FILE);
+        writeLog(log, d);
+        try(ExpenseCsvWriter writer = ExpenseCsvWriter.appendJournal(log)){
+            writer.writeDeleted(1);
+        }
+
+        String what = "checkpoint crash " + dir.getFileName();
+        try(WalExpenseRepository wal = new WalExpenseRepository(dir)){
+            check(what + ": recovered", descriptions(wal), List.of("B", "C", "D"));
+            check(what + ": previous log folded", Files.exists(previousLog), false);
+        }
+
+        try(WalExpenseRepository wal = new WalExpenseRepository(dir)){
+            check(what + ": reopened", ids(wal), List.of(2L, 3L, 4L));
+        }
+    }
+
+    /**
+     * saveAll needs one fsync; racing writers share fsyncs, and every
+     * acknowledged save is on disk.
+     */
+    private static void groupCommit(Path dir) throws InterruptedException {
+        try(WalExpenseRepository wal = new WalExpenseRepository(dir)){
+            Expense[] batch = new Expense[100];
+            for(int i = 0; i < batch.length; i++){
+                batch[i] = expense(i, 100 + i, "Batch " + i);
+            }
+            long before = wal.getSyncCount();
+            wal.saveAll(batch);
+            check("group commit: saveAll fsyncs", wal.getSyncCount() - before, 1L);
+
+            before = wal.getSyncCount();
+            AtomicInteger saved = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+            for(int w = 0; w < WRITERS; w++){
+                int writer = w;
+                pool.execute(() -> {
+                    try{
+                        start.await();
+                        for(int i = 0; i < SAVES_PER_WRITER; i++){
+                            wal.save(expense(i, 100, "Writer " + writer + " row " + i));
+                            saved.incrementAndGet();
+                        }
+                    }catch (Exception e){
+                        failures.add("group commit: " + e);
+                    }
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            if(!pool.awaitTermination(2, TimeUnit.MINUTES)){
+                failures.add("group commit: writers did not finish");
+            }
+
+            long syncs = wal.getSyncCount() - before;
+            check("group commit: saves", saved.get(), WRITERS * SAVES_PER_WRITER);
+            if(syncs >= saved.get()){
+                failures.add("group commit: " + syncs + " fsyncs for " + saved.get() + " saves");
+            }
+        }
+
+        try(WalExpenseRepository wal = new WalExpenseRepository(dir)){
+            check("group commit: durable", wal.count(), 100 + WRITERS * SAVES_PER_WRITER);
+        }
+    }
+
+    /**
+     * Past the size threshold the log is folded into a snapshot in the
+     * background; rows saved while that runs must survive as well.
+     */
+    private static void backgroundCheckpoint(Path dir){
+        try(WalExpenseRepository wal = new WalExpenseRepository(dir)){
+            List<Expense> batch = new ArrayList<>();
+            for(int i = 0; i < CHECKPOINT_ROWS; i++){
+                batch.add(expense(i, 100 + i % 5_000, "Bulk " + i));
+                if(batch.size() == 10_000){
+                    wal.saveBatch(batch, (error, index) -> failures.add("checkpoint: " + error));
+                    batch.clear();
+                }
+            }
+            for(int i = 0; i < 100; i++){
+                wal.save(expense(i, 200, "After " + i));
+            }
+        }
+
+        check("checkpoint: snapshot written", Files.exists(dir.resolve(WalExpenseRepository.SNAPSHOT_FILE)), true);
+        check("checkpoint: previous log folded", Files.exists(dir.resolve(WalExpenseRepository.PREVIOUS_LOG_FILE)), false);
+
+        try(WalExpenseRepository wal = new WalExpenseRepository(dir)){
+            check("checkpoint: durable", wal.count(), CHECKPOINT_ROWS + 100);
+            check("checkpoint: last row", wal.findById(CHECKPOINT_ROWS + 100).getDescription(), "After 99");
+        }
+    }
+
+    private static Expense expense(int day, long amountMinor, String description){
+        return Expense.ofEpochDay(FIRST_DAY + day % 365, amountMinor, description, Category.FOOD, Priority.MEDIUM);
+    }
+
+    private static Expense withId(Expense expense, long id){
+        expense.assignId(id);
+        return expense;
+    }
+
+    private static void writeLog(Path log, Expense... expenses) throws IOException {
+        try(ExpenseCsvWriter writer = ExpenseCsvWriter.appendJournal(log)){
+            for(Expense expense : expenses){
+                writer.writeAdded(expense);
+            }
+        }
+    }
+
+    private static List<String> descriptions(ExpenseRepository repository){
+        List<String> descriptions = new ArrayList<>();
+        for(Expense expense : repository.findAll()){
+            descriptions.add(expense.getDescription());
+        }
+        return descriptions;
+    }
+
+    private static List<Long> ids(ExpenseRepository repository){
+        List<Long> ids = new ArrayList<>();
+        for(Expense expense : repository.findAll()){
+            ids.add(expense.getId());
+        }
+        return ids;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try(var paths = Files.walk(dir)){
+            for(Path path : paths.sorted(Comparator.reverseOrder()).toList()){
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static void check(String what, Object actual, Object expected){
+        if(!actual.equals(expected)){
+            failures.add(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+}
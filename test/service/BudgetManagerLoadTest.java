@@ -0,0 +1,169 @@
+package service;
+
+import model.Category;
+import model.Expense;
+import model.Priority;
+import repository.ExpenseRepository;
+import repository.InMemoryExpenseRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads saved files into empty and non-empty repositories and checks which
+ * rows and IDs end up in them.
+ *
+ * An empty repository keeps the IDs stored in the file (the journal's
+ * deletes refer to them); a repository that already has expenses gets the
+ * file's rows with fresh IDs, so nothing is dropped as a duplicate ID.
+ *
+ * Run with: java -cp out service.BudgetManagerLoadTest
+ * (exits with status 1 if a check fails).
+ *
+ * @author Konrad Wojdyna
+ * @version 0.1.0
+ */
+public class BudgetManagerLoadTest {
+
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("budget-load-test");
+        try{
+            loadIntoEmptyKeepsIds(dir.resolve("empty.csv"));
+            loadIntoNonEmptyGetsFreshIds(dir.resolve("merge.csv"));
+            loadSecondFile(dir.resolve("first.csv"), dir.resolve("second.csv"));
+            loadJournaledFileIntoNonEmpty(dir.resolve("journaled.csv"));
+        }finally {
+            try(var files = Files.list(dir)){
+                for(Path file : files.toList()){
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+
+        if(failures.isEmpty()){
+            System.out.println("✓ Loading saved files kept every row with consistent IDs");
+        }else {
+            failures.forEach(failure -> System.out.println("❌ " + failure));
+            System.exit(1);
+        }
+    }
+
+    private static void loadIntoEmptyKeepsIds(Path file) throws IOException {
+        BudgetManager saved = new BudgetManager(new InMemoryExpenseRepository());
+        saved.addExpense("2025-01-01", 1500, "Rent", Category.HOUSING, Priority.HIGH);
+        saved.addExpense("2025-01-02", 42.5, "Food", Category.FOOD, Priority.MEDIUM);
+        saved.removeExpense(1);
+        saved.addExpense("2025-01-03", 9.99, "Snack", Category.FOOD, Priority.LOW);
+        saved.saveToFile(file.toString());
+
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        new BudgetManager(repository).loadFromFile(file.toString());
+
+        check("empty: descriptions", descriptions(repository), List.of("Food", "Snack"));
+        check("empty: IDs", ids(repository), List.of(2L, 3L));
+    }
+
+    private static void loadIntoNonEmptyGetsFreshIds(Path file) throws IOException {
+        BudgetManager saved = new BudgetManager(new InMemoryExpenseRepository());
+        saved.addExpense("2025-01-01", 1500, "Rent", Category.HOUSING, Priority.HIGH);
+        saved.addExpense("2025-01-02", 42.5, "Food", Category.FOOD, Priority.MEDIUM);
+        saved.saveToFile(file.toString());
+
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        BudgetManager manager = new BudgetManager(repository);
+        manager.addExpense("2025-01-05", 12, "Coffee", Category.FOOD, Priority.LOW);
+        manager.loadFromFile(file.toString());
+
+        check("non-empty: descriptions", descriptions(repository), List.of("Coffee", "Rent", "Food"));
+        check("non-empty: coffee keeps its ID", manager.getExpenseById(1).getDescription(), "Coffee");
+        checkDistinctIds("non-empty", repository);
+
+        // Same file again: every row is a real (date, description) duplicate
+        manager.loadFromFile(file.toString());
+        check("reload: count", repository.count(), 3);
+    }
+
+    private static void loadSecondFile(Path first, Path second) throws IOException {
+        BudgetManager one = new BudgetManager(new InMemoryExpenseRepository());
+        one.addExpense("2025-02-01", 100, "Gym", Category.HEALTHCARE, Priority.MEDIUM);
+        one.addExpense("2025-02-02", 30, "Bus", Category.TRANSPORT, Priority.LOW);
+        one.saveToFile(first.toString());
+
+        BudgetManager two = new BudgetManager(new InMemoryExpenseRepository());
+        two.addExpense("2025-03-01", 60, "Cinema", Category.ENTERTAINMENT, Priority.LOW);
+        two.addExpense("2025-03-02", 250, "Shoes", Category.OTHER, Priority.MEDIUM);
+        two.saveToFile(second.toString());
+
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        BudgetManager manager = new BudgetManager(repository);
+        manager.loadFromFile(first.toString());
+        manager.loadFromFile(second.toString());
+
+        check("two files: descriptions", descriptions(repository), List.of("Gym", "Bus", "Cinema", "Shoes"));
+        checkDistinctIds("two files", repository);
+    }
+
+    private static void loadJournaledFileIntoNonEmpty(Path file) throws IOException {
+        BudgetManager saved = new BudgetManager(new InMemoryExpenseRepository());
+        saved.useJournal(file.toString());
+        saved.addExpense("2025-01-01", 1500, "Rent", Category.HOUSING, Priority.HIGH);
+        saved.addExpense("2025-01-02", 42.5, "Food", Category.FOOD, Priority.MEDIUM);
+        saved.saveToFile(file.toString());
+        saved.removeExpense(2);
+        saved.addExpense("2025-01-03", 9.99, "Snack", Category.FOOD, Priority.LOW);
+        saved.saveToFile(file.toString());
+
+        ExpenseRepository repository = new InMemoryExpenseRepository();
+        BudgetManager manager = new BudgetManager(repository);
+        manager.useJournal(file.toString());
+        manager.addExpense("2025-01-05", 12, "Coffee", Category.FOOD, Priority.LOW);
+        manager.loadFromFile(file.toString());
+
+        // The journal's delete of ID 2 hits Food, not whatever got ID 2 here
+        check("journal: descriptions", descriptions(repository), List.of("Coffee", "Rent", "Snack"));
+        checkDistinctIds("journal", repository);
+
+        // The merged rows were not journaled, so this save rewrites the file
+        manager.saveToFile(file.toString());
+        ExpenseRepository reloaded = new InMemoryExpenseRepository();
+        BudgetManager fresh = new BudgetManager(reloaded);
+        fresh.useJournal(file.toString());
+        fresh.loadFromFile(file.toString());
+        check("journal: reloaded", descriptions(reloaded), List.of("Coffee", "Rent", "Snack"));
+    }
+
+    private static List<String> descriptions(ExpenseRepository repository){
+        List<String> descriptions = new ArrayList<>();
+        for(Expense expense : repository.findAll()){
+            descriptions.add(expense.getDescription());
+        }
+        return descriptions;
+    }
+
+    private static List<Long> ids(ExpenseRepository repository){
+        List<Long> ids = new ArrayList<>();
+        for(Expense expense : repository.findAll()){
+            ids.add(expense.getId());
+        }
+        return ids;
+    }
+
+    private static void checkDistinctIds(String what, ExpenseRepository repository){
+        Set<Long> distinct = new HashSet<>(ids(repository));
+        check(what + ": distinct IDs", distinct.size(), repository.count());
+    }
+
+    private static void check(String what, Object actual, Object expected){
+        if(!actual.equals(expected)){
+            failures.add(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+}